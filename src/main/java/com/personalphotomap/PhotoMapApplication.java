@@ -3,6 +3,7 @@ package com.personalphotomap;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * PhotoMapApplication
@@ -12,12 +13,14 @@ import org.springframework.scheduling.annotation.EnableAsync;
  * Responsibilities:
  * - Bootstraps the Spring Boot application.
  * - Enables asynchronous method execution via @EnableAsync.
+ * - Enables background jobs (preview generation) via @EnableScheduling.
  *
  * This class is executed when the application starts, initializing all configured beans and services.
  */
 
 @SpringBootApplication
 @EnableAsync
+@EnableScheduling
 public class PhotoMapApplication {
     public static void main(String[] args) {
         SpringApplication.run(PhotoMapApplication.class, args);
@@ -0,0 +1,70 @@
+package com.personalphotomap.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DataSourceConfig
+ *
+ * Splits reads from writes when read replicas are configured
+ * (photomap.datasource.replica-urls, comma-separated JDBC URLs).
+ *
+ * - spring.datasource.* still describes the primary, which takes every write and Flyway migrations.
+ * - Each replica gets its own connection pool; credentials default to the primary's.
+ * - Without replica URLs this class is skipped and Spring Boot builds its usual single DataSource.
+ */
+
+@Configuration
+@ConditionalOnProperty(name = "photomap.datasource.replica-urls")
+public class DataSourceConfig {
+
+    /**
+     * Routes each connection to the primary or to a replica. Owns (and closes) every pool.
+     */
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties,
+            ReadYourWritesWindow readYourWritesWindow,
+            @Value("${photomap.datasource.replica-urls}") List<String> replicaUrls,
+            @Value("${photomap.datasource.replica-username:${spring.datasource.username}}") String replicaUsername,
+            @Value("${photomap.datasource.replica-password:${spring.datasource.password}}") String replicaPassword) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url.trim())
+                    .username(replicaUsername)
+                    .password(replicaPassword)
+                    .build();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, readYourWritesWindow);
+    }
+
+    /**
+     * The DataSource used by JPA, JDBC and Flyway. The lazy proxy defers picking a target
+     * until the first statement, when the transaction's read-only flag is known.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
@@ -0,0 +1,77 @@
+package com.personalphotomap.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.personalphotomap.security.AuthenticatedUser;
+import com.personalphotomap.service.ImageLibraryChangedEvent;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+
+/**
+ * ReadYourWritesWindow
+ *
+ * Remembers which users changed their library in the last few seconds, so their reads
+ * keep going to the primary until the read replicas have caught up with their own writes.
+ * Other users' reads are unaffected and stay on the replicas.
+ *
+ * The window should be comfortably larger than the usual replication lag.
+ */
+
+@Component
+public class ReadYourWritesWindow {
+
+    private final Duration window;
+
+    // Users with a write inside the window; entries expire on their own
+    private final Cache<Long, Boolean> recentWriters;
+
+    // Until when (System.nanoTime) every user is pinned, after a change affecting all users
+    private volatile long allPinnedUntil = System.nanoTime();
+
+    public ReadYourWritesWindow(@Value("${photomap.datasource.read-your-writes-window:PT5S}") Duration window) {
+        this.window = window;
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .build();
+    }
+
+    /**
+     * Opens the window once a library change commits.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLibraryChanged(ImageLibraryChangedEvent event) {
+        if (event.isAllUsers()) {
+            allPinnedUntil = System.nanoTime() + window.toNanos();
+        } else {
+            recordWrite(event.getUserId());
+        }
+    }
+
+    /**
+     * Opens the window for a user after a write that is not announced by an event.
+     */
+    public void recordWrite(Long userId) {
+        recentWriters.put(userId, Boolean.TRUE);
+    }
+
+    /**
+     * True when the authenticated user of the current thread wrote inside the window.
+     * Threads without an authenticated user (background jobs) are never pinned.
+     */
+    public boolean isCurrentUserPinned() {
+        if (System.nanoTime() - allPinnedUntil < 0) {
+            return true;
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser user)) {
+            return false;
+        }
+        return recentWriters.getIfPresent(user.getId()) != null;
+    }
+}
@@ -1,14 +1,18 @@
 package com.personalphotomap.controller;
 
 import com.personalphotomap.dto.UserSummaryDTO;
+import com.personalphotomap.service.EntityCacheService;
+import com.personalphotomap.service.ImageStatsService;
 import com.personalphotomap.service.UserService;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * AdminController
@@ -16,8 +20,12 @@ import java.util.List;
  * This controller provides administrative endpoints for managing users.
  * 
  * - Accessible only to users with the ADMIN role.
- * - Allows listing all users with their photo counts.
+ * - Allows listing all users with their photo counts, storage used and latest upload,
+ *   in full or one sortable page at a time.
  * - Allows deletion of a user and all associated images by ID.
+ * - Allows rebuilding the per-user photo counters when they drift from the images table.
+ * - Reports hit ratio and evictions of the photo counter cache.
+ * - Reports per-region hits and misses of the Hibernate second-level and query cache.
  */
 
 @RestController // Responses go directly as JSON
@@ -26,19 +34,39 @@ import java.util.List;
 public class AdminController {
 
     private final UserService userService;
+    private final ImageStatsService imageStatsService;
+    private final EntityCacheService entityCacheService;
 
-    public AdminController(UserService userService) {
+    public AdminController(UserService userService, ImageStatsService imageStatsService,
+            EntityCacheService entityCacheService) {
         this.userService = userService;
+        this.imageStatsService = imageStatsService;
+        this.entityCacheService = entityCacheService;
     }
 
     /**
-     * Retrieves a list of all users along with the count of their uploaded photos.
+     * Retrieves all users along with their photo count, storage used and latest upload.
+     * Passing "page", "size" or "sort" switches the response to one page of users.
      *
-     * @return List of UserSummaryDTO containing user info and photo count.
+     * @param page Optional zero-based page number
+     * @param size Optional page size
+     * @param sort Optional sort, e.g. "photoCount,desc"; keys are id, fullname, email,
+     *             photoCount, storageBytes and lastUpload
+     * @return List of UserSummaryDTO, or a UserSummaryPageDTO; 400 if a parameter is invalid
      */
     @GetMapping("/users")
-    public List<UserSummaryDTO> getAllUsersWithPhotoCount() {
-        return userService.getAllUsersWithPhotoCount();
+    public ResponseEntity<?> getAllUsersWithPhotoCount(@RequestParam(required = false) Integer page,
+                                                       @RequestParam(required = false) Integer size,
+                                                       @RequestParam(required = false) String sort) {
+        try {
+            if (page != null || size != null || sort != null) {
+                return ResponseEntity.ok(userService.getUserSummaryPage(page, size, sort));
+            }
+            List<UserSummaryDTO> users = userService.getAllUsersWithPhotoCount();
+            return ResponseEntity.ok(users);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
     }
 
     /**
@@ -56,4 +84,47 @@ public class AdminController {
             return ResponseEntity.notFound().build();
         }
     }
+
+    /**
+     * Reports size, hit ratio and evictions of the in-memory photo counter cache.
+     *
+     * @return Cache statistics since startup.
+     */
+    @GetMapping("/stats/cache")
+    public Map<String, Object> getStatsCache() {
+        return imageStatsService.getCacheStats();
+    }
+
+    /**
+     * Reports hits, misses and puts of each Hibernate cache region (users, albums, email lookups).
+     *
+     * @return Statistics per region since startup.
+     */
+    @GetMapping("/entity-cache")
+    public Map<String, Map<String, Object>> getEntityCacheStatistics() {
+        return entityCacheService.getRegionStatistics();
+    }
+
+    /**
+     * Recomputes the photo counters of every user from the images table.
+     *
+     * @return Number of (user, country, year) counters written.
+     */
+    @PostMapping("/stats/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildAllStats() {
+        int counters = imageStatsService.rebuildAll();
+        return ResponseEntity.ok(Map.of("counters", counters));
+    }
+
+    /**
+     * Recomputes the photo counters of one user from the images table.
+     *
+     * @param id ID of the user whose counters are rebuilt
+     * @return Number of (country, year) counters written.
+     */
+    @PostMapping("/users/{id}/stats/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildUserStats(@PathVariable Long id) {
+        int counters = imageStatsService.rebuildForUser(id);
+        return ResponseEntity.ok(Map.of("counters", counters));
+    }
 }
@@ -1,17 +1,30 @@
 package com.personalphotomap.controller;
 
+import com.personalphotomap.dto.AlbumFilterRequestDTO;
+import com.personalphotomap.dto.AlbumImagesRequestDTO;
 import com.personalphotomap.dto.AlbumRequestDTO;
 import com.personalphotomap.dto.AlbumResponseDTO;
 import com.personalphotomap.dto.ImageDTO;
+import com.personalphotomap.dto.MoveAlbumImageRequestDTO;
+import com.personalphotomap.security.AuthenticatedUser;
+import com.personalphotomap.service.AlbumMembershipService;
+import com.personalphotomap.service.AlbumOrderService;
 import com.personalphotomap.service.AlbumService;
 
 import jakarta.validation.Valid;
 
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 /**
@@ -21,8 +34,14 @@ import java.util.NoSuchElementException;
  * 
  * - Allows authenticated users to create and manage their own albums.
  * - Supports public retrieval of albums by country.
- * - Handles deletion and image retrieval for specific albums.
+ * - Handles deletion, image retrieval and ZIP download for specific albums.
+ * - Adds and removes images of an album in bulk, with one statement per request.
+ * - Reorders the images of an album, one image per request.
+ * - Answers set queries over the user's albums (intersection, union, difference, images in no album)
+ *   and bulk image-to-albums lookups from the in-memory membership index.
  * - All user-specific endpoints require a valid JWT token for authentication.
+ * - The user's album listings carry a strong ETag of the library version and answer
+ *   a matching If-None-Match with 304 before touching the database.
  */
 
 @RestController
@@ -30,9 +49,16 @@ import java.util.NoSuchElementException;
 public class AlbumController {
 
     private final AlbumService albumService;
+    private final AlbumOrderService albumOrderService;
+    private final AlbumMembershipService albumMembershipService;
+    private final LibraryETags libraryETags;
 
-    public AlbumController(AlbumService albumService) {
+    public AlbumController(AlbumService albumService, AlbumOrderService albumOrderService,
+                           AlbumMembershipService albumMembershipService, LibraryETags libraryETags) {
         this.albumService = albumService;
+        this.albumOrderService = albumOrderService;
+        this.albumMembershipService = albumMembershipService;
+        this.libraryETags = libraryETags;
     }
 
     /**
@@ -40,14 +66,14 @@ public class AlbumController {
      * The album is associated with a specific country and a list of selected images.
      *
      * @param request Album creation payload including name, countryId, and imageIds
-     * @param token   Bearer JWT token used for user authentication
+     * @param principal Authenticated user resolved from the JWT
      * @return AlbumResponseDTO representing the created album or an error message
      */
     @PostMapping
     public ResponseEntity<?> createAlbum(@Valid @RequestBody AlbumRequestDTO request,
-                                         @RequestHeader("Authorization") String token) {
+                                         @AuthenticationPrincipal AuthenticatedUser principal) {
         try {
-            AlbumResponseDTO response = albumService.createAlbumFromRequest(request, token);
+            AlbumResponseDTO response = albumService.createAlbumFromRequest(request, principal);
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
         } catch (SecurityException e) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Unauthorized: " + e.getMessage());
@@ -60,17 +86,46 @@ public class AlbumController {
         }
     }
 
+    /**
+     * Creates a new album for the authenticated user from a filter over their images
+     * (country, and optionally year, upload date range and an existing album).
+     * The matching images are added in the database, without sending their ids.
+     *
+     * @param request Album name and country, and the optional filter values
+     * @param principal Authenticated user resolved from the JWT
+     * @return AlbumResponseDTO representing the created album or an error message
+     */
+    @PostMapping("/from-filter")
+    public ResponseEntity<?> createAlbumFromFilter(@Valid @RequestBody AlbumFilterRequestDTO request,
+                                                   @AuthenticationPrincipal AuthenticatedUser principal) {
+        try {
+            AlbumResponseDTO response = albumService.createAlbumFromFilter(request, principal);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Unauthorized: " + e.getMessage());
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid request: " + e.getMessage());
+        }
+    }
+
     /**
      * Retrieves all albums created by the authenticated user.
      *
-     * @param token Bearer JWT token used for user authentication
-     * @return List of AlbumResponseDTOs belonging to the user
+     * @param principal Authenticated user resolved from the JWT
+     * @return List of AlbumResponseDTOs belonging to the user, or 304 if unchanged
      */
     @GetMapping("/user")
-    public ResponseEntity<?> getAllAlbumsByUser(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> getAllAlbumsByUser(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                WebRequest webRequest) {
         try {
-            List<AlbumResponseDTO> albums = albumService.getAlbumsByUserDTO(token);
-            return ResponseEntity.ok(albums);
+            String etag = libraryETags.etag(principal);
+            if (libraryETags.isNotModified(webRequest, etag)) {
+                return null;
+            }
+            List<AlbumResponseDTO> albums = albumService.getAlbumsByUserDTO(principal);
+            return libraryETags.ok(albums, etag);
         } catch (SecurityException | NoSuchElementException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
         }
@@ -80,45 +135,245 @@ public class AlbumController {
      * Retrieves all albums created by the authenticated user for a specific country.
      *
      * @param countryId Country ISO code
-     * @param token     Bearer JWT token used for user authentication
-     * @return List of AlbumResponseDTOs filtered by country
+     * @param principal Authenticated user resolved from the JWT
+     * @return List of AlbumResponseDTOs filtered by country, or 304 if unchanged
      */
     @GetMapping("/user/{countryId}")
     public ResponseEntity<?> getUserAlbumsByCountry(@PathVariable String countryId,
-                                                    @RequestHeader("Authorization") String token) {
+                                                    @AuthenticationPrincipal AuthenticatedUser principal,
+                                                    WebRequest webRequest) {
         try {
-            List<AlbumResponseDTO> albums = albumService.getAlbumsByCountryAndUserDTO(countryId, token);
-            return ResponseEntity.ok(albums);
+            String etag = libraryETags.etag(principal);
+            if (libraryETags.isNotModified(webRequest, etag)) {
+                return null;
+            }
+            List<AlbumResponseDTO> albums = albumService.getAlbumsByCountryAndUserDTO(countryId, principal);
+            return libraryETags.ok(albums, etag);
         } catch (SecurityException | NoSuchElementException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
         }
     }
 
+    /**
+     * Retrieves one keyset page of an album owned by the authenticated user.
+     *
+     * @param albumId   Album identifier
+     * @param limit     Optional page size
+     * @param cursor    Optional cursor returned by the previous page
+     * @param sort      Optional page order, "position" (default), "newest" or "oldest"
+     * @param principal Authenticated user resolved from the JWT
+     * @return Page of ImageDTOs, 404 if the album is not found or 403 if it belongs to another user
+     */
+    @GetMapping("/user/{albumId}/images")
+    public ResponseEntity<?> getUserAlbumImages(@PathVariable Long albumId,
+                                                @RequestParam(required = false) Integer limit,
+                                                @RequestParam(required = false) String cursor,
+                                                @RequestParam(required = false) String sort,
+                                                @AuthenticationPrincipal AuthenticatedUser principal) {
+        try {
+            return ResponseEntity.ok(albumService.getUserAlbumImagesPage(albumId, cursor, limit, sort, principal));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the authenticated user's images selected by album membership, for example the images
+     * in both album A and album B (allOf=A,B), in A but not B (anyOf=A&noneOf=B) or in no album (inNoAlbum=true).
+     *
+     * @param allOf     Albums every image must be in (optional)
+     * @param anyOf     Albums of which each image must be in at least one (optional)
+     * @param noneOf    Albums no image may be in (optional)
+     * @param inNoAlbum Whether to keep only images that are in none of the user's albums
+     * @param principal Authenticated user resolved from the JWT
+     * @return {"count": n, "imageIds": [...]} with ids in ascending order,
+     *         400 without any condition, 404 or 403 for a missing or foreign album
+     */
+    @GetMapping("/user/membership/images")
+    public ResponseEntity<?> getImagesByMembership(@RequestParam(required = false) List<Long> allOf,
+                                                   @RequestParam(required = false) List<Long> anyOf,
+                                                   @RequestParam(required = false) List<Long> noneOf,
+                                                   @RequestParam(defaultValue = "false") boolean inNoAlbum,
+                                                   @AuthenticationPrincipal AuthenticatedUser principal) {
+        try {
+            long[] imageIds = albumMembershipService.findImageIds(allOf, anyOf, noneOf, inNoAlbum, principal);
+            return ResponseEntity.ok(Map.of("count", imageIds.length, "imageIds", imageIds));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the albums of each given image of the authenticated user, in one request.
+     * Images of other users are left out; an image in no album maps to an empty list.
+     *
+     * @param request   Images to look up
+     * @param principal Authenticated user resolved from the JWT
+     * @return Map of image id to the ids of the albums containing it
+     */
+    @PostMapping("/user/membership/lookup")
+    public ResponseEntity<?> lookupAlbumsByImages(@Valid @RequestBody AlbumImagesRequestDTO request,
+                                                  @AuthenticationPrincipal AuthenticatedUser principal) {
+        return ResponseEntity.ok(albumMembershipService.findAlbumsByImageIds(request.getImageIds(), principal));
+    }
+
     /**
      * Retrieves all albums publicly available for a specific country.
      * Does not require user authentication.
+     * Passing "limit" or "cursor" switches the response to a keyset page.
+     * The JSON comes from the shared response cache, written once per album change.
      *
      * @param countryId Country ISO code
-     * @return List of AlbumResponseDTOs associated with the given country
+     * @param limit     Optional page size
+     * @param cursor    Optional cursor returned by the previous page
+     * @return List (or page) of AlbumResponseDTOs associated with the given country
      */
     @GetMapping("/{countryId}")
-    public ResponseEntity<List<AlbumResponseDTO>> getAlbumsByCountry(@PathVariable String countryId) {
-        return ResponseEntity.ok(albumService.getAlbumsByCountryDTO(countryId));
+    public ResponseEntity<?> getAlbumsByCountry(@PathVariable String countryId,
+                                                @RequestParam(required = false) Integer limit,
+                                                @RequestParam(required = false) String cursor) {
+        try {
+            return json(albumService.getAlbumsByCountryJson(countryId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
     }
 
     /**
      * Retrieves all images associated with a specific album.
+     * Passing "limit", "cursor" or "sort" switches the response to a keyset page.
      *
      * @param albumId Album identifier
-     * @return List of ImageDTOs belonging to the album or 404 if album not found
+     * @param limit   Optional page size
+     * @param cursor  Optional cursor returned by the previous page
+     * @param sort    Optional page order, "position" (default, the album's display order), "newest" or "oldest"
+     * @return List (or page) of ImageDTOs belonging to the album or 404 if album not found
      */
     @GetMapping("/{albumId}/images")
-    public ResponseEntity<?> getImagesByAlbum(@PathVariable Long albumId) {
+    public ResponseEntity<?> getImagesByAlbum(@PathVariable Long albumId,
+                                              @RequestParam(required = false) Integer limit,
+                                              @RequestParam(required = false) String cursor,
+                                              @RequestParam(required = false) String sort) {
         try {
+            if (limit != null || cursor != null || sort != null) {
+                return ResponseEntity.ok(albumService.getImagesByAlbumPage(albumId, cursor, limit, sort));
+            }
             List<ImageDTO> images = albumService.getImagesByAlbumDTO(albumId);
             return ResponseEntity.ok(images);
         } catch (NoSuchElementException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Downloads all images of an album owned by the authenticated user as a ZIP archive,
+     * streamed while photos are read from storage.
+     *
+     * @param albumId Album identifier
+     * @param principal Authenticated user resolved from the JWT
+     * @return ZIP archive of the album's images, 404 if the album is not found or empty
+     *         or 403 if it belongs to another user
+     */
+    @GetMapping(value = "/{albumId}/download", produces = "application/zip")
+    public ResponseEntity<StreamingResponseBody> downloadAlbum(@PathVariable Long albumId,
+                                                               @AuthenticationPrincipal AuthenticatedUser principal) {
+        try {
+            StreamingResponseBody body = albumService.downloadAlbum(albumId, principal);
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            ContentDisposition.attachment().filename("album-" + albumId + ".zip").build().toString())
+                    .body(body);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+    }
+
+    /**
+     * Adds images to an album owned by the authenticated user.
+     * Images already in the album or not owned by the user are skipped.
+     *
+     * @param albumId Album identifier
+     * @param request Ids of the images to add
+     * @param principal Authenticated user resolved from the JWT
+     * @return Number of images added, 404 if the album is not found or 403 if it belongs to another user
+     */
+    @PostMapping("/{albumId}/images")
+    public ResponseEntity<?> addImagesToAlbum(@PathVariable Long albumId,
+                                              @Valid @RequestBody AlbumImagesRequestDTO request,
+                                              @AuthenticationPrincipal AuthenticatedUser principal) {
+        try {
+            int added = albumService.addImagesToAlbum(albumId, request.getImageIds(), principal);
+            return ResponseEntity.ok(Map.of("added", added));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Removes images from an album owned by the authenticated user.
+     *
+     * @param albumId Album identifier
+     * @param request Ids of the images to remove
+     * @param principal Authenticated user resolved from the JWT
+     * @return Number of images removed, 404 if the album is not found or 403 if it belongs to another user
+     */
+    @DeleteMapping("/{albumId}/images")
+    public ResponseEntity<?> removeImagesFromAlbum(@PathVariable Long albumId,
+                                                   @Valid @RequestBody AlbumImagesRequestDTO request,
+                                                   @AuthenticationPrincipal AuthenticatedUser principal) {
+        try {
+            int removed = albumService.removeImagesFromAlbum(albumId, request.getImageIds(), principal);
+            return ResponseEntity.ok(Map.of("removed", removed));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Moves an image of an album owned by the authenticated user after another image of the album,
+     * or to the front when no image is given. Only the moved image is written.
+     *
+     * @param albumId   Album identifier
+     * @param imageId   Image to move
+     * @param request   Image it should follow; without a body or afterImageId the image moves to the front
+     * @param principal Authenticated user resolved from the JWT
+     * @return The image's new position, as {"position": n}
+     */
+    @PutMapping("/{albumId}/images/{imageId}/position")
+    public ResponseEntity<?> moveAlbumImage(@PathVariable Long albumId,
+                                            @PathVariable Long imageId,
+                                            @RequestBody(required = false) MoveAlbumImageRequestDTO request,
+                                            @AuthenticationPrincipal AuthenticatedUser principal) {
+        try {
+            Long afterImageId = request == null ? null : request.getAfterImageId();
+            long position = albumOrderService.moveImage(albumId, imageId, afterImageId, principal);
+            return ResponseEntity.ok(Map.of("position", position));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         }
     }
 
@@ -127,14 +382,14 @@ public class AlbumController {
      * Verifies album ownership before deletion.
      *
      * @param albumId Album identifier
-     * @param token   Bearer JWT token used for user authentication
+     * @param principal Authenticated user resolved from the JWT
      * @return Success message or appropriate error response
      */
     @DeleteMapping("/{albumId}")
     public ResponseEntity<?> deleteAlbum(@PathVariable Long albumId,
-                                         @RequestHeader("Authorization") String token) {
+                                         @AuthenticationPrincipal AuthenticatedUser principal) {
         try {
-            albumService.deleteAlbum(albumId, token);
+            albumService.deleteAlbum(albumId, principal);
             return ResponseEntity.ok("Album successfully deleted.");
         } catch (SecurityException e) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access denied: " + e.getMessage());
@@ -148,12 +403,27 @@ public class AlbumController {
     /**
      * Retrieves all albums in the system.
      * Intended for administrative or analytical use only.
+     * Passing "limit" or "cursor" switches the response to a keyset page.
+     * The JSON comes from the shared response cache, written once per album change.
      *
-     * @return List of all albums as AlbumResponseDTOs
+     * @param limit  Optional page size
+     * @param cursor Optional cursor returned by the previous page
+     * @return List (or page) of all albums as AlbumResponseDTOs
      */
     @GetMapping("/all")
-    public ResponseEntity<List<AlbumResponseDTO>> getAllAlbums() {
-        List<AlbumResponseDTO> albums = albumService.getAllAlbumsDTO();
-        return ResponseEntity.ok(albums);
+    public ResponseEntity<?> getAllAlbums(@RequestParam(required = false) Integer limit,
+                                          @RequestParam(required = false) String cursor) {
+        try {
+            return json(albumService.getAllAlbumsJson(cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Writes an already serialized JSON body as is.
+     */
+    private static ResponseEntity<byte[]> json(byte[] body) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 }
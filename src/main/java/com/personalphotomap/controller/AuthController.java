@@ -1,12 +1,19 @@
 package com.personalphotomap.controller;
 
+import com.personalphotomap.dto.RefreshRequestDTO;
 import com.personalphotomap.dto.RegisterRequestDTO;
 import com.personalphotomap.dto.UserDTO;
+import com.personalphotomap.service.RefreshTokenService;
 import com.personalphotomap.service.UserService;
 import com.personalphotomap.dto.LoginRequestDTO;
+import com.personalphotomap.security.AuthenticatedUser;
+import com.personalphotomap.security.TooManyRequestsException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
 import java.util.List;
@@ -17,7 +24,8 @@ import java.util.Map;
  *
  * REST controller responsible for handling user authentication and management.
  * 
- * - Provides endpoints for login, registration, role upgrade, and administrative deletion.
+ * - Provides endpoints for login, token refresh, logout (of one session or all), registration, role upgrade,
+ *   and administrative deletion.
  * - All responses are returned as JSON, enabled by the @RestController annotation.
  * - No view rendering is used — suitable for RESTful APIs.
  */
@@ -27,11 +35,14 @@ import java.util.Map;
 public class AuthController {
 
     private final UserService userService;
+    private final RefreshTokenService refreshTokenService;
 
     public AuthController(
-            UserService userService) {
+            UserService userService,
+            RefreshTokenService refreshTokenService) {
 
         this.userService = userService;
+        this.refreshTokenService = refreshTokenService;
     }
 
     /**
@@ -39,28 +50,82 @@ public class AuthController {
      * Returns a JWT token and user info on success.
      *
      * @param loginRequest DTO with login credentials
-     * @return ResponseEntity with JWT and user info or 401 error
+     * @param request      HTTP request, used for the client address
+     * @return ResponseEntity with JWT and user info, 401 error, or 429 when throttled
      */
     @PostMapping("/login")
-    public ResponseEntity<?> login(@Valid @RequestBody LoginRequestDTO loginRequest) {
+    public ResponseEntity<?> login(@Valid @RequestBody LoginRequestDTO loginRequest, HttpServletRequest request) {
         try {
-            Map<String, String> response = userService.authenticateUser(loginRequest);
+            Map<String, String> response = userService.authenticateUser(loginRequest, request.getRemoteAddr());
             return ResponseEntity.ok(response);
+        } catch (TooManyRequestsException e) {
+            return tooManyRequests(e);
         } catch (SecurityException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
         }
     }
 
+    /**
+     * Exchanges a refresh token for a new access token and a new refresh token.
+     * The presented refresh token cannot be used again.
+     *
+     * @param refreshRequest DTO with the current refresh token
+     * @return ResponseEntity with the new tokens or 401 error
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@Valid @RequestBody RefreshRequestDTO refreshRequest) {
+        try {
+            return ResponseEntity.ok(refreshTokenService.rotate(refreshRequest.getRefreshToken()));
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Ends a session: revokes the refresh token and every token refreshed from it.
+     * The current access token stays valid until it expires.
+     *
+     * @param refreshRequest DTO with the current refresh token
+     * @return 204 No Content
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@Valid @RequestBody RefreshRequestDTO refreshRequest) {
+        refreshTokenService.revoke(refreshRequest.getRefreshToken());
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Ends every session of the authenticated user: revokes all their refresh tokens.
+     * Access tokens already issued stay valid until they expire.
+     *
+     * @param principal Authenticated user resolved from the JWT, null without a valid token
+     * @return 204 No Content, or 401 without a valid token
+     */
+    @PostMapping("/logout-all")
+    public ResponseEntity<?> logoutEverywhere(@AuthenticationPrincipal AuthenticatedUser principal) {
+        // /api/auth/** is public, so the token is checked here
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Missing or invalid token.");
+        }
+        refreshTokenService.revokeAllForUser(principal.getId());
+        return ResponseEntity.noContent().build();
+    }
+
     /**
      * Registers a new user in the system.
      * Validates uniqueness and sets default role.
      *
      * @param registerRequest DTO with registration info
-     * @return Success message or conflict if email is already in use
+     * @return Success message, conflict if email is already in use, or 429 when the server is busy
      */
     @PostMapping("/register")
     public ResponseEntity<?> register(@Valid @RequestBody RegisterRequestDTO registerRequest) {
-        String result = userService.registerUser(registerRequest);
+        String result;
+        try {
+            result = userService.registerUser(registerRequest);
+        } catch (TooManyRequestsException e) {
+            return tooManyRequests(e);
+        }
 
         if (result.equals("Email is already in use.")) {
             return ResponseEntity.status(HttpStatus.CONFLICT).body(result);
@@ -124,15 +189,19 @@ public class AuthController {
 
     /**
      * Upgrades the authenticated user to Premium.
-     * Extracts user info from JWT token and updates role.
+     * The response carries a new token with the updated premium claim.
      *
-     * @param token Authorization header containing Bearer token
-     * @return Confirmation of premium upgrade
+     * @param principal Authenticated user resolved from the JWT, null without a valid token
+     * @return Confirmation of premium upgrade, or 401 without a valid token
      */
     @PutMapping("/users/make-premium")
-    public ResponseEntity<?> makeCurrentUserPremium(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> makeCurrentUserPremium(@AuthenticationPrincipal AuthenticatedUser principal) {
+        // /api/auth/** is public, so the token is checked here
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Missing or invalid token.");
+        }
         try {
-            Map<String, Object> response = userService.upgradeCurrentUserToPremium(token);
+            Map<String, Object> response = userService.upgradeCurrentUserToPremium(principal);
             return ResponseEntity.ok(response);
         } catch (SecurityException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
@@ -141,4 +210,13 @@ public class AuthController {
         }
     }
 
+    /**
+     * 429 response telling the client when to retry (whole seconds, at least one).
+     */
+    private static ResponseEntity<?> tooManyRequests(TooManyRequestsException e) {
+        long seconds = Math.max(1, (e.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(seconds))
+                .body(e.getMessage());
+    }
 }
@@ -1,10 +1,19 @@
 package com.personalphotomap.controller;
 
+import com.personalphotomap.dto.ImageClusterDTO;
 import com.personalphotomap.dto.ImageDTO;
+import com.personalphotomap.dto.ImageLocationDTO;
+import com.personalphotomap.dto.ImagePreviewDTO;
+import com.personalphotomap.dto.MapSummaryDTO;
+import com.personalphotomap.security.AuthenticatedUser;
 import com.personalphotomap.service.ImageService;
+import com.personalphotomap.service.ImageStreamService;
 import org.springframework.http.*;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.*;
 
@@ -17,6 +26,8 @@ import java.util.*;
  * - All endpoints return data as JSON, enabled by the @RestController annotation.
  * - Uses JWT from Authorization header to validate and identify users.
  * - Supports operations by country, year, and image ID, including batch deletions.
+ * - Listings carry a strong ETag of the user's library version and answer a matching
+ *   If-None-Match with 304 before touching the database.
  */
 
 @RestController
@@ -24,9 +35,11 @@ import java.util.*;
 public class ImageController {
 
     private final ImageService imageService;
+    private final LibraryETags libraryETags;
 
-    public ImageController(ImageService imageService) {
+    public ImageController(ImageService imageService, LibraryETags libraryETags) {
         this.imageService = imageService;
+        this.libraryETags = libraryETags;
     }
 
     // ===============================
@@ -37,15 +50,18 @@ public class ImageController {
      * Handles image upload from the user.
      * Accepts multiple images, associates them with a country and year,
      * and uploads them asynchronously to S3 and the database.
+     * Optional latitude/longitude apply to every file; otherwise each file's EXIF location is used.
      */
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<?> uploadImages(
             @RequestParam("images") List<MultipartFile> files,
             @RequestParam("countryId") String countryId,
             @RequestParam("year") int year,
-            @RequestHeader("Authorization") String token) {
+            @RequestParam(required = false) Double latitude,
+            @RequestParam(required = false) Double longitude,
+            @AuthenticationPrincipal AuthenticatedUser principal) {
         try {
-            List<String> urls = imageService.handleUpload(files, countryId, year, token);
+            List<String> urls = imageService.handleUpload(files, countryId, year, latitude, longitude, principal);
             return ResponseEntity.ok(Map.of("message", "Images uploaded successfully.", "imageUrls", urls));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
@@ -54,6 +70,51 @@ public class ImageController {
         }
     }
 
+    // ===============================
+    // LOCATION METHODS
+    // ===============================
+
+    /**
+     * Sets or clears the capture coordinates of one of the user's images.
+     */
+    @PutMapping("/{id}/location")
+    public ResponseEntity<?> updateImageLocation(
+            @PathVariable Long id,
+            @RequestBody ImageLocationDTO location,
+            @AuthenticationPrincipal AuthenticatedUser principal) {
+        try {
+            imageService.updateImageLocation(id, location.getLatitude(), location.getLongitude(), principal);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to update location.");
+        }
+    }
+
+    /**
+     * Returns map clusters of the user's geotagged images inside the bounding box,
+     * sized for the zoom level. Each cluster has its photo count, centroid and a sample image id.
+     */
+    @GetMapping("/clusters")
+    public ResponseEntity<List<ImageClusterDTO>> getClusters(
+            @RequestParam double south,
+            @RequestParam double west,
+            @RequestParam double north,
+            @RequestParam double east,
+            @RequestParam int zoom,
+            @AuthenticationPrincipal AuthenticatedUser principal) {
+        try {
+            return ResponseEntity.ok(imageService.getClusters(south, west, north, east, zoom, principal));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
     // ===============================
     // DELETE METHODS
     // ===============================
@@ -64,9 +125,9 @@ public class ImageController {
     @DeleteMapping("/delete-all-images/{countryId}") // ✅
     public ResponseEntity<?> deleteAllImagesByCountry(
             @PathVariable String countryId,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal AuthenticatedUser principal) {
         try {
-            imageService.deleteAllImagesByCountry(countryId, token);
+            imageService.deleteAllImagesByCountry(countryId, principal);
             return ResponseEntity.ok("All images for country " + countryId + " have been successfully deleted.");
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
@@ -83,9 +144,9 @@ public class ImageController {
     public ResponseEntity<?> deleteImagesByCountryAndYear(
             @PathVariable String countryId,
             @PathVariable int year,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal AuthenticatedUser principal) {
         try {
-            imageService.deleteImagesByCountryAndYear(countryId, year, token);
+            imageService.deleteImagesByCountryAndYear(countryId, year, principal);
             return ResponseEntity.ok("Images from " + countryId + " in year " + year + " were successfully deleted.");
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
@@ -101,9 +162,9 @@ public class ImageController {
     @DeleteMapping("/delete/{id}") // ✅
     public ResponseEntity<?> deleteImageById(
             @PathVariable Long id,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal AuthenticatedUser principal) {
         try {
-            imageService.deleteImageById(id, token);
+            imageService.deleteImageById(id, principal);
             return ResponseEntity.ok("Image successfully deleted.");
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
@@ -121,9 +182,9 @@ public class ImageController {
     @DeleteMapping("/delete-multiple")
     public ResponseEntity<?> deleteMultipleImages(
             @RequestBody List<Long> imageIds,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal AuthenticatedUser principal) {
         try {
-            imageService.deleteMultipleImages(imageIds, token);
+            imageService.deleteMultipleImages(imageIds, principal);
             return ResponseEntity.ok("Images deleted successfully.");
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
@@ -140,14 +201,26 @@ public class ImageController {
 
     /**
      * Retrieves all images for a specific country from the authenticated user.
+     * Passing "limit" or "cursor" switches the response to a keyset page.
+     * Answers 304 when If-None-Match matches the library ETag.
      */
     @GetMapping("/{countryId}")
-    public ResponseEntity<List<ImageDTO>> getImagesByCountry(
+    public ResponseEntity<?> getImagesByCountry(
             @PathVariable String countryId,
-            @RequestHeader("Authorization") String token) {
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            WebRequest webRequest) {
         try {
-            List<ImageDTO> images = imageService.getImagesByCountry(countryId, token);
-            return ResponseEntity.ok(images);
+            String etag = libraryETags.etag(principal);
+            if (libraryETags.isNotModified(webRequest, etag)) {
+                return null;
+            }
+            if (isPaginated(limit, cursor)) {
+                return libraryETags.ok(imageService.getImagesByCountryPage(countryId, principal, cursor, limit), etag);
+            }
+            List<ImageDTO> images = imageService.getImagesByCountry(countryId, principal);
+            return libraryETags.ok(images, etag);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
         } catch (Exception e) {
@@ -159,9 +232,9 @@ public class ImageController {
      * Returns a list of countries where the user has uploaded at least one image.
      */
     @GetMapping("/countries-with-photos")
-    public ResponseEntity<List<String>> getCountriesWithPhotos(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<List<String>> getCountriesWithPhotos(@AuthenticationPrincipal AuthenticatedUser principal) {
         try {
-            List<String> countries = imageService.getCountriesWithPhotos(token);
+            List<String> countries = imageService.getCountriesWithPhotos(principal);
             return ResponseEntity.ok(countries);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
@@ -174,9 +247,9 @@ public class ImageController {
      * Returns a list of available years the user has uploaded photos in.
      */
     @GetMapping("/available-years")
-    public ResponseEntity<List<Integer>> getAvailableYears(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<List<Integer>> getAvailableYears(@AuthenticationPrincipal AuthenticatedUser principal) {
         try {
-            List<Integer> years = imageService.getAvailableYears(token);
+            List<Integer> years = imageService.getAvailableYears(principal);
             return ResponseEntity.ok(years);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
@@ -188,14 +261,60 @@ public class ImageController {
     /**
      * Retrieves all images from the authenticated user.
      * Optional year filtering can be applied.
+     * Passing "limit" or "cursor" switches the response to a keyset page.
+     * Answers 304 when If-None-Match matches the library ETag.
      */
     @GetMapping("/allPictures")
-    public ResponseEntity<List<ImageDTO>> getAllImages(
-            @RequestHeader("Authorization") String token,
-            @RequestParam(required = false) Integer year) {
+    public ResponseEntity<?> getAllImages(
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            WebRequest webRequest) {
+        try {
+            String etag = libraryETags.etag(principal);
+            if (libraryETags.isNotModified(webRequest, etag)) {
+                return null;
+            }
+            if (isPaginated(limit, cursor)) {
+                return libraryETags.ok(imageService.getAllImagesPage(principal, year, cursor, limit), etag);
+            }
+            List<ImageDTO> images = imageService.getAllImages(principal, year);
+            return libraryETags.ok(images, etag);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    /**
+     * Streams all images from the authenticated user, newest first, with optional year filtering.
+     * Rows are written as they are read, so memory use does not grow with the library.
+     * Responds with NDJSON (one image per line) when the client accepts application/x-ndjson,
+     * otherwise with a JSON array.
+     * Answers 304 when If-None-Match matches the library ETag.
+     */
+    @GetMapping(value = "/allPictures/stream",
+            produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public ResponseEntity<StreamingResponseBody> streamAllImages(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestParam(required = false) Integer year,
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            WebRequest webRequest) {
         try {
-            List<ImageDTO> images = imageService.getAllImages(token, year);
-            return ResponseEntity.ok(images);
+            String etag = libraryETags.etag(principal);
+            if (libraryETags.isNotModified(webRequest, etag)) {
+                return null;
+            }
+            boolean ndjson = accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+            StreamingResponseBody body = imageService.streamAllImages(principal, year,
+                    ndjson ? ImageStreamService.Format.NDJSON : ImageStreamService.Format.JSON_ARRAY);
+            return ResponseEntity.ok()
+                    .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .eTag(etag)
+                    .body(body);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
         } catch (Exception e) {
@@ -203,6 +322,31 @@ public class ImageController {
         }
     }
 
+    /**
+     * Downloads the user's images for a country as a ZIP archive, optionally limited to one year.
+     * The archive is streamed while photos are read from storage.
+     */
+    @GetMapping(value = "/{countryId}/download", produces = "application/zip")
+    public ResponseEntity<StreamingResponseBody> downloadImagesByCountry(
+            @PathVariable String countryId,
+            @RequestParam(required = false) Integer year,
+            @AuthenticationPrincipal AuthenticatedUser principal) {
+        try {
+            StreamingResponseBody body = imageService.downloadImagesByCountry(countryId, year, principal);
+            String fileName = countryId + (year != null ? "-" + year : "") + ".zip";
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            ContentDisposition.attachment().filename(fileName).build().toString())
+                    .body(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
     /**
      * Returns the list of years for which the user has uploaded images for a
      * specific country.
@@ -210,9 +354,9 @@ public class ImageController {
     @GetMapping("/{countryId}/available-years")
     public ResponseEntity<List<Integer>> getYearsByCountry(
             @PathVariable String countryId,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal AuthenticatedUser principal) {
         try {
-            List<Integer> years = imageService.getYearsByCountry(countryId, token);
+            List<Integer> years = imageService.getYearsByCountry(countryId, principal);
             return ResponseEntity.ok(years);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
@@ -224,15 +368,28 @@ public class ImageController {
     /**
      * Returns all images from a specific country and year for the authenticated
      * user.
+     * Passing "limit" or "cursor" switches the response to a keyset page.
+     * Answers 304 when If-None-Match matches the library ETag.
      */
     @GetMapping("/{countryId}/{year}")
-    public ResponseEntity<List<ImageDTO>> getImagesByCountryAndYear(
+    public ResponseEntity<?> getImagesByCountryAndYear(
             @PathVariable String countryId,
             @PathVariable int year,
-            @RequestHeader("Authorization") String token) {
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            WebRequest webRequest) {
         try {
-            List<ImageDTO> images = imageService.getImagesByCountryAndYear(countryId, year, token);
-            return ResponseEntity.ok(images);
+            String etag = libraryETags.etag(principal);
+            if (libraryETags.isNotModified(webRequest, etag)) {
+                return null;
+            }
+            if (isPaginated(limit, cursor)) {
+                return libraryETags.ok(
+                        imageService.getImagesByCountryAndYearPage(countryId, year, principal, cursor, limit), etag);
+            }
+            List<ImageDTO> images = imageService.getImagesByCountryAndYear(countryId, year, principal);
+            return libraryETags.ok(images, etag);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
         } catch (Exception e) {
@@ -245,9 +402,9 @@ public class ImageController {
      */
     @GetMapping("/count")
     public ResponseEntity<Map<String, Object>> countUserPhotosAndCountries(
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal AuthenticatedUser principal) {
         try {
-            Map<String, Object> response = imageService.countUserPhotosAndCountries(token);
+            Map<String, Object> response = imageService.countUserPhotosAndCountries(principal);
             return ResponseEntity.ok(response);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
@@ -256,4 +413,42 @@ public class ImageController {
         }
     }
 
+    /**
+     * Returns everything the map needs on first paint: totals, years and
+     * per-country, per-year photo counts.
+     */
+    @GetMapping("/map-summary")
+    public ResponseEntity<MapSummaryDTO> getMapSummary(@AuthenticationPrincipal AuthenticatedUser principal) {
+        try {
+            return ResponseEntity.ok(imageService.getMapSummary(principal));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    /**
+     * Returns the cover thumbnail and sprite sheet of every country and album of the user,
+     * with each image's tile offset, so a whole grid renders from this one response.
+     * Previews are generated in the background and may lag a recent upload by a few seconds.
+     */
+    @GetMapping("/previews")
+    public ResponseEntity<List<ImagePreviewDTO>> getPreviews(@AuthenticationPrincipal AuthenticatedUser principal) {
+        try {
+            return ResponseEntity.ok(imageService.getPreviews(principal));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    /**
+     * Pagination is opt-in: clients that send neither parameter keep receiving the full list.
+     */
+    private boolean isPaginated(Integer limit, String cursor) {
+        return limit != null || cursor != null;
+    }
+
 }
@@ -0,0 +1,50 @@
+package com.personalphotomap.controller;
+
+import com.personalphotomap.security.AuthenticatedUser;
+import com.personalphotomap.service.LibraryVersionService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Conditional GET support for per-user listing endpoints.
+ *
+ * Listing handlers call {@link #etag} first and return null when {@link #isNotModified} is true,
+ * so a matching If-None-Match is answered with 304 before any service or repository call.
+ */
+@Component
+class LibraryETags {
+
+    private final LibraryVersionService libraryVersionService;
+
+    LibraryETags(LibraryVersionService libraryVersionService) {
+        this.libraryVersionService = libraryVersionService;
+    }
+
+    /**
+     * ETag of the caller's library, or null when the request has no authenticated principal.
+     */
+    String etag(AuthenticatedUser principal) {
+        return principal != null ? libraryVersionService.etag(principal.getId()) : null;
+    }
+
+    /**
+     * Checks If-None-Match and, on a match, sets the 304 status and the ETag on the response.
+     */
+    boolean isNotModified(WebRequest webRequest, String etag) {
+        return etag != null && webRequest.checkNotModified(etag);
+    }
+
+    /**
+     * 200 response tagged with the library ETag. Marked private so shared caches do not store
+     * one user's listing, and no-cache so browsers always revalidate.
+     */
+    <T> ResponseEntity<T> ok(T body, String etag) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate());
+        if (etag != null) {
+            builder.eTag(etag);
+        }
+        return builder.body(body);
+    }
+}
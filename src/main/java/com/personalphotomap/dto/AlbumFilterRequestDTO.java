@@ -0,0 +1,86 @@
+package com.personalphotomap.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import java.time.LocalDateTime;
+
+/**
+ * AlbumFilterRequestDTO
+ *
+ * Data Transfer Object used to create an album from a filter over the user's images,
+ * instead of an explicit list of image IDs.
+ *
+ * Contains:
+ * - Album name (required)
+ * - Country ID (required): the album's country, which also selects the images
+ * - Year (optional): only images categorized under this year
+ * - Upload date range (optional): "from" inclusive, "to" exclusive
+ * - Source album ID (optional): only images already in this album of the user
+ */
+
+public class AlbumFilterRequestDTO {
+
+    @NotBlank(message = "Album name is required")
+    private String albumName;
+
+    @NotBlank(message = "Country ID is required")
+    private String countryId;
+
+    private Integer year;
+
+    private LocalDateTime from;
+
+    private LocalDateTime to;
+
+    private Long sourceAlbumId;
+
+    public AlbumFilterRequestDTO() {
+    }
+
+    public String getAlbumName() {
+        return albumName;
+    }
+
+    public String getCountryId() {
+        return countryId;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public Long getSourceAlbumId() {
+        return sourceAlbumId;
+    }
+
+    public void setAlbumName(String albumName) {
+        this.albumName = albumName;
+    }
+
+    public void setCountryId(String countryId) {
+        this.countryId = countryId;
+    }
+
+    public void setYear(Integer year) {
+        this.year = year;
+    }
+
+    public void setFrom(LocalDateTime from) {
+        this.from = from;
+    }
+
+    public void setTo(LocalDateTime to) {
+        this.to = to;
+    }
+
+    public void setSourceAlbumId(Long sourceAlbumId) {
+        this.sourceAlbumId = sourceAlbumId;
+    }
+}
@@ -0,0 +1,31 @@
+package com.personalphotomap.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+/**
+ * DTO carrying the image ids to add to or remove from an album.
+ */
+
+public class AlbumImagesRequestDTO {
+
+    @NotEmpty(message = "Image ID list cannot be empty")
+    @Size(max = 10000, message = "At most 10000 images can be changed at once")
+    private List<Long> imageIds;
+
+    public AlbumImagesRequestDTO() {
+    }
+
+    public AlbumImagesRequestDTO(List<Long> imageIds) {
+        this.imageIds = imageIds;
+    }
+
+    public List<Long> getImageIds() {
+        return imageIds;
+    }
+
+    public void setImageIds(List<Long> imageIds) {
+        this.imageIds = imageIds;
+    }
+}
@@ -0,0 +1,49 @@
+package com.personalphotomap.dto;
+
+import java.util.List;
+
+/**
+ * AlbumPageDTO
+ *
+ * Data Transfer Object returned by the paginated public album listings.
+ *
+ * Contains:
+ * - The albums of the current page, in album id order
+ * - An opaque cursor to request the next page (null when there are no more albums)
+ *
+ * Clients pass the cursor back unchanged in the "cursor" request parameter.
+ */
+
+public class AlbumPageDTO {
+
+    private List<AlbumResponseDTO> items;
+    private String nextCursor;
+
+    public AlbumPageDTO() {
+    }
+
+    public AlbumPageDTO(List<AlbumResponseDTO> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<AlbumResponseDTO> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return nextCursor != null;
+    }
+
+    public void setItems(List<AlbumResponseDTO> items) {
+        this.items = items;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
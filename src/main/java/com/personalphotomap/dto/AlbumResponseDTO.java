@@ -35,6 +35,13 @@ public class AlbumResponseDTO {
         this.numberOfImages = numberOfImages;
     }
 
+    /**
+     * Constructor used by the album listing queries, where the image count is a COUNT aggregate.
+     */
+    public AlbumResponseDTO(Long id, String albumName, String countryId, Long userId, Long numberOfImages) {
+        this(id, albumName, countryId, userId, numberOfImages.intValue());
+    }
+
     public Long getId() {
         return id;
     }
@@ -0,0 +1,47 @@
+package com.personalphotomap.dto;
+
+import java.util.Map;
+
+/**
+ * CountrySummaryDTO
+ *
+ * Photo counts of one country for the map summary.
+ * "photosByYear" maps each year to its photo count, oldest year first.
+ */
+
+public class CountrySummaryDTO {
+
+    private String countryId;
+    private long photoCount;
+    private Map<Integer, Long> photosByYear;
+
+    public CountrySummaryDTO(String countryId, long photoCount, Map<Integer, Long> photosByYear) {
+        this.countryId = countryId;
+        this.photoCount = photoCount;
+        this.photosByYear = photosByYear;
+    }
+
+    public String getCountryId() {
+        return countryId;
+    }
+
+    public long getPhotoCount() {
+        return photoCount;
+    }
+
+    public Map<Integer, Long> getPhotosByYear() {
+        return photosByYear;
+    }
+
+    public void setCountryId(String countryId) {
+        this.countryId = countryId;
+    }
+
+    public void setPhotoCount(long photoCount) {
+        this.photoCount = photoCount;
+    }
+
+    public void setPhotosByYear(Map<Integer, Long> photosByYear) {
+        this.photosByYear = photosByYear;
+    }
+}
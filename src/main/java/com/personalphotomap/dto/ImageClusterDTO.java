@@ -0,0 +1,59 @@
+package com.personalphotomap.dto;
+
+/**
+ * ImageClusterDTO
+ *
+ * One marker on the map: a group of the user's photos that fall in the same geohash cell.
+ *
+ * Contains:
+ * - Number of photos in the cluster
+ * - Centroid (average latitude and longitude) of those photos
+ * - ID of one photo in the cluster, for a thumbnail
+ */
+
+public class ImageClusterDTO {
+
+    private long count;
+    private double latitude;
+    private double longitude;
+    private Long sampleImageId;
+
+    public ImageClusterDTO(long count, double latitude, double longitude, Long sampleImageId) {
+        this.count = count;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.sampleImageId = sampleImageId;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public Long getSampleImageId() {
+        return sampleImageId;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public void setLatitude(double latitude) {
+        this.latitude = latitude;
+    }
+
+    public void setLongitude(double longitude) {
+        this.longitude = longitude;
+    }
+
+    public void setSampleImageId(Long sampleImageId) {
+        this.sampleImageId = sampleImageId;
+    }
+}
@@ -1,5 +1,7 @@
 package com.personalphotomap.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.time.LocalDateTime;
 
 /**
@@ -13,6 +15,7 @@ import java.time.LocalDateTime;
  * - File name and file path
  * - Associated year
  * - Upload date and time
+ * - Position within the album, in album listings only
  *
  * Used in responses to ensure separation between entity and exposed data.
  */
@@ -38,6 +41,10 @@ public class ImageDTO {
     // Date and time when the image was uploaded
     private LocalDateTime uploadDate;
 
+    // Sort key of the image within an album; omitted outside album listings
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long position;
+
     // Default constructor required by frameworks
     public ImageDTO() {
     }
@@ -52,6 +59,13 @@ public class ImageDTO {
         this.uploadDate = uploadDate;
     }
 
+    // Constructor used by the album listing queries, which also read the image's position in the album
+    public ImageDTO(Long id, String countryId, String fileName, String filePath, int year, LocalDateTime uploadDate,
+                    Long position) {
+        this(id, countryId, fileName, filePath, year, uploadDate);
+        this.position = position;
+    }
+
     // Getters — used to access fields when serializing the object to JSON
     public Long getId() {
         return id;
@@ -77,6 +91,10 @@ public class ImageDTO {
         return uploadDate;
     }
 
+    public Long getPosition() {
+        return position;
+    }
+
     // Setters — used when populating DTOs from the backend
     public void setId(Long id) {
         this.id = id;
@@ -101,4 +119,8 @@ public class ImageDTO {
     public void setUploadDate(LocalDateTime uploadDate) {
         this.uploadDate = uploadDate;
     }
+
+    public void setPosition(Long position) {
+        this.position = position;
+    }
 }
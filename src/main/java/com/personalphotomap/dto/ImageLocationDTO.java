@@ -0,0 +1,38 @@
+package com.personalphotomap.dto;
+
+/**
+ * ImageLocationDTO
+ *
+ * Request payload used to set or clear the capture coordinates of an image.
+ * Both values are decimal degrees; send both as null to clear the location.
+ */
+
+public class ImageLocationDTO {
+
+    private Double latitude;
+    private Double longitude;
+
+    public ImageLocationDTO() {
+    }
+
+    public ImageLocationDTO(Double latitude, Double longitude) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+}
@@ -0,0 +1,49 @@
+package com.personalphotomap.dto;
+
+import java.util.List;
+
+/**
+ * ImagePageDTO
+ *
+ * Data Transfer Object returned by the paginated image listing endpoints.
+ *
+ * Contains:
+ * - The images of the current page, newest first
+ * - An opaque cursor to request the next page (null when there are no more images)
+ *
+ * Clients pass the cursor back unchanged in the "cursor" request parameter.
+ */
+
+public class ImagePageDTO {
+
+    private List<ImageDTO> items;
+    private String nextCursor;
+
+    public ImagePageDTO() {
+    }
+
+    public ImagePageDTO(List<ImageDTO> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<ImageDTO> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return nextCursor != null;
+    }
+
+    public void setItems(List<ImageDTO> items) {
+        this.items = items;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
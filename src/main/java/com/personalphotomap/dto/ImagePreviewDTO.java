@@ -0,0 +1,87 @@
+package com.personalphotomap.dto;
+
+import java.util.Map;
+
+/**
+ * ImagePreviewDTO
+ *
+ * Preview of one country or album, enough to render its tile in a grid without loading any photo.
+ *
+ * Contains:
+ * - Scope (COUNTRY or ALBUM) and key (country code or album id)
+ * - Cover thumbnail URL
+ * - Sprite sheet URL, tile size and the pixel offset (x, y) of each image's tile in the sheet
+ */
+
+public class ImagePreviewDTO {
+
+    private String scope;
+    private String key;
+    private String coverUrl;
+    private String spriteUrl;
+    private int tileSize;
+
+    // Image id -> [x, y] of the top-left corner of its tile in the sprite sheet, in tile order
+    private Map<Long, int[]> offsets;
+
+    public ImagePreviewDTO() {
+    }
+
+    public ImagePreviewDTO(String scope, String key, String coverUrl, String spriteUrl, int tileSize,
+            Map<Long, int[]> offsets) {
+        this.scope = scope;
+        this.key = key;
+        this.coverUrl = coverUrl;
+        this.spriteUrl = spriteUrl;
+        this.tileSize = tileSize;
+        this.offsets = offsets;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getCoverUrl() {
+        return coverUrl;
+    }
+
+    public String getSpriteUrl() {
+        return spriteUrl;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public Map<Long, int[]> getOffsets() {
+        return offsets;
+    }
+
+    public void setScope(String scope) {
+        this.scope = scope;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public void setCoverUrl(String coverUrl) {
+        this.coverUrl = coverUrl;
+    }
+
+    public void setSpriteUrl(String spriteUrl) {
+        this.spriteUrl = spriteUrl;
+    }
+
+    public void setTileSize(int tileSize) {
+        this.tileSize = tileSize;
+    }
+
+    public void setOffsets(Map<Long, int[]> offsets) {
+        this.offsets = offsets;
+    }
+}
@@ -0,0 +1,62 @@
+package com.personalphotomap.dto;
+
+import java.util.List;
+
+/**
+ * MapSummaryDTO
+ *
+ * Everything the map needs on first paint, in one response:
+ * - Total number of photos and countries
+ * - Distinct years, most recent first
+ * - Per-country photo counts broken down by year
+ *
+ * Replaces separate calls to count, countries-with-photos, available-years
+ * and the per-country available-years endpoint.
+ */
+
+public class MapSummaryDTO {
+
+    private long photoCount;
+    private long countryCount;
+    private List<Integer> years;
+    private List<CountrySummaryDTO> countries;
+
+    public MapSummaryDTO(long photoCount, long countryCount, List<Integer> years, List<CountrySummaryDTO> countries) {
+        this.photoCount = photoCount;
+        this.countryCount = countryCount;
+        this.years = years;
+        this.countries = countries;
+    }
+
+    public long getPhotoCount() {
+        return photoCount;
+    }
+
+    public long getCountryCount() {
+        return countryCount;
+    }
+
+    public List<Integer> getYears() {
+        return years;
+    }
+
+    public List<CountrySummaryDTO> getCountries() {
+        return countries;
+    }
+
+    public void setPhotoCount(long photoCount) {
+        this.photoCount = photoCount;
+    }
+
+    public void setCountryCount(long countryCount) {
+        this.countryCount = countryCount;
+    }
+
+    public void setYears(List<Integer> years) {
+        this.years = years;
+    }
+
+    public void setCountries(List<CountrySummaryDTO> countries) {
+        this.countries = countries;
+    }
+}
@@ -0,0 +1,26 @@
+package com.personalphotomap.dto;
+
+/**
+ * DTO carrying where to move an image within an album:
+ * after another image of the album, or to the front when afterImageId is null.
+ */
+
+public class MoveAlbumImageRequestDTO {
+
+    private Long afterImageId;
+
+    public MoveAlbumImageRequestDTO() {
+    }
+
+    public MoveAlbumImageRequestDTO(Long afterImageId) {
+        this.afterImageId = afterImageId;
+    }
+
+    public Long getAfterImageId() {
+        return afterImageId;
+    }
+
+    public void setAfterImageId(Long afterImageId) {
+        this.afterImageId = afterImageId;
+    }
+}
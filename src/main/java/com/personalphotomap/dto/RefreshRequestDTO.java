@@ -0,0 +1,28 @@
+package com.personalphotomap.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * DTO carrying a refresh token, for token refresh and logout.
+ */
+
+public class RefreshRequestDTO {
+
+    @NotBlank(message = "Refresh token cannot be empty")
+    private String refreshToken;
+
+    public RefreshRequestDTO() {
+    }
+
+    public RefreshRequestDTO(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+}
@@ -1,5 +1,7 @@
 package com.personalphotomap.dto;
 
+import java.time.LocalDateTime;
+
 /**
  * UserSummaryDTO
  *
@@ -11,6 +13,8 @@ package com.personalphotomap.dto;
  * - Email address
  * - Country
  * - Number of uploaded photos
+ * - Storage used by those photos, in bytes
+ * - Time of the latest upload (null if the user has none)
  *
  * Intended for internal dashboards or admin endpoints only.
  * Should not be exposed in public-facing APIs.
@@ -23,13 +27,21 @@ public class UserSummaryDTO {
     private String email;
     private String country;
     private int photoCount;
+    private long storageBytes;
+    private LocalDateTime lastUpload;
 
-    public UserSummaryDTO(Long id, String fullname, String email, String country, int photoCount) {
+    /**
+     * Used by the JPQL constructor expression in UserRepository, which aggregates each user's images.
+     */
+    public UserSummaryDTO(Long id, String fullname, String email, String country, Long photoCount,
+            Long storageBytes, LocalDateTime lastUpload) {
         this.id = id;
         this.fullname = fullname;
         this.email = email;
         this.country = country;
-        this.photoCount = photoCount;
+        this.photoCount = photoCount.intValue();
+        this.storageBytes = storageBytes;
+        this.lastUpload = lastUpload;
     }
 
     public Long getId() {
@@ -52,6 +64,14 @@ public class UserSummaryDTO {
         return photoCount;
     }
 
+    public long getStorageBytes() {
+        return storageBytes;
+    }
+
+    public LocalDateTime getLastUpload() {
+        return lastUpload;
+    }
+
     public void setId(Long id) {
         this.id = id;
     }
@@ -72,4 +92,12 @@ public class UserSummaryDTO {
         this.photoCount = photoCount;
     }
 
+    public void setStorageBytes(long storageBytes) {
+        this.storageBytes = storageBytes;
+    }
+
+    public void setLastUpload(LocalDateTime lastUpload) {
+        this.lastUpload = lastUpload;
+    }
+
 }
@@ -0,0 +1,77 @@
+package com.personalphotomap.dto;
+
+import java.util.List;
+
+/**
+ * UserSummaryPageDTO
+ *
+ * Data Transfer Object returned by the paginated admin user listing.
+ *
+ * Contains:
+ * - The user summaries of the current page, in the requested order
+ * - The page number (zero-based) and page size
+ * - The total number of users and pages
+ *
+ * Unlike the image listings, this page is addressed by number: it can be sorted
+ * by aggregates such as the photo count, which have no stable keyset.
+ */
+
+public class UserSummaryPageDTO {
+
+    private List<UserSummaryDTO> items;
+    private int page;
+    private int size;
+    private long totalElements;
+    private int totalPages;
+
+    public UserSummaryPageDTO() {
+    }
+
+    public UserSummaryPageDTO(List<UserSummaryDTO> items, int page, int size, long totalElements, int totalPages) {
+        this.items = items;
+        this.page = page;
+        this.size = size;
+        this.totalElements = totalElements;
+        this.totalPages = totalPages;
+    }
+
+    public List<UserSummaryDTO> getItems() {
+        return items;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getTotalElements() {
+        return totalElements;
+    }
+
+    public int getTotalPages() {
+        return totalPages;
+    }
+
+    public void setItems(List<UserSummaryDTO> items) {
+        this.items = items;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public void setTotalElements(long totalElements) {
+        this.totalElements = totalElements;
+    }
+
+    public void setTotalPages(int totalPages) {
+        this.totalPages = totalPages;
+    }
+}
@@ -2,6 +2,8 @@ package com.personalphotomap.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.List;
 
@@ -9,12 +11,18 @@ import java.util.List;
  * Entity representing a photo album.
  * Each album belongs to one user, is linked to a country,
  * and contains a list of images (many-to-many relationship).
+ * Albums are kept in the Hibernate second-level cache (region "albums");
+ * their image list is not, as membership changes far more often than the album itself.
  */
 
 @Entity
 @Table(name = "albums")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Album.CACHE_REGION)
 public class Album {
 
+    public static final String CACHE_REGION = "albums";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
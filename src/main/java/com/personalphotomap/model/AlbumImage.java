@@ -0,0 +1,48 @@
+package com.personalphotomap.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * Read-only view of one row of the album_images join table, exposing the image's position in the album.
+ * Membership itself is written through Album.images and the bulk statements in AlbumRepository;
+ * this entity only lets queries page through an album in display order.
+ */
+
+@Entity
+@Immutable
+@Table(name = "album_images")
+@IdClass(AlbumImageId.class)
+public class AlbumImage {
+
+    @Id
+    @Column(name = "album_id")
+    private Long albumId;
+
+    @Id
+    @Column(name = "image_id")
+    private Long imageId;
+
+    /**
+     * Sparse sort key of the image within the album; lower comes first.
+     */
+    @Column(nullable = false)
+    private long position;
+
+    // Constructors
+    public AlbumImage() {
+    }
+
+    // Getters
+    public Long getAlbumId() {
+        return albumId;
+    }
+
+    public Long getImageId() {
+        return imageId;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+}
@@ -0,0 +1,38 @@
+package com.personalphotomap.model;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Composite primary key of {@link AlbumImage}: one row per album and image.
+ */
+public class AlbumImageId implements Serializable {
+
+    private Long albumId;
+    private Long imageId;
+
+    public AlbumImageId() {
+    }
+
+    public AlbumImageId(Long albumId, Long imageId) {
+        this.albumId = albumId;
+        this.imageId = imageId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AlbumImageId other)) {
+            return false;
+        }
+        return Objects.equals(albumId, other.albumId)
+                && Objects.equals(imageId, other.imageId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(albumId, imageId);
+    }
+}
@@ -3,6 +3,8 @@ package com.personalphotomap.model;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -10,12 +12,18 @@ import java.util.List;
 /**
  * Entity representing an application user.
  * Each user has credentials, optional premium status, and owns multiple images.
+ * Users are kept in the Hibernate second-level cache (region "users"), since every
+ * authenticated request looks its user up.
  */
 
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = AppUser.CACHE_REGION)
 public class AppUser {
 
+    public static final String CACHE_REGION = "users";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
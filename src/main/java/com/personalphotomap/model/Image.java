@@ -8,15 +8,12 @@ import com.fasterxml.jackson.annotation.JsonBackReference;
 /**
  * Entity representing an uploaded image.
  * Each image is associated with one user and contains metadata such as
- * file path, country, upload date, and year.
+ * file path, country, upload date, year and, when known, capture coordinates.
+ * Table and indexes are managed by the Flyway migrations in db/migration.
  */
 
 @Entity
-@Table(name = "images", indexes = {
-        @Index(name = "idx_images_user", columnList = "user_id"),
-        @Index(name = "idx_images_country", columnList = "countryId"),
-        @Index(name = "idx_images_year", columnList = "year")
-})
+@Table(name = "images")
 public class Image {
 
     @Id
@@ -47,15 +44,37 @@ public class Image {
      * Timestamp of when the image was uploaded.
      * Automatically set before persisting.
      */
-    @Column(name = "upload_date", updatable = false)
+    @Column(name = "upload_date", nullable = false, updatable = false)
     private LocalDateTime uploadDate;
 
+    /**
+     * Capture coordinates in decimal degrees, read from EXIF or given by the client.
+     * Null when the location is unknown.
+     */
+    private Double latitude;
+
+    private Double longitude;
+
+    /**
+     * Geohash of the coordinates, used to cluster images on the map.
+     */
+    @Column(length = 12)
+    private String geohash;
+
+    /**
+     * Size of the stored file in bytes, recorded at upload.
+     * Zero for images uploaded before sizes were recorded.
+     */
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+
     /**
      * Many-to-One relationship: each image belongs to one user.
      * 'user_id' is the foreign key in the 'images' table.
+     * Loaded lazily: reads go through ImageDTO projections and ownership checks only need the id.
      * @JsonBackReference prevents infinite JSON recursion during serialization.
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     @JsonBackReference
     private AppUser user;
@@ -122,6 +141,38 @@ public class Image {
         this.uploadDate = uploadDate;
     }
 
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public String getGeohash() {
+        return geohash;
+    }
+
+    public void setGeohash(String geohash) {
+        this.geohash = geohash;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void setSizeBytes(long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
     public AppUser getUser() {
         return user;
     }
@@ -0,0 +1,153 @@
+package com.personalphotomap.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity describing the generated preview of one country or album of a user:
+ * a cover thumbnail and a sprite sheet holding the first thumbnails of its images.
+ * Rows are maintained by ImagePreviewService in the background.
+ */
+
+@Entity
+@Table(name = "image_previews")
+public class ImagePreview {
+
+    public enum Scope {
+        COUNTRY,
+        ALBUM
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Scope scope;
+
+    /**
+     * Country code for COUNTRY previews, album id for ALBUM previews.
+     */
+    @Column(name = "scope_key", nullable = false)
+    private String scopeKey;
+
+    @Column(name = "cover_url", columnDefinition = "TEXT")
+    private String coverUrl;
+
+    @Column(name = "sprite_url", columnDefinition = "TEXT")
+    private String spriteUrl;
+
+    /**
+     * Width and height in pixels of every tile of the sprite sheet.
+     */
+    @Column(name = "tile_size", nullable = false)
+    private int tileSize;
+
+    @Column(name = "sprite_columns", nullable = false)
+    private int spriteColumns;
+
+    /**
+     * Comma-separated ids of the images drawn in the sprite, in tile order.
+     */
+    @Column(name = "image_ids", nullable = false, columnDefinition = "TEXT")
+    private String imageIds;
+
+    /**
+     * Comma-separated ids of the images the preview was built from.
+     * The preview is rebuilt only when this list changes.
+     */
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String membership;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public ImagePreview() {
+    }
+
+    public ImagePreview(Long userId, Scope scope, String scopeKey) {
+        this.userId = userId;
+        this.scope = scope;
+        this.scopeKey = scopeKey;
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    public String getScopeKey() {
+        return scopeKey;
+    }
+
+    public String getCoverUrl() {
+        return coverUrl;
+    }
+
+    public String getSpriteUrl() {
+        return spriteUrl;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public int getSpriteColumns() {
+        return spriteColumns;
+    }
+
+    public String getImageIds() {
+        return imageIds;
+    }
+
+    public String getMembership() {
+        return membership;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    // Setters
+    public void setCoverUrl(String coverUrl) {
+        this.coverUrl = coverUrl;
+    }
+
+    public void setSpriteUrl(String spriteUrl) {
+        this.spriteUrl = spriteUrl;
+    }
+
+    public void setTileSize(int tileSize) {
+        this.tileSize = tileSize;
+    }
+
+    public void setSpriteColumns(int spriteColumns) {
+        this.spriteColumns = spriteColumns;
+    }
+
+    public void setImageIds(String imageIds) {
+        this.imageIds = imageIds;
+    }
+
+    public void setMembership(String membership) {
+        this.membership = membership;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,60 @@
+package com.personalphotomap.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Entity representing the number of photos a user has for one country and year.
+ * Rows are maintained by ImageStatsService in the same transaction as image inserts and deletes,
+ * so aggregate endpoints never have to count the images table.
+ */
+
+@Entity
+@Table(name = "image_stats")
+@IdClass(ImageStatId.class)
+public class ImageStat {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "country_id")
+    private String countryId;
+
+    @Id
+    private int year;
+
+    /**
+     * Number of images the user has for this country and year (always positive).
+     */
+    @Column(name = "photo_count", nullable = false)
+    private long photoCount;
+
+    // Constructors
+    public ImageStat() {
+    }
+
+    public ImageStat(Long userId, String countryId, int year, long photoCount) {
+        this.userId = userId;
+        this.countryId = countryId;
+        this.year = year;
+        this.photoCount = photoCount;
+    }
+
+    // Getters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getCountryId() {
+        return countryId;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public long getPhotoCount() {
+        return photoCount;
+    }
+}
@@ -0,0 +1,41 @@
+package com.personalphotomap.model;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Composite primary key of {@link ImageStat}: one row per user, country and year.
+ */
+public class ImageStatId implements Serializable {
+
+    private Long userId;
+    private String countryId;
+    private int year;
+
+    public ImageStatId() {
+    }
+
+    public ImageStatId(Long userId, String countryId, int year) {
+        this.userId = userId;
+        this.countryId = countryId;
+        this.year = year;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ImageStatId other)) {
+            return false;
+        }
+        return year == other.year
+                && Objects.equals(userId, other.userId)
+                && Objects.equals(countryId, other.countryId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId, countryId, year);
+    }
+}
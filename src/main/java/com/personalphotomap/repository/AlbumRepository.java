@@ -1,12 +1,19 @@
 package com.personalphotomap.repository;
 
+import com.personalphotomap.dto.AlbumResponseDTO;
 import com.personalphotomap.model.Album;
 import com.personalphotomap.model.AppUser;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -17,6 +24,16 @@ import java.util.List;
 @Repository
 public interface AlbumRepository extends JpaRepository<Album, Long> {
 
+    /**
+     * Constructor expression shared by the listing queries below.
+     * Counts each album's images in the same statement, so listings never load the images collections.
+     */
+    String ALBUM_DTO_SELECT = "SELECT new com.personalphotomap.dto.AlbumResponseDTO(" +
+            "a.id, a.name, a.countryId, a.user.id, COUNT(i.id)) " +
+            "FROM Album a LEFT JOIN a.images i ";
+
+    String ALBUM_DTO_GROUP_BY = "GROUP BY a.id, a.name, a.countryId, a.user.id ORDER BY a.id";
+
     /**
      * Retrieves all albums associated with a specific country.
      *
@@ -29,10 +46,10 @@ public interface AlbumRepository extends JpaRepository<Album, Long> {
      * Retrieves all albums for a given user in a specific country.
      *
      * @param countryId The identifier of the country
-     * @param user The owner of the albums
+     * @param userId The album owner's id
      * @return List of user-specific albums for the specified country
      */
-    List<Album> findByCountryIdAndUser(String countryId, AppUser user);
+    List<Album> findByCountryIdAndUserId(String countryId, Long userId);
 
     /**
      * Retrieves all albums belonging to a specific user.
@@ -43,11 +60,210 @@ public interface AlbumRepository extends JpaRepository<Album, Long> {
     List<Album> findByUser(AppUser user);
 
     /**
-     * Retrieves all albums that contain a specific image.
+     * Retrieves all albums belonging to a user, by user id.
+     *
+     * @param userId The album owner's id
+     * @return List of albums created by the user
+     */
+    List<Album> findByUserId(Long userId);
+
+    /**
+     * Returns a user's album memberships as (album id, image id) pairs.
+     * An album without images appears once, with a null image id.
+     */
+    @Query("SELECT a.id, i.id FROM Album a LEFT JOIN a.images i WHERE a.user.id = :userId")
+    List<Object[]> findMembershipsByUserId(@Param("userId") Long userId);
+
+    // ===============================
+    // LISTINGS WITH IMAGE COUNTS
+    // ===============================
+
+    /**
+     * Returns a user's albums with their image counts.
+     */
+    @Query(ALBUM_DTO_SELECT + "WHERE a.user.id = :userId " + ALBUM_DTO_GROUP_BY)
+    List<AlbumResponseDTO> findAlbumDTOsByUserId(@Param("userId") Long userId);
+
+    /**
+     * Returns a user's albums for a specific country with their image counts.
+     */
+    @Query(ALBUM_DTO_SELECT + "WHERE a.user.id = :userId AND a.countryId = :countryId " + ALBUM_DTO_GROUP_BY)
+    List<AlbumResponseDTO> findAlbumDTOsByCountryIdAndUserId(@Param("countryId") String countryId,
+                                                             @Param("userId") Long userId);
+
+    /**
+     * Returns every album for a specific country with their image counts.
+     */
+    @Query(ALBUM_DTO_SELECT + "WHERE a.countryId = :countryId " + ALBUM_DTO_GROUP_BY)
+    List<AlbumResponseDTO> findAlbumDTOsByCountryId(@Param("countryId") String countryId);
+
+    /**
+     * Returns every album with their image counts.
+     */
+    @Query(ALBUM_DTO_SELECT + ALBUM_DTO_GROUP_BY)
+    List<AlbumResponseDTO> findAllAlbumDTOs();
+
+    /**
+     * Returns the next page of albums for a country, after the given album id.
+     */
+    @Query(ALBUM_DTO_SELECT + "WHERE a.countryId = :countryId AND a.id > :afterId " + ALBUM_DTO_GROUP_BY)
+    List<AlbumResponseDTO> findAlbumDTOPageByCountryId(@Param("countryId") String countryId,
+                                                       @Param("afterId") Long afterId,
+                                                       Pageable pageable);
+
+    /**
+     * Returns the next page of all albums, after the given album id.
+     */
+    @Query(ALBUM_DTO_SELECT + "WHERE a.id > :afterId " + ALBUM_DTO_GROUP_BY)
+    List<AlbumResponseDTO> findAllAlbumDTOPage(@Param("afterId") Long afterId, Pageable pageable);
+
+    // ===============================
+    // BULK MEMBERSHIP
+    // ===============================
+
+    /**
+     * Adds images to an album, skipping those already in it.
+     * Only the album owner's own images are added; for another user's album nothing is written.
+     * New rows take positions after every existing image, in the order the ids are given.
+     * album_images is declared as the only query space, so the write does not clear the second-level cache.
+     *
+     * @return Number of images actually added
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "album_images"))
+    @Query(value = "INSERT INTO album_images (album_id, image_id) " +
+                   "SELECT a.id, i.id FROM albums a JOIN images i ON i.user_id = a.user_id " +
+                   "WHERE a.id = :albumId AND a.user_id = :userId AND i.id = ANY(:imageIds) " +
+                   "ORDER BY array_position(:imageIds, i.id) " +
+                   "ON CONFLICT DO NOTHING",
+           nativeQuery = true)
+    int addImages(@Param("albumId") Long albumId,
+                  @Param("userId") Long userId,
+                  @Param("imageIds") Long[] imageIds);
+
+    /**
+     * Removes images from an album owned by the user.
+     *
+     * @return Number of images actually removed
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "album_images"))
+    @Query(value = "DELETE FROM album_images ai USING albums a " +
+                   "WHERE ai.album_id = a.id AND a.id = :albumId AND a.user_id = :userId " +
+                   "AND ai.image_id = ANY(:imageIds)",
+           nativeQuery = true)
+    int removeImages(@Param("albumId") Long albumId,
+                     @Param("userId") Long userId,
+                     @Param("imageIds") Long[] imageIds);
+
+    /**
+     * Fills an album with every image of its owner that matches the filter, in one INSERT ... SELECT.
+     * Null filter values are not applied. A source album only contributes if it belongs to the same user.
+     * Images are positioned in upload order.
+     *
+     * @return Number of images added
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "album_images"))
+    @Query(value = "INSERT INTO album_images (album_id, image_id) " +
+                   "SELECT a.id, i.id FROM albums a JOIN images i ON i.user_id = a.user_id " +
+                   "WHERE a.id = :albumId AND a.user_id = :userId AND i.country_id = :countryId " +
+                   "AND (CAST(:year AS integer) IS NULL OR i.year = :year) " +
+                   "AND (CAST(:from AS timestamp) IS NULL OR i.upload_date >= :from) " +
+                   "AND (CAST(:to AS timestamp) IS NULL OR i.upload_date < :to) " +
+                   "AND (CAST(:sourceAlbumId AS bigint) IS NULL OR EXISTS (" +
+                   "SELECT 1 FROM album_images s JOIN albums sa ON sa.id = s.album_id " +
+                   "WHERE s.album_id = :sourceAlbumId AND sa.user_id = :userId AND s.image_id = i.id)) " +
+                   "ORDER BY i.upload_date, i.id " +
+                   "ON CONFLICT DO NOTHING",
+           nativeQuery = true)
+    int addImagesMatching(@Param("albumId") Long albumId,
+                          @Param("userId") Long userId,
+                          @Param("countryId") String countryId,
+                          @Param("year") Integer year,
+                          @Param("from") LocalDateTime from,
+                          @Param("to") LocalDateTime to,
+                          @Param("sourceAlbumId") Long sourceAlbumId);
+
+    /**
+     * Removes an image from every album that contains it.
+     *
+     * @return Number of albums changed
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "album_images"))
+    @Query(value = "DELETE FROM album_images WHERE image_id = :imageId", nativeQuery = true)
+    int removeImageFromAllAlbums(@Param("imageId") Long imageId);
+
+    /**
+     * Whether an album still contains any image.
+     */
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM album_images WHERE album_id = :albumId)", nativeQuery = true)
+    boolean hasImages(@Param("albumId") Long albumId);
+
+    // ===============================
+    // DISPLAY ORDER
+    // ===============================
+
+    /**
+     * Position of an image in an album, or null if the image is not in it.
+     */
+    @Query(value = "SELECT position FROM album_images WHERE album_id = :albumId AND image_id = :imageId",
+           nativeQuery = true)
+    Long findPosition(@Param("albumId") Long albumId, @Param("imageId") Long imageId);
+
+    /**
+     * Lowest position in the album after the given one, ignoring one image (the one being moved).
+     */
+    @Query(value = "SELECT MIN(position) FROM album_images " +
+                   "WHERE album_id = :albumId AND position > :position AND image_id <> :excludedImageId",
+           nativeQuery = true)
+    Long findNextPosition(@Param("albumId") Long albumId,
+                          @Param("position") long position,
+                          @Param("excludedImageId") Long excludedImageId);
+
+    /**
+     * Lowest position in the album, ignoring one image (the one being moved).
+     */
+    @Query(value = "SELECT MIN(position) FROM album_images WHERE album_id = :albumId AND image_id <> :excludedImageId",
+           nativeQuery = true)
+    Long findFirstPosition(@Param("albumId") Long albumId, @Param("excludedImageId") Long excludedImageId);
+
+    /**
+     * A position after every image of every album, as given to newly added images.
+     */
+    @Query(value = "SELECT nextval('album_images_position_seq') * 1024", nativeQuery = true)
+    long nextPosition();
+
+    /**
+     * Moves one image of an album to a new position.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "album_images"))
+    @Query(value = "UPDATE album_images SET position = :position WHERE album_id = :albumId AND image_id = :imageId",
+           nativeQuery = true)
+    int updatePosition(@Param("albumId") Long albumId,
+                       @Param("imageId") Long imageId,
+                       @Param("position") long position);
+
+    /**
+     * Gives every image of an album a fresh, evenly spaced position, keeping their order.
+     * The order in which nextval runs depends on the plan, so the fresh values are drawn first
+     * and handed out by rank: the n-th image gets the n-th smallest value.
      *
-     * @param imageId The unique ID of the image
-     * @return List of albums containing the specified image
+     * @return Number of images renumbered
      */
-    @Query("SELECT a FROM Album a JOIN a.images i WHERE i.id = :imageId")
-    List<Album> findByImageId(@Param("imageId") Long imageId);
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "album_images"))
+    @Query(value = "WITH ordered AS (" +
+                   "SELECT image_id, row_number() OVER (ORDER BY position, image_id) AS rank " +
+                   "FROM album_images WHERE album_id = :albumId), " +
+                   "fresh AS (" +
+                   "SELECT position, row_number() OVER (ORDER BY position) AS rank " +
+                   "FROM (SELECT nextval('album_images_position_seq') * 1024 AS position FROM ordered) drawn) " +
+                   "UPDATE album_images ai SET position = fresh.position " +
+                   "FROM ordered JOIN fresh ON fresh.rank = ordered.rank " +
+                   "WHERE ai.album_id = :albumId AND ai.image_id = ordered.image_id",
+           nativeQuery = true)
+    int rebalance(@Param("albumId") Long albumId);
 }
@@ -0,0 +1,19 @@
+package com.personalphotomap.repository;
+
+import com.personalphotomap.model.ImagePreview;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for the generated country and album previews of each user.
+ */
+@Repository
+public interface ImagePreviewRepository extends JpaRepository<ImagePreview, Long> {
+
+    /**
+     * Returns every preview of a user, countries and albums alike.
+     */
+    List<ImagePreview> findByUserId(Long userId);
+}
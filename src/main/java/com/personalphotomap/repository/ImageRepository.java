@@ -1,13 +1,22 @@
 package com.personalphotomap.repository;
 
+import com.personalphotomap.dto.ImageClusterDTO;
+import com.personalphotomap.dto.ImageDTO;
 import com.personalphotomap.model.AppUser;
 import com.personalphotomap.model.Image;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for accessing Image entities in the database.
@@ -17,20 +26,24 @@ import java.util.List;
 public interface ImageRepository extends JpaRepository<Image, Long> {
 
     /**
-     * Finds all images from a given country, regardless of user.
+     * Constructor expression shared by the read queries below.
+     * Selects only the columns exposed by ImageDTO, so listings never load the owning AppUser.
      */
-    List<Image> findByCountryId(String countryId);
+    String IMAGE_DTO_SELECT = "SELECT new com.personalphotomap.dto.ImageDTO(" +
+            "i.id, i.countryId, i.fileName, i.filePath, i.year, i.uploadDate) ";
 
     /**
-     * Counts the total number of images uploaded by a specific user.
+     * Shared select of the album listings in display order: the DTO also carries the image's position.
      */
-    @Query("SELECT COUNT(i) FROM Image i WHERE i.user.id = :userId")
-    long countByUserId(@Param("userId") Long userId);
+    String ALBUM_IMAGE_DTO_SELECT = "SELECT new com.personalphotomap.dto.ImageDTO(" +
+            "i.id, i.countryId, i.fileName, i.filePath, i.year, i.uploadDate, ai.position) " +
+            "FROM AlbumImage ai JOIN Image i ON i.id = ai.imageId ";
 
     /**
-     * Finds all images for a specific country and year (regardless of user).
+     * Counts the total number of images uploaded by a specific user.
      */
-    List<Image> findByCountryIdAndYear(String countryId, int year);
+    @Query("SELECT COUNT(i) FROM Image i WHERE i.user.id = :userId")
+    long countByUserId(@Param("userId") Long userId);
 
     /**
      * Finds all images uploaded by a specific user.
@@ -58,16 +71,16 @@ public interface ImageRepository extends JpaRepository<Image, Long> {
     List<Image> findByCountryIdAndYearAndUserId(String countryId, int year, Long userId);
 
     /**
-     * Returns a list of unique country IDs where a user has uploaded images.
+     * Returns the ids of every image uploaded by a user.
      */
-    @Query("SELECT DISTINCT i.countryId FROM Image i WHERE i.user.id = :userId")
-    List<String> findDistinctCountryIdsByUserId(@Param("userId") Long userId);
+    @Query("SELECT i.id FROM Image i WHERE i.user.id = :userId")
+    List<Long> findIdsByUserId(@Param("userId") Long userId);
 
     /**
-     * Returns all images ordered by upload date (most recent first).
+     * Returns a list of unique country IDs where a user has uploaded images.
      */
-    @Query("SELECT i FROM Image i ORDER BY i.uploadDate DESC")
-    List<Image> findAllOrderedByUploadDateDesc();
+    @Query("SELECT DISTINCT i.countryId FROM Image i WHERE i.user.id = :userId")
+    List<String> findDistinctCountryIdsByUserId(@Param("userId") Long userId);
 
     /**
      * Returns a list of distinct years in which a user has uploaded images.
@@ -93,4 +106,190 @@ public interface ImageRepository extends JpaRepository<Image, Long> {
      */
     @Query("SELECT COUNT(DISTINCT i.countryId) FROM Image i WHERE i.user.id = :userId")
     long countDistinctCountryByUserId(@Param("userId") Long userId);
+
+    // ===============================
+    // DTO PROJECTIONS
+    // ===============================
+
+    /**
+     * Returns the images of a user for a specific country as DTOs.
+     */
+    @Query(IMAGE_DTO_SELECT + "FROM Image i WHERE i.countryId = :countryId AND i.user.id = :userId")
+    List<ImageDTO> findImageDTOsByCountryIdAndUserId(@Param("countryId") String countryId,
+                                                     @Param("userId") Long userId);
+
+    /**
+     * Returns the images of a user for a specific country and year as DTOs.
+     */
+    @Query(IMAGE_DTO_SELECT + "FROM Image i WHERE i.countryId = :countryId AND i.year = :year AND i.user.id = :userId")
+    List<ImageDTO> findImageDTOsByCountryIdAndYearAndUserId(@Param("countryId") String countryId,
+                                                            @Param("year") int year,
+                                                            @Param("userId") Long userId);
+
+    /**
+     * Returns all images of a user as DTOs, most recent first.
+     */
+    @Query(IMAGE_DTO_SELECT + "FROM Image i WHERE i.user.id = :userId ORDER BY i.uploadDate DESC")
+    List<ImageDTO> findImageDTOsByUserIdOrderByUploadDateDesc(@Param("userId") Long userId);
+
+    /**
+     * Returns the images of a user for a specific year as DTOs, most recent first.
+     */
+    @Query(IMAGE_DTO_SELECT + "FROM Image i WHERE i.user.id = :userId AND i.year = :year ORDER BY i.uploadDate DESC")
+    List<ImageDTO> findImageDTOsByUserIdAndYear(@Param("userId") Long userId, @Param("year") Integer year);
+
+    /**
+     * Returns the images that belong to an album as DTOs, in display order.
+     */
+    @Query(ALBUM_IMAGE_DTO_SELECT + "WHERE ai.albumId = :albumId ORDER BY ai.position, ai.imageId")
+    List<ImageDTO> findImageDTOsByAlbumId(@Param("albumId") Long albumId);
+
+    // ===============================
+    // KEYSET PAGINATION
+    // ===============================
+    //
+    // All page queries return rows strictly after the (uploadDate, id) cursor,
+    // ordered by uploadDate DESC, id DESC. The Pageable only carries the page size.
+    // The cursor is a row-value comparison so PostgreSQL can seek straight to it in the
+    // (user_id, ..., upload_date DESC, id DESC) indexes instead of filtering from the top.
+    // upload_date is NOT NULL (V11); a NULL would fail the comparison and drop the row from every page.
+
+    /**
+     * Returns the next page of a user's images.
+     */
+    @Query(IMAGE_DTO_SELECT + "FROM Image i WHERE i.user.id = :userId " +
+           "AND (i.uploadDate, i.id) < (:uploadDate, :id) " +
+           "ORDER BY i.uploadDate DESC, i.id DESC")
+    List<ImageDTO> findPageByUserId(@Param("userId") Long userId,
+                                 @Param("uploadDate") LocalDateTime uploadDate,
+                                 @Param("id") Long id,
+                                 Pageable pageable);
+
+    /**
+     * Returns the next page of a user's images for a specific year.
+     */
+    @Query(IMAGE_DTO_SELECT + "FROM Image i WHERE i.user.id = :userId AND i.year = :year " +
+           "AND (i.uploadDate, i.id) < (:uploadDate, :id) " +
+           "ORDER BY i.uploadDate DESC, i.id DESC")
+    List<ImageDTO> findPageByUserIdAndYear(@Param("userId") Long userId,
+                                        @Param("year") Integer year,
+                                        @Param("uploadDate") LocalDateTime uploadDate,
+                                        @Param("id") Long id,
+                                        Pageable pageable);
+
+    /**
+     * Returns the next page of a user's images for a specific country.
+     */
+    @Query(IMAGE_DTO_SELECT + "FROM Image i WHERE i.user.id = :userId AND i.countryId = :countryId " +
+           "AND (i.uploadDate, i.id) < (:uploadDate, :id) " +
+           "ORDER BY i.uploadDate DESC, i.id DESC")
+    List<ImageDTO> findPageByCountryIdAndUserId(@Param("countryId") String countryId,
+                                             @Param("userId") Long userId,
+                                             @Param("uploadDate") LocalDateTime uploadDate,
+                                             @Param("id") Long id,
+                                             Pageable pageable);
+
+    /**
+     * Returns the next page of a user's images for a specific country and year.
+     */
+    @Query(IMAGE_DTO_SELECT + "FROM Image i WHERE i.user.id = :userId AND i.countryId = :countryId AND i.year = :year " +
+           "AND (i.uploadDate, i.id) < (:uploadDate, :id) " +
+           "ORDER BY i.uploadDate DESC, i.id DESC")
+    List<ImageDTO> findPageByCountryIdAndYearAndUserId(@Param("countryId") String countryId,
+                                                    @Param("year") int year,
+                                                    @Param("userId") Long userId,
+                                                    @Param("uploadDate") LocalDateTime uploadDate,
+                                                    @Param("id") Long id,
+                                                    Pageable pageable);
+
+    /**
+     * Returns the next page of images that belong to an album.
+     */
+    @Query(IMAGE_DTO_SELECT + "FROM Album a JOIN a.images i WHERE a.id = :albumId " +
+           "AND (i.uploadDate, i.id) < (:uploadDate, :id) " +
+           "ORDER BY i.uploadDate DESC, i.id DESC")
+    List<ImageDTO> findPageByAlbumId(@Param("albumId") Long albumId,
+                                  @Param("uploadDate") LocalDateTime uploadDate,
+                                  @Param("id") Long id,
+                                  Pageable pageable);
+
+    /**
+     * Returns the next page of images that belong to an album, in display order.
+     */
+    @Query(ALBUM_IMAGE_DTO_SELECT + "WHERE ai.albumId = :albumId " +
+           "AND (ai.position, ai.imageId) > (:position, :imageId) " +
+           "ORDER BY ai.position, ai.imageId")
+    List<ImageDTO> findPageByAlbumIdInPosition(@Param("albumId") Long albumId,
+                                            @Param("position") Long position,
+                                            @Param("imageId") Long imageId,
+                                            Pageable pageable);
+
+    /**
+     * Returns the next page of images that belong to an album, oldest first.
+     */
+    @Query(IMAGE_DTO_SELECT + "FROM Album a JOIN a.images i WHERE a.id = :albumId " +
+           "AND (i.uploadDate, i.id) > (:uploadDate, :id) " +
+           "ORDER BY i.uploadDate ASC, i.id ASC")
+    List<ImageDTO> findPageByAlbumIdAscending(@Param("albumId") Long albumId,
+                                           @Param("uploadDate") LocalDateTime uploadDate,
+                                           @Param("id") Long id,
+                                           Pageable pageable);
+
+    // ===============================
+    // MAP CLUSTERS
+    // ===============================
+
+    /**
+     * Groups a user's geotagged images inside a bounding box by geohash prefix.
+     * The geohash range is the box's common prefix, so only the viewport's part of the index is read.
+     * The box must not cross the antimeridian (west <= east).
+     */
+    @Query("SELECT new com.personalphotomap.dto.ImageClusterDTO(" +
+           "COUNT(i), AVG(i.latitude), AVG(i.longitude), MAX(i.id)) " +
+           "FROM Image i WHERE i.user.id = :userId " +
+           "AND i.geohash >= :geohashFrom AND i.geohash < :geohashTo " +
+           "AND i.latitude BETWEEN :south AND :north AND i.longitude BETWEEN :west AND :east " +
+           "GROUP BY SUBSTRING(i.geohash, 1, :precision)")
+    List<ImageClusterDTO> findClusters(@Param("userId") Long userId,
+                                       @Param("geohashFrom") String geohashFrom,
+                                       @Param("geohashTo") String geohashTo,
+                                       @Param("south") double south,
+                                       @Param("west") double west,
+                                       @Param("north") double north,
+                                       @Param("east") double east,
+                                       @Param("precision") int precision);
+
+    // ===============================
+    // STREAMING
+    // ===============================
+    //
+    // Rows are read through a server-side cursor, STREAM_FETCH_SIZE at a time, so the caller
+    // can write each DTO out before the next batch is fetched. PostgreSQL only honours the fetch
+    // size inside a transaction; callers must consume and close the stream within one.
+
+    /**
+     * Number of rows fetched per cursor round trip by the streaming queries.
+     */
+    int STREAM_FETCH_SIZE = 500;
+
+    /**
+     * Streams all images of a user as DTOs, most recent first.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(IMAGE_DTO_SELECT + "FROM Image i WHERE i.user.id = :userId ORDER BY i.uploadDate DESC, i.id DESC")
+    Stream<ImageDTO> streamImageDTOsByUserId(@Param("userId") Long userId);
+
+    /**
+     * Streams the images of a user for a specific year as DTOs, most recent first.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(IMAGE_DTO_SELECT + "FROM Image i WHERE i.user.id = :userId AND i.year = :year " +
+           "ORDER BY i.uploadDate DESC, i.id DESC")
+    Stream<ImageDTO> streamImageDTOsByUserIdAndYear(@Param("userId") Long userId, @Param("year") Integer year);
 }
@@ -0,0 +1,122 @@
+package com.personalphotomap.repository;
+
+import com.personalphotomap.model.ImageStat;
+import com.personalphotomap.model.ImageStatId;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for the per-user, per-country, per-year photo counters.
+ * Write methods are native statements so concurrent uploads update a counter atomically.
+ * Each declares image_stats as its only query space; without it Hibernate would clear
+ * the whole second-level cache after every native write.
+ */
+@Repository
+public interface ImageStatRepository extends JpaRepository<ImageStat, ImageStatId> {
+
+    /**
+     * Adds to a counter, creating it if needed.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "image_stats"))
+    @Query(value = "INSERT INTO image_stats (user_id, country_id, year, photo_count) " +
+                   "VALUES (:userId, :countryId, :year, :delta) " +
+                   "ON CONFLICT (user_id, country_id, year) " +
+                   "DO UPDATE SET photo_count = image_stats.photo_count + EXCLUDED.photo_count",
+           nativeQuery = true)
+    void increment(@Param("userId") Long userId,
+                   @Param("countryId") String countryId,
+                   @Param("year") int year,
+                   @Param("delta") long delta);
+
+    /**
+     * Subtracts from a counter.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "image_stats"))
+    @Query(value = "UPDATE image_stats SET photo_count = photo_count - :delta " +
+                   "WHERE user_id = :userId AND country_id = :countryId AND year = :year",
+           nativeQuery = true)
+    void decrement(@Param("userId") Long userId,
+                   @Param("countryId") String countryId,
+                   @Param("year") int year,
+                   @Param("delta") long delta);
+
+    /**
+     * Removes a counter once it no longer counts any image.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "image_stats"))
+    @Query(value = "DELETE FROM image_stats " +
+                   "WHERE user_id = :userId AND country_id = :countryId AND year = :year AND photo_count <= 0",
+           nativeQuery = true)
+    void deleteIfEmpty(@Param("userId") Long userId,
+                       @Param("countryId") String countryId,
+                       @Param("year") int year);
+
+    /**
+     * All counters of a user, one row per (country, year).
+     */
+    List<ImageStat> findByUserId(Long userId);
+
+    // ===============================
+    // DRIFT REPAIR
+    // ===============================
+
+    /**
+     * Blocks concurrent counter updates until the current transaction ends.
+     * Uploads and deletes that commit while a rebuild runs then apply on top of the rebuilt rows.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "image_stats"))
+    @Query(value = "LOCK TABLE image_stats IN EXCLUSIVE MODE", nativeQuery = true)
+    void lockForRebuild();
+
+    /**
+     * Removes every counter of a user.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "image_stats"))
+    @Query(value = "DELETE FROM image_stats WHERE user_id = :userId", nativeQuery = true)
+    void deleteByUserId(@Param("userId") Long userId);
+
+    /**
+     * Recomputes every counter of a user from the images table.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "image_stats"))
+    @Query(value = "INSERT INTO image_stats (user_id, country_id, year, photo_count) " +
+                   "SELECT user_id, country_id, year, COUNT(*) FROM images " +
+                   "WHERE user_id = :userId AND country_id IS NOT NULL " +
+                   "GROUP BY user_id, country_id, year",
+           nativeQuery = true)
+    int rebuildForUser(@Param("userId") Long userId);
+
+    /**
+     * Removes all counters.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "image_stats"))
+    @Query(value = "DELETE FROM image_stats", nativeQuery = true)
+    void deleteAllStats();
+
+    /**
+     * Recomputes all counters from the images table.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "image_stats"))
+    @Query(value = "INSERT INTO image_stats (user_id, country_id, year, photo_count) " +
+                   "SELECT user_id, country_id, year, COUNT(*) FROM images " +
+                   "WHERE country_id IS NOT NULL " +
+                   "GROUP BY user_id, country_id, year",
+           nativeQuery = true)
+    int rebuildAll();
+}
@@ -1,9 +1,22 @@
 package com.personalphotomap.repository;
 
+import com.personalphotomap.dto.UserSummaryDTO;
 import com.personalphotomap.model.AppUser;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 /**
  * Repository interface for accessing AppUser entities in the database.
  * Inherits standard JPA repository methods for CRUD operations.
@@ -11,12 +24,57 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface UserRepository extends JpaRepository<AppUser, Long> {
 
+    /**
+     * Query cache region of the email lookup.
+     * Hibernate invalidates it whenever the users table is written through JPA.
+     */
+    String EMAIL_QUERY_REGION = "users-by-email";
+
     /**
      * Finds a user by their email address.
+     * The result (the user's id) is held in the query cache and the user itself in the entity cache,
+     * so repeated lookups of the same email do not reach the database.
      * 
      * @param email The email address of the user to search for.
      * @return The user object if found, otherwise null.
      */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = EMAIL_QUERY_REGION)
+    })
     AppUser findByEmail(String email);
 
+    /**
+     * Reads a user from the database, never from the entity cache, and refreshes the cached copy.
+     * For token refresh, which has to see role and premium changes made outside the paths that evict the user.
+     */
+    @QueryHints({
+            @QueryHint(name = SpecHints.HINT_SPEC_CACHE_RETRIEVE_MODE, value = "BYPASS"),
+            @QueryHint(name = SpecHints.HINT_SPEC_CACHE_STORE_MODE, value = "REFRESH")
+    })
+    @Query("SELECT u FROM AppUser u WHERE u.id = :id")
+    Optional<AppUser> findCurrentById(@Param("id") Long id);
+
+    /**
+     * Shared select of the admin user summaries: every user, with or without images,
+     * and the count, total size and latest upload of their images, in one statement.
+     */
+    String USER_SUMMARY_SELECT = "SELECT new com.personalphotomap.dto.UserSummaryDTO(" +
+            "u.id, u.fullname, u.email, u.country, COUNT(i.id), COALESCE(SUM(i.sizeBytes), 0L), MAX(i.uploadDate)) " +
+            "FROM AppUser u LEFT JOIN Image i ON i.user = u " +
+            "GROUP BY u.id, u.fullname, u.email, u.country";
+
+    /**
+     * Returns every user's summary, ordered as requested.
+     */
+    @Query(USER_SUMMARY_SELECT)
+    List<UserSummaryDTO> findUserSummaries(Sort sort);
+
+    /**
+     * Returns one page of user summaries. The total comes from the users table alone.
+     * Sorts on aggregates are passed as JpaSort.unsafe expressions by UserService.
+     */
+    @Query(value = USER_SUMMARY_SELECT, countQuery = "SELECT COUNT(u) FROM AppUser u")
+    Page<UserSummaryDTO> findUserSummaries(Pageable pageable);
+
 }
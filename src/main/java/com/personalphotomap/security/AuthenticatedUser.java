@@ -0,0 +1,36 @@
+package com.personalphotomap.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Spring Security principal that also carries the database id and premium flag of the user,
+ * so controllers and services can key per-user data without looking the user up again.
+ */
+public class AuthenticatedUser extends User {
+
+    private final Long id;
+    private final boolean premium;
+
+    public AuthenticatedUser(Long id, String email, String password,
+                             Collection<? extends GrantedAuthority> authorities) {
+        this(id, email, password, authorities, false);
+    }
+
+    public AuthenticatedUser(Long id, String email, String password,
+                             Collection<? extends GrantedAuthority> authorities, boolean premium) {
+        super(email, password, authorities);
+        this.id = id;
+        this.premium = premium;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public boolean isPremium() {
+        return premium;
+    }
+}
@@ -2,10 +2,12 @@ package com.personalphotomap.security;
 
 import com.personalphotomap.model.AppUser;
 import com.personalphotomap.repository.UserRepository;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Custom implementation of UserDetailsService used by Spring Security
@@ -32,12 +34,15 @@ public class CustomUserDetailsService implements UserDetailsService {
     /**
      * Loads the user from the database by their email address.
      * This method is automatically called by Spring Security during authentication.
+     * It runs in a read-write transaction so the lookup always reads the primary:
+     * a user who has just registered must be able to log in before the replicas catch up.
      *
      * @param email The email (used as the username) of the user.
-     * @return UserDetails containing the user's credentials and roles.
+     * @return AuthenticatedUser containing the user's id, credentials and roles.
      * @throws UsernameNotFoundException if the user does not exist in the database.
      */
     @Override
+    @Transactional
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         AppUser user = userRepository.findByEmail(email);
         if (user == null) {
@@ -45,11 +50,12 @@ public class CustomUserDetailsService implements UserDetailsService {
         }
 
         // Build and return a Spring Security-compatible User object
-        // using the user's email, password, and role as granted authority.
-        return org.springframework.security.core.userdetails.User
-                .withUsername(user.getEmail())
-                .password(user.getPassword())
-                .authorities(user.getRole()) // Role is used as a granted authority
-                .build();
+        // using the user's id, email, password, role as granted authority, and premium flag.
+        return new AuthenticatedUser(
+                user.getId(),
+                user.getEmail(),
+                user.getPassword(),
+                AuthorityUtils.createAuthorityList(user.getRole()), // Role is used as a granted authority
+                user.isPremium());
     }
 }
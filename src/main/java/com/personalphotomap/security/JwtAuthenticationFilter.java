@@ -1,5 +1,6 @@
 package com.personalphotomap.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -22,6 +23,8 @@ import java.util.List;
  * tokens.
  * This filter runs once per request and sets the authenticated user in the
  * Spring Security context if the token is valid.
+ * The principal is built from the token claims; only tokens issued before the
+ * user id claim existed fall back to loading the user from the database.
  */
 
 @Component
@@ -45,6 +48,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private static final List<String> EXCLUDE_URLS = Arrays.asList(
             "/api/auth/register",
             "/api/auth/login",
+            "/api/auth/refresh",
+            "/api/auth/logout",
             "/photomap",
             "/api/other-public-endpoint");
 
@@ -73,30 +78,31 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         // Extract JWT token from Authorization header
         String token = extractJwtFromRequest(request);
-        String email = null;
+        Claims claims = null;
 
         if (StringUtils.hasText(token)) {
             try {
-                email = jwtUtil.extractUsername(token); // Extract user email from JWT token
+                claims = jwtUtil.extractAllClaims(token); // Verifies signature and expiration
             } catch (Exception e) {
-                logger.error("Failed to extract email from JWT token", e);
+                logger.error("Failed to parse JWT token", e);
                 response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid or expired JWT token");
                 return;
             }
         }
 
         // Authenticate user only if not already authenticated
-        if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = customUserDetailsService.loadUserByUsername(email);
+        if (claims != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            UserDetails userDetails = jwtUtil.toPrincipal(claims);
+            if (userDetails == null) {
+                // Token issued before the user id claim: resolve the user by email
+                userDetails = customUserDetailsService.loadUserByUsername(claims.getSubject());
+            }
 
-            // Validate token and set authenticated user in context
-            if (jwtUtil.validateToken(token, userDetails.getUsername())) {
-                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
+            UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                    userDetails, null, userDetails.getAuthorities());
 
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authentication);
-            }
+            authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authentication);
         }
 
         // Continue filter chain
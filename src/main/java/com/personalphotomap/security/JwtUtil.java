@@ -1,12 +1,25 @@
 package com.personalphotomap.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.personalphotomap.model.AppUser;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 /**
@@ -18,25 +31,56 @@ import java.util.function.Function;
  * - Generate signed tokens using a secret key
  * - Extract claims such as subject (username/email) and expiration date
  * - Validate tokens against expiration and username
+ * - Build the authenticated principal from the user id, role and premium claims
  *
  * This class encapsulates the logic used for stateless authentication via JWT.
+ * Tokens carry everything the principal needs, so requests are authenticated without a database lookup.
+ * Access tokens are short-lived; clients renew them with a refresh token (see RefreshTokenService),
+ * which is where revocations and role changes are picked up.
+ * Verified claims are cached by token digest until the token expires, so a token is
+ * checked once rather than on every request; forged or expired tokens are never cached.
  * Configured with a secret defined in application properties.
  */
 
 @Component
 public class JwtUtil {
 
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_PREMIUM = "premium";
+
+    private static final String CACHE_NAME = "jwtClaims";
+
     private final Key key;
+    private final JwtParser parser;
+    private final Cache<String, Claims> verifiedClaims;
+    private final Duration accessTokenTtl;
 
     /**
-     * Initializes the signing key using the secret provided in application
+     * Initializes the signing key and parser using the secret provided in application
      * properties.
      *
-     * @param secret the secret key used for signing the JWT
+     * @param secret         the secret key used for signing the JWT
+     * @param meterRegistry  registry the cache hit ratio is published to
+     * @param maximumSize    the number of verified tokens kept in memory
+     * @param accessTokenTtl lifetime of the access tokens issued for a user
      */
 
-    public JwtUtil(@Value("${jwt.secret}") String secret) {
+    public JwtUtil(@Value("${jwt.secret}") String secret,
+            MeterRegistry meterRegistry,
+            @Value("${photomap.jwt.claims-cache-size:10000}") long maximumSize,
+            @Value("${photomap.jwt.access-token-ttl:PT15M}") Duration accessTokenTtl) {
         this.key = Keys.hmacShaKeyFor(secret.getBytes());
+        this.accessTokenTtl = accessTokenTtl;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
+        this.verifiedClaims = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new UntilTokenExpires())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedClaims, CACHE_NAME);
     }
 
     /**
@@ -73,26 +117,70 @@ public class JwtUtil {
 
     /**
      * Parses and retrieves all claims from the JWT token.
+     * The signature and expiration date are checked on the first use of a token;
+     * later calls return the cached claims until the token expires.
+     * The returned claims are shared and must not be modified.
      *
      * @param token the JWT token
      * @return claims from the token
+     * @throws JwtException if the token is invalid or expired
      */
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    public Claims extractAllClaims(String token) {
+        String digest = digest(token);
+        Claims claims = verifiedClaims.getIfPresent(digest);
+        if (claims != null) {
+            return claims;
+        }
+
+        claims = parser.parseClaimsJws(token).getBody();
+        if (claims.getExpiration() != null) { // tokens without an expiration are checked every time
+            verifiedClaims.put(digest, claims);
+        }
+        return claims;
     }
 
     /**
-     * Checks if the token has expired based on its expiration date.
+     * Checks if the claims have expired based on their expiration date.
      *
-     * @param token the JWT token
+     * @param claims the token claims
      * @return true if expired, false otherwise
      */
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private Boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration() != null && claims.getExpiration().before(new Date());
+    }
+
+    /**
+     * Cache key for a token: its SHA-256 digest, so raw tokens are not kept in memory.
+     */
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Keeps each cached entry until its token's expiration date.
+     */
+    private static class UntilTokenExpires implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String digest, Claims claims, long currentTime) {
+            long remainingMillis = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(String digest, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(digest, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String digest, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 
     /**
@@ -111,6 +199,52 @@ public class JwtUtil {
                 .compact();
     }
 
+    /**
+     * Generates a new access token for the given user, carrying its id, role and premium flag.
+     * Token is valid for the configured access token lifetime.
+     *
+     * @param user the user for which the token is generated
+     * @return signed JWT token
+     */
+    public String generateToken(AppUser user) {
+        return Jwts.builder()
+                .setSubject(user.getEmail())
+                .claim(CLAIM_USER_ID, user.getId())
+                .claim(CLAIM_ROLE, user.getRole())
+                .claim(CLAIM_PREMIUM, user.isPremium())
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + accessTokenTtl.toMillis()))
+                .signWith(key)
+                .compact();
+    }
+
+    /**
+     * Lifetime of the access tokens issued by generateToken(AppUser).
+     */
+    public Duration getAccessTokenTtl() {
+        return accessTokenTtl;
+    }
+
+    /**
+     * Builds the authenticated principal from verified claims.
+     *
+     * @param claims claims of a verified token
+     * @return the principal, or null if the token predates the user id claim
+     */
+    public AuthenticatedUser toPrincipal(Claims claims) {
+        Number userId = claims.get(CLAIM_USER_ID, Number.class);
+        String role = claims.get(CLAIM_ROLE, String.class);
+        if (userId == null || role == null) {
+            return null;
+        }
+        return new AuthenticatedUser(
+                userId.longValue(),
+                claims.getSubject(),
+                "", // credentials are never needed past the login
+                AuthorityUtils.createAuthorityList(role),
+                Boolean.TRUE.equals(claims.get(CLAIM_PREMIUM, Boolean.class)));
+    }
+
     /**
      * Extracts the username from a token with "Bearer " prefix.
      *
@@ -137,7 +271,7 @@ public class JwtUtil {
      * @return true if valid, false otherwise
      */
     public Boolean validateToken(String token, String username) {
-        final String extractedUsername = extractUsername(token);
-        return (extractedUsername.equals(username) && !isTokenExpired(token));
+        final Claims claims = extractAllClaims(token);
+        return (claims.getSubject().equals(username) && !isTokenExpired(claims));
     }
 }
@@ -0,0 +1,65 @@
+package com.personalphotomap.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * LoginThrottle
+ *
+ * Sliding-window limits checked before a login reaches the password hash:
+ * - every attempt counts against the client's IP address (credential stuffing from one source);
+ * - failed attempts count against the account (password guessing from many sources).
+ *   A successful login clears the account's failures.
+ *
+ * Refused attempts throw TooManyRequestsException, so no hashing time is spent on them.
+ */
+
+@Component
+public class LoginThrottle {
+
+    private static final long MAXIMUM_KEYS = 100_000;
+
+    private final SlidingWindowLimiter attemptsPerIp;
+    private final SlidingWindowLimiter failuresPerAccount;
+
+    public LoginThrottle(
+            @Value("${photomap.auth.attempts-per-ip:20}") int attemptsPerIp,
+            @Value("${photomap.auth.attempts-per-ip-window:PT1M}") Duration ipWindow,
+            @Value("${photomap.auth.failures-per-account:5}") int failuresPerAccount,
+            @Value("${photomap.auth.failures-per-account-window:PT15M}") Duration accountWindow) {
+        this.attemptsPerIp = new SlidingWindowLimiter(attemptsPerIp, ipWindow, MAXIMUM_KEYS);
+        this.failuresPerAccount = new SlidingWindowLimiter(failuresPerAccount, accountWindow, MAXIMUM_KEYS);
+    }
+
+    /**
+     * Counts a login attempt from the address.
+     *
+     * @throws TooManyRequestsException if the address or the account is over its limit
+     */
+    public void checkAttempt(String clientIp, String email) {
+        if (!attemptsPerIp.tryAcquire(clientIp)) {
+            throw new TooManyRequestsException("Too many login attempts. Please try again later.",
+                    attemptsPerIp.retryAfter(clientIp));
+        }
+        String account = accountKey(email);
+        if (failuresPerAccount.isLimited(account)) {
+            throw new TooManyRequestsException("Too many failed logins for this account. Please try again later.",
+                    failuresPerAccount.retryAfter(account));
+        }
+    }
+
+    public void recordFailure(String email) {
+        failuresPerAccount.record(accountKey(email));
+    }
+
+    public void recordSuccess(String email) {
+        failuresPerAccount.reset(accountKey(email));
+    }
+
+    private static String accountKey(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,108 @@
+package com.personalphotomap.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * SlidingWindowLimiter
+ *
+ * Counts events per key (an IP address, an account) over the last window and reports
+ * when a key has reached its limit. Unlike a fixed window, a burst cannot double the
+ * allowed rate by straddling a window boundary.
+ *
+ * Keys without events for a whole window are dropped; the number of tracked keys is bounded,
+ * so a flood of distinct keys cannot exhaust memory.
+ */
+public class SlidingWindowLimiter {
+
+    private final int limit;
+    private final long windowNanos;
+
+    // Event times (System.nanoTime) of each key, oldest first
+    private final Cache<String, Deque<Long>> events;
+
+    public SlidingWindowLimiter(int limit, Duration window, long maximumKeys) {
+        this.limit = limit;
+        this.windowNanos = window.toNanos();
+        this.events = Caffeine.newBuilder()
+                .maximumSize(maximumKeys)
+                .expireAfterAccess(window)
+                .build();
+    }
+
+    /**
+     * Records an event for the key, unless the key has already reached its limit.
+     *
+     * @return true if the event was allowed and recorded
+     */
+    public boolean tryAcquire(String key) {
+        Deque<Long> times = events.get(key, k -> new ArrayDeque<>());
+        synchronized (times) {
+            long now = System.nanoTime();
+            prune(times, now);
+            if (times.size() >= limit) {
+                return false;
+            }
+            times.addLast(now);
+            return true;
+        }
+    }
+
+    /**
+     * Records an event for the key, even past its limit.
+     */
+    public void record(String key) {
+        Deque<Long> times = events.get(key, k -> new ArrayDeque<>());
+        synchronized (times) {
+            long now = System.nanoTime();
+            prune(times, now);
+            times.addLast(now);
+        }
+    }
+
+    /**
+     * Checks whether the key has reached its limit, without recording anything.
+     */
+    public boolean isLimited(String key) {
+        Deque<Long> times = events.getIfPresent(key);
+        if (times == null) {
+            return false;
+        }
+        synchronized (times) {
+            prune(times, System.nanoTime());
+            return times.size() >= limit;
+        }
+    }
+
+    /**
+     * Forgets every event of the key.
+     */
+    public void reset(String key) {
+        events.invalidate(key);
+    }
+
+    /**
+     * Time until the oldest event of the key leaves the window, which frees one slot.
+     */
+    public Duration retryAfter(String key) {
+        Deque<Long> times = events.getIfPresent(key);
+        if (times == null) {
+            return Duration.ZERO;
+        }
+        synchronized (times) {
+            Long oldest = times.peekFirst();
+            return oldest == null ? Duration.ZERO
+                    : Duration.ofNanos(Math.max(0, oldest + windowNanos - System.nanoTime()));
+        }
+    }
+
+    private void prune(Deque<Long> times, long now) {
+        while (!times.isEmpty() && now - times.peekFirst() >= windowNanos) {
+            times.removeFirst();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.personalphotomap.security;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a request is refused to protect the server: a login throttle was hit,
+ * or the password hashing pool is saturated. Controllers answer it with 429 Too Many Requests.
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public TooManyRequestsException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * How long the client should wait before retrying.
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,277 @@
+package com.personalphotomap.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.personalphotomap.repository.AlbumRepository;
+import com.personalphotomap.repository.ImageRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * AlbumMembershipIndex
+ *
+ * In-memory index of which of a user's images are in which of their albums,
+ * kept as one compressed (Roaring) bitmap of image ids per album, plus one of all the user's images.
+ *
+ * Responsibilities:
+ * - Builds a user's entry lazily from album_images with two queries, on the first read.
+ * - Applies album changes (images added or removed, album or image deleted) to the entry once
+ *   the change commits, so set queries keep being answered from memory. Uploads, albums filled
+ *   in the database from a filter and counter rebuilds drop the entry instead.
+ * - Bounds the index by the size of its bitmaps. The TTL is only a safety net, for changes
+ *   made around the application and for replica lag when an entry is built.
+ *
+ * Entries are never modified in place: each change replaces the user's entry with an updated copy,
+ * so readers can use the bitmaps they were given without locking.
+ * Like the other in-memory caches, it assumes a single application instance.
+ */
+
+@Service
+public class AlbumMembershipIndex {
+
+    private static final String CACHE_NAME = "albumMembership";
+
+    private final AlbumRepository albumRepository;
+    private final ImageRepository imageRepository;
+    private final Cache<Long, Membership> memberships;
+
+    public AlbumMembershipIndex(AlbumRepository albumRepository,
+            ImageRepository imageRepository,
+            MeterRegistry meterRegistry,
+            @Value("${photomap.album-membership-index.maximum-bytes:67108864}") long maximumBytes,
+            @Value("${photomap.album-membership-index.expire-after-write:PT30M}") Duration expireAfterWrite) {
+        this.albumRepository = albumRepository;
+        this.imageRepository = imageRepository;
+        this.memberships = Caffeine.newBuilder()
+                .maximumWeight(maximumBytes)
+                .weigher((Long userId, Membership membership) -> membership.sizeInBytes())
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, memberships, CACHE_NAME);
+    }
+
+    /**
+     * Returns a user's membership, building it on a miss.
+     */
+    public Membership get(Long userId) {
+        return memberships.get(userId, this::load);
+    }
+
+    private Membership load(Long userId) {
+        Roaring64Bitmap images = new Roaring64Bitmap();
+        for (Long imageId : imageRepository.findIdsByUserId(userId)) {
+            images.addLong(imageId);
+        }
+        Map<Long, Roaring64Bitmap> albums = new HashMap<>();
+        for (Object[] row : albumRepository.findMembershipsByUserId(userId)) {
+            Roaring64Bitmap album = albums.computeIfAbsent((Long) row[0], id -> new Roaring64Bitmap());
+            if (row[1] != null) {
+                album.addLong((Long) row[1]);
+            }
+        }
+        images.runOptimize();
+        albums.values().forEach(Roaring64Bitmap::runOptimize);
+        return new Membership(images, albums);
+    }
+
+    // ===============================
+    // UPDATES (applied after commit)
+    // ===============================
+
+    /**
+     * Records images added to an album. Ids the user does not own are ignored,
+     * as the statements that add images skip them too.
+     */
+    public void recordImagesAdded(Long userId, Long albumId, Collection<Long> imageIds) {
+        update(userId, membership -> {
+            Roaring64Bitmap album = copyOf(membership.albums.get(albumId));
+            for (Long imageId : imageIds) {
+                if (imageId != null && membership.images.contains(imageId)) {
+                    album.addLong(imageId);
+                }
+            }
+            return membership.withAlbum(albumId, album);
+        });
+    }
+
+    /**
+     * Records images removed from an album.
+     */
+    public void recordImagesRemoved(Long userId, Long albumId, Collection<Long> imageIds) {
+        update(userId, membership -> {
+            Roaring64Bitmap album = copyOf(membership.albums.get(albumId));
+            for (Long imageId : imageIds) {
+                if (imageId != null) {
+                    album.removeLong(imageId);
+                }
+            }
+            return membership.withAlbum(albumId, album);
+        });
+    }
+
+    /**
+     * Records a deleted album.
+     */
+    public void recordAlbumDeleted(Long userId, Long albumId) {
+        update(userId, membership -> membership.withAlbum(albumId, null));
+    }
+
+    /**
+     * Records deleted images, along with the albums deleted because they lost their last image.
+     * The entry and each album that held a deleted image are copied once, whatever the number of images,
+     * so a bulk delete should be recorded with one call.
+     */
+    public void recordImagesDeleted(Long userId, Collection<Long> imageIds, Collection<Long> deletedAlbumIds) {
+        if (imageIds.isEmpty()) {
+            return;
+        }
+        Roaring64Bitmap deleted = new Roaring64Bitmap();
+        imageIds.forEach(deleted::addLong);
+
+        update(userId, membership -> {
+            Roaring64Bitmap images = Roaring64Bitmap.andNot(membership.images, deleted);
+            Map<Long, Roaring64Bitmap> albums = new HashMap<>(membership.albums);
+            albums.keySet().removeAll(deletedAlbumIds);
+            albums.replaceAll((albumId, album) ->
+                    Roaring64Bitmap.and(album, deleted).isEmpty() ? album : Roaring64Bitmap.andNot(album, deleted));
+            return new Membership(images, albums);
+        });
+    }
+
+    /**
+     * Drops a user's entry once the current transaction commits; it is rebuilt on the next read.
+     */
+    public void invalidate(Long userId) {
+        afterCommit(() -> memberships.invalidate(userId));
+    }
+
+    /**
+     * Drops the entry of a user whose images changed outside the album updates above.
+     * Album changes and deletions are applied by their services and are ignored here.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLibraryChanged(ImageLibraryChangedEvent event) {
+        if (event.isAllUsers()) {
+            memberships.invalidateAll();
+        } else if (event.getType() == ImageLibraryChangedEvent.Type.UPLOAD
+                || event.getType() == ImageLibraryChangedEvent.Type.REBUILD) {
+            memberships.invalidate(event.getUserId());
+        }
+    }
+
+    /**
+     * Replaces a user's entry, if present, with an updated copy once the current transaction commits.
+     * An entry still being built is updated after it is stored; the updates are idempotent,
+     * so it does not matter whether the build already saw the change.
+     */
+    private void update(Long userId, UnaryOperator<Membership> change) {
+        afterCommit(() -> memberships.asMap().computeIfPresent(userId, (id, membership) -> change.apply(membership)));
+    }
+
+    private static Roaring64Bitmap copyOf(Roaring64Bitmap bitmap) {
+        return bitmap == null ? new Roaring64Bitmap() : bitmap.clone();
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    /**
+     * A user's images and album memberships. The bitmaps are shared and must not be modified.
+     */
+    public static final class Membership {
+
+        private final Roaring64Bitmap images;
+        private final Map<Long, Roaring64Bitmap> albums;
+
+        private Membership(Roaring64Bitmap images, Map<Long, Roaring64Bitmap> albums) {
+            this.images = images;
+            this.albums = Map.copyOf(albums);
+        }
+
+        /**
+         * Every image of the user.
+         */
+        public Roaring64Bitmap getImages() {
+            return images;
+        }
+
+        /**
+         * Images of one album, or null if the album is not one of the user's.
+         */
+        public Roaring64Bitmap getAlbum(Long albumId) {
+            return albums.get(albumId);
+        }
+
+        public Set<Long> getAlbumIds() {
+            return albums.keySet();
+        }
+
+        /**
+         * Images that are in at least one album.
+         */
+        public Roaring64Bitmap inAnyAlbum() {
+            Roaring64Bitmap result = new Roaring64Bitmap();
+            albums.values().forEach(result::or);
+            return result;
+        }
+
+        /**
+         * Albums that contain an image, in no particular order.
+         */
+        public List<Long> albumsContaining(long imageId) {
+            List<Long> result = new ArrayList<>();
+            albums.forEach((albumId, album) -> {
+                if (album.contains(imageId)) {
+                    result.add(albumId);
+                }
+            });
+            return result;
+        }
+
+        private Membership withAlbum(Long albumId, Roaring64Bitmap album) {
+            Map<Long, Roaring64Bitmap> copy = new HashMap<>(albums);
+            if (album == null) {
+                copy.remove(albumId);
+            } else {
+                copy.put(albumId, album);
+            }
+            return new Membership(images, copy);
+        }
+
+        private int sizeInBytes() {
+            long bytes = images.getLongSizeInBytes();
+            for (Roaring64Bitmap album : albums.values()) {
+                bytes += album.getLongSizeInBytes() + 64;
+            }
+            return (int) Math.min(bytes, Integer.MAX_VALUE);
+        }
+    }
+}
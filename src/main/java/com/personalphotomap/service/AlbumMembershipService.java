@@ -0,0 +1,143 @@
+package com.personalphotomap.service;
+
+import com.personalphotomap.security.AuthenticatedUser;
+
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * AlbumMembershipService
+ *
+ * Set queries over the authenticated user's album membership, answered from the
+ * in-memory AlbumMembershipIndex instead of joins over album_images.
+ *
+ * Responsibilities:
+ * - Combines albums with intersection, union and difference, including "in no album".
+ * - Looks up the albums of many images at once.
+ */
+
+@Service
+public class AlbumMembershipService {
+
+    private final AlbumMembershipIndex albumMembershipIndex;
+    private final AlbumService albumService;
+
+    public AlbumMembershipService(AlbumMembershipIndex albumMembershipIndex, AlbumService albumService) {
+        this.albumMembershipIndex = albumMembershipIndex;
+        this.albumService = albumService;
+    }
+
+    /**
+     * Returns the user's images that are in every album of allOf, in at least one album of anyOf,
+     * and in no album of noneOf. With inNoAlbum, images that are in any album are left out as well.
+     *
+     * @param allOf     Albums every returned image must be in (optional)
+     * @param anyOf     Albums of which a returned image must be in at least one (optional)
+     * @param noneOf    Albums no returned image may be in (optional)
+     * @param inNoAlbum Whether to keep only images in none of the user's albums
+     * @param principal Authenticated user
+     * @return Matching image ids, in ascending order
+     * @throws IllegalArgumentException if no condition is given
+     * @throws NoSuchElementException if an album is not found
+     * @throws SecurityException if an album belongs to another user
+     */
+    public long[] findImageIds(List<Long> allOf, List<Long> anyOf, List<Long> noneOf, boolean inNoAlbum,
+                               AuthenticatedUser principal) {
+        if (isEmpty(allOf) && isEmpty(anyOf) && isEmpty(noneOf) && !inNoAlbum) {
+            throw new IllegalArgumentException("Give at least one of 'allOf', 'anyOf', 'noneOf' or 'inNoAlbum'.");
+        }
+        AlbumMembershipIndex.Membership membership = membershipOf(principal.getId(), allOf, anyOf, noneOf);
+
+        Roaring64Bitmap result = membership.getImages().clone();
+        if (!isEmpty(allOf)) {
+            for (Long albumId : allOf) {
+                result.and(membership.getAlbum(albumId));
+            }
+        }
+        if (!isEmpty(anyOf)) {
+            Roaring64Bitmap union = new Roaring64Bitmap();
+            for (Long albumId : anyOf) {
+                union.or(membership.getAlbum(albumId));
+            }
+            result.and(union);
+        }
+        if (!isEmpty(noneOf)) {
+            for (Long albumId : noneOf) {
+                result.andNot(membership.getAlbum(albumId));
+            }
+        }
+        if (inNoAlbum) {
+            result.andNot(membership.inAnyAlbum());
+        }
+        return result.toArray();
+    }
+
+    /**
+     * Returns the albums of each of the given images. Images the user does not own are left out;
+     * an owned image in no album maps to an empty list.
+     *
+     * @param imageIds  Images to look up
+     * @param principal Authenticated user
+     * @return Album ids per image id, in the order the images were given, albums in ascending order
+     */
+    public Map<Long, List<Long>> findAlbumsByImageIds(List<Long> imageIds, AuthenticatedUser principal) {
+        AlbumMembershipIndex.Membership membership = albumMembershipIndex.get(principal.getId());
+        Map<Long, List<Long>> result = new LinkedHashMap<>();
+        for (Long imageId : imageIds) {
+            if (imageId != null && membership.getImages().contains(imageId)) {
+                result.computeIfAbsent(imageId, id -> membership.albumsContaining(id).stream().sorted().toList());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the user's membership, once every album given is known to be theirs.
+     * An album missing from the entry is checked against the database: another user's album
+     * or a missing one is reported as such, and an album created since the entry was built
+     * causes the entry to be rebuilt.
+     */
+    private AlbumMembershipIndex.Membership membershipOf(Long userId, List<Long> allOf, List<Long> anyOf,
+                                                         List<Long> noneOf) {
+        AlbumMembershipIndex.Membership membership = albumMembershipIndex.get(userId);
+        boolean stale = false;
+        for (List<Long> albumIds : List.of(nullToEmpty(allOf), nullToEmpty(anyOf), nullToEmpty(noneOf))) {
+            for (Long albumId : albumIds) {
+                if (albumId == null) {
+                    throw new IllegalArgumentException("Album ids cannot be null.");
+                }
+                if (membership.getAlbum(albumId) == null) {
+                    albumService.requireAlbumOwner(albumId, userId);
+                    stale = true;
+                }
+            }
+        }
+        if (!stale) {
+            return membership;
+        }
+
+        albumMembershipIndex.invalidate(userId);
+        membership = albumMembershipIndex.get(userId);
+        for (List<Long> albumIds : List.of(nullToEmpty(allOf), nullToEmpty(anyOf), nullToEmpty(noneOf))) {
+            for (Long albumId : albumIds) {
+                if (membership.getAlbum(albumId) == null) {
+                    throw new NoSuchElementException("Album not found");
+                }
+            }
+        }
+        return membership;
+    }
+
+    private static boolean isEmpty(List<Long> ids) {
+        return ids == null || ids.isEmpty();
+    }
+
+    private static List<Long> nullToEmpty(List<Long> ids) {
+        return ids == null ? List.of() : ids;
+    }
+}
@@ -0,0 +1,145 @@
+package com.personalphotomap.service;
+
+import com.personalphotomap.repository.AlbumRepository;
+import com.personalphotomap.security.AuthenticatedUser;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * AlbumOrderService
+ *
+ * Maintains the display order of the images in an album.
+ *
+ * Responsibilities:
+ * - Moves one image after another (or to the front) by giving it a position between its new
+ *   neighbours, so a drag-and-drop updates a single album_images row.
+ * - Positions are sparse (new images are 1024 apart). When a move finds no free position left
+ *   between two neighbours, the album is rebalanced on the spot; when the gap is merely getting
+ *   small, the album is queued and a scheduled job rebalances it in the background.
+ *
+ * The queue lives in memory, like the preview refresh queue; losing it on restart only
+ * postpones rebalancing until the next crowded move.
+ */
+
+@Service
+public class AlbumOrderService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlbumOrderService.class);
+
+    /**
+     * Gap left in front of the first image when an image is moved to the front.
+     */
+    static final long POSITION_GAP = 1024;
+
+    /**
+     * A move that leaves less than this between two neighbours queues the album for rebalancing.
+     */
+    static final long CROWDED_GAP = 16;
+
+    private final AlbumRepository albumRepository;
+    private final AlbumService albumService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    // Albums with a crowded gap, rebalanced by the next scheduled run
+    private final Set<Long> crowdedAlbums = ConcurrentHashMap.newKeySet();
+
+    public AlbumOrderService(AlbumRepository albumRepository, AlbumService albumService,
+            ApplicationEventPublisher eventPublisher, TransactionTemplate transactionTemplate) {
+        this.albumRepository = albumRepository;
+        this.albumService = albumService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Moves an image of an album owned by the authenticated user.
+     *
+     * @param albumId      Album identifier
+     * @param imageId      Image to move
+     * @param afterImageId Image it should follow, or null to move it to the front
+     * @param principal    Authenticated user
+     * @return The image's new position
+     * @throws NoSuchElementException if the album is not found or either image is not in it
+     * @throws SecurityException if the album belongs to another user
+     * @throws IllegalArgumentException if an image is asked to follow itself
+     */
+    @Transactional
+    public long moveImage(Long albumId, Long imageId, Long afterImageId, AuthenticatedUser principal) {
+        Long userId = principal.getId();
+        albumService.requireAlbumOwner(albumId, userId);
+        if (imageId.equals(afterImageId)) {
+            throw new IllegalArgumentException("An image cannot follow itself.");
+        }
+        if (albumRepository.findPosition(albumId, imageId) == null) {
+            throw new NoSuchElementException("Image not in album");
+        }
+
+        long position = afterImageId == null
+                ? positionAtFront(albumId, imageId)
+                : positionAfter(albumId, imageId, afterImageId);
+        albumRepository.updatePosition(albumId, imageId, position);
+
+        eventPublisher.publishEvent(new ImageLibraryChangedEvent(userId, ImageLibraryChangedEvent.Type.ALBUM));
+        return position;
+    }
+
+    private long positionAtFront(Long albumId, Long imageId) {
+        Long first = albumRepository.findFirstPosition(albumId, imageId);
+        return first == null ? albumRepository.nextPosition() : first - POSITION_GAP;
+    }
+
+    private long positionAfter(Long albumId, Long imageId, Long afterImageId) {
+        Long previous = albumRepository.findPosition(albumId, afterImageId);
+        if (previous == null) {
+            throw new NoSuchElementException("Image not in album");
+        }
+        Long next = albumRepository.findNextPosition(albumId, previous, imageId);
+        if (next == null) {
+            return albumRepository.nextPosition(); // to the end, like a newly added image
+        }
+
+        if (next - previous < 2) {
+            // No free position between the neighbours: renumber the album, then look again
+            albumRepository.rebalance(albumId);
+            previous = albumRepository.findPosition(albumId, afterImageId);
+            next = albumRepository.findNextPosition(albumId, previous, imageId);
+        }
+        if (next - previous < CROWDED_GAP) {
+            crowdedAlbums.add(albumId);
+        }
+        return previous + (next - previous) / 2;
+    }
+
+    // ===============================
+    // REBALANCING
+    // ===============================
+
+    /**
+     * Background job: rebalances every album queued since the last run, each in its own transaction.
+     * An album whose rebalance fails is queued again for the next run.
+     */
+    @Scheduled(fixedDelayString = "${photomap.albums.rebalance-delay:PT1M}")
+    public void rebalanceCrowdedAlbums() {
+        for (Long albumId : List.copyOf(crowdedAlbums)) {
+            crowdedAlbums.remove(albumId);
+            try {
+                transactionTemplate.executeWithoutResult(status -> albumRepository.rebalance(albumId));
+            } catch (Exception e) {
+                logger.warn("Failed to rebalance album {}", albumId, e);
+                crowdedAlbums.add(albumId);
+            }
+        }
+    }
+}
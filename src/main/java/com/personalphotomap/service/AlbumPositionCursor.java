@@ -0,0 +1,70 @@
+package com.personalphotomap.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * AlbumPositionCursor
+ *
+ * Position of the last image returned by an album page in display order.
+ * Album images are ordered by (position, imageId), so the pair identifies a stable position
+ * even while other images are added, removed or moved.
+ *
+ * The cursor is exposed to clients as an opaque URL-safe Base64 string.
+ */
+public final class AlbumPositionCursor {
+
+    /**
+     * Position before the first row: every album image sorts after it.
+     */
+    public static final AlbumPositionCursor START = new AlbumPositionCursor(Long.MIN_VALUE, Long.MIN_VALUE);
+
+    private final Long position;
+    private final Long imageId;
+
+    public AlbumPositionCursor(Long position, Long imageId) {
+        this.position = position;
+        this.imageId = imageId;
+    }
+
+    public Long getPosition() {
+        return position;
+    }
+
+    public Long getImageId() {
+        return imageId;
+    }
+
+    /**
+     * Encodes this position as an opaque string for the client.
+     */
+    public String encode() {
+        String raw = position + "|" + imageId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor previously produced by {@link #encode()}.
+     * A null or blank value means "start from the first image".
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static AlbumPositionCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid pagination cursor.");
+            }
+            Long position = Long.parseLong(raw.substring(0, separator));
+            Long imageId = Long.parseLong(raw.substring(separator + 1));
+            return new AlbumPositionCursor(position, imageId);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid pagination cursor.");
+        }
+    }
+}
@@ -1,16 +1,23 @@
 package com.personalphotomap.service;
 
+import com.personalphotomap.dto.AlbumFilterRequestDTO;
+import com.personalphotomap.dto.AlbumPageDTO;
 import com.personalphotomap.dto.AlbumRequestDTO;
 import com.personalphotomap.dto.AlbumResponseDTO;
 import com.personalphotomap.dto.ImageDTO;
+import com.personalphotomap.dto.ImagePageDTO;
 import com.personalphotomap.model.Album;
 import com.personalphotomap.model.AppUser;
 import com.personalphotomap.model.Image;
 import com.personalphotomap.repository.AlbumRepository;
 import com.personalphotomap.repository.ImageRepository;
 import com.personalphotomap.repository.UserRepository;
-import com.personalphotomap.security.JwtUtil;
+import com.personalphotomap.security.AuthenticatedUser;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.*;
 
@@ -25,42 +32,28 @@ public class AlbumService {
     private final AlbumRepository albumRepository;
     private final ImageRepository imageRepository;
     private final UserRepository userRepository;
-    private final JwtUtil jwtUtil;
     private final ImageService imageService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ImageZipService imageZipService;
+    private final PublicAlbumCache publicAlbumCache;
+    private final AlbumMembershipIndex albumMembershipIndex;
 
     public AlbumService(AlbumRepository albumRepository,
                         ImageRepository imageRepository,
                         UserRepository userRepository,
-                        JwtUtil jwtUtil,
-                        ImageService imageService) {
+                        ImageService imageService,
+                        ApplicationEventPublisher eventPublisher,
+                        ImageZipService imageZipService,
+                        PublicAlbumCache publicAlbumCache,
+                        AlbumMembershipIndex albumMembershipIndex) {
         this.albumRepository = albumRepository;
         this.imageRepository = imageRepository;
         this.userRepository = userRepository;
-        this.jwtUtil = jwtUtil;
         this.imageService = imageService;
-    }
-
-    /**
-     * Extracts the authenticated user from the provided JWT token.
-     *
-     * @param token JWT Authorization header (format: Bearer <token>)
-     * @return Authenticated AppUser entity
-     * @throws SecurityException if the token is invalid
-     * @throws NoSuchElementException if the user cannot be found
-     */
-
-    private AppUser getUserFromToken(String token) {
-        if (token == null || !token.startsWith("Bearer ")) {
-            throw new SecurityException("Invalid token format");
-        }
-
-        String email = jwtUtil.extractUsername(token.substring(7));
-        AppUser user = userRepository.findByEmail(email);
-        if (user == null) {
-            throw new NoSuchElementException("User not found");
-        }
-
-        return user;
+        this.eventPublisher = eventPublisher;
+        this.imageZipService = imageZipService;
+        this.publicAlbumCache = publicAlbumCache;
+        this.albumMembershipIndex = albumMembershipIndex;
     }
 
     /**
@@ -68,70 +61,128 @@ public class AlbumService {
      * Validates the image list before associating them to the album.
      *
      * @param request DTO containing album data
-     * @param token JWT token used to authenticate the user
+     * @param principal Authenticated user
      * @return AlbumResponseDTO representing the created album
      * @throws IllegalArgumentException if the request contains invalid or empty image IDs
+     * @throws NoSuchElementException if the user no longer exists
      */
-
-    public AlbumResponseDTO createAlbumFromRequest(AlbumRequestDTO request, String token) {
-        AppUser user = getUserFromToken(token);
+    @Transactional
+    public AlbumResponseDTO createAlbumFromRequest(AlbumRequestDTO request, AuthenticatedUser principal) {
+        AppUser user = userRepository.findById(principal.getId()) // served from the second-level cache
+                .orElseThrow(() -> new NoSuchElementException("User not found"));
 
         if (request.getImageIds() == null || request.getImageIds().isEmpty()) {
             throw new IllegalArgumentException("No images selected for the album.");
         }
 
-        List<Image> selectedImages = imageRepository.findAllById(request.getImageIds());
+        List<Image> selectedImages = new ArrayList<>(imageRepository.findAllById(request.getImageIds()));
 
         if (selectedImages.size() != request.getImageIds().size()) {
             throw new IllegalArgumentException("Some provided image IDs are invalid.");
         }
+        // Rows are inserted in list order, which becomes the album's display order
+        Map<Long, Integer> requestOrder = new HashMap<>();
+        for (Long imageId : request.getImageIds()) {
+            requestOrder.putIfAbsent(imageId, requestOrder.size());
+        }
+        selectedImages.sort(Comparator.comparing(image -> requestOrder.get(image.getId())));
 
         Album album = new Album(request.getAlbumName(), request.getCountryId());
         album.setUser(user);
         album.setImages(selectedImages);
 
         Album saved = albumRepository.save(album);
+        albumMembershipIndex.recordImagesAdded(user.getId(), saved.getId(),
+                selectedImages.stream().map(Image::getId).toList());
+        eventPublisher.publishEvent(new ImageLibraryChangedEvent(user.getId(), ImageLibraryChangedEvent.Type.ALBUM));
         return convertToDTO(saved);
     }
 
+    /**
+     * Creates a new album for the authenticated user from a filter over their images.
+     * The album row is inserted, then filled by one INSERT ... SELECT in the database,
+     * so no image id travels to the client or back whatever the size of the album.
+     *
+     * @param request Album name and country, and the optional year, upload date range and source album
+     * @param principal Authenticated user
+     * @return AlbumResponseDTO representing the created album
+     * @throws IllegalArgumentException if the filter is invalid or matches no image
+     * @throws NoSuchElementException if the source album is not found
+     * @throws SecurityException if the source album belongs to another user
+     */
+    @Transactional
+    public AlbumResponseDTO createAlbumFromFilter(AlbumFilterRequestDTO request, AuthenticatedUser principal) {
+        Long userId = principal.getId();
+        if (request.getFrom() != null && request.getTo() != null && !request.getFrom().isBefore(request.getTo())) {
+            throw new IllegalArgumentException("'from' must be before 'to'.");
+        }
+        if (request.getSourceAlbumId() != null) {
+            requireAlbumOwner(request.getSourceAlbumId(), userId);
+        }
+
+        Album album = new Album(request.getAlbumName(), request.getCountryId());
+        album.setUser(userRepository.getReferenceById(userId));
+        album.setImages(new ArrayList<>());
+        Album saved = albumRepository.saveAndFlush(album);
+
+        int added = albumRepository.addImagesMatching(saved.getId(), userId, request.getCountryId(),
+                request.getYear(), request.getFrom(), request.getTo(), request.getSourceAlbumId());
+        if (added == 0) {
+            throw new IllegalArgumentException("No images match the filter."); // rolls the album back
+        }
+
+        albumMembershipIndex.invalidate(userId); // the images were picked by the database
+
+        eventPublisher.publishEvent(new ImageLibraryChangedEvent(userId, ImageLibraryChangedEvent.Type.ALBUM));
+        return new AlbumResponseDTO(saved.getId(), saved.getName(), saved.getCountryId(), userId, added);
+    }
+
     /**
      * Retrieves all albums created by the authenticated user.
      *
-     * @param token JWT token used for authentication
+     * @param principal Authenticated user
      * @return List of AlbumResponseDTOs belonging to the user
      */
 
-    public List<AlbumResponseDTO> getAlbumsByUserDTO(String token) {
-        AppUser user = getUserFromToken(token);
-        List<Album> albums = albumRepository.findByUser(user);
-        return convertToDTOList(albums);
+    @Transactional(readOnly = true)
+    public List<AlbumResponseDTO> getAlbumsByUserDTO(AuthenticatedUser principal) {
+        return albumRepository.findAlbumDTOsByUserId(principal.getId());
     }
 
     /**
      * Retrieves all albums created by the authenticated user for a specific country.
      *
      * @param countryId Country ISO code
-     * @param token JWT token used for authentication
+     * @param principal Authenticated user
      * @return List of AlbumResponseDTOs filtered by country
      */
 
-    public List<AlbumResponseDTO> getAlbumsByCountryAndUserDTO(String countryId, String token) {
-        AppUser user = getUserFromToken(token);
-        List<Album> albums = albumRepository.findByCountryIdAndUser(countryId, user);
-        return convertToDTOList(albums);
+    @Transactional(readOnly = true)
+    public List<AlbumResponseDTO> getAlbumsByCountryAndUserDTO(String countryId, AuthenticatedUser principal) {
+        return albumRepository.findAlbumDTOsByCountryIdAndUserId(countryId, principal.getId());
     }
 
     /**
-     * Retrieves all albums available for a given country.
+     * Returns the public album listing of a country as JSON, from the shared response cache.
      * This method is intended for public access and does not require authentication.
+     * Without a limit or cursor the whole listing is returned, otherwise one keyset page.
+     * A cache hit opens no transaction and reads nothing from the database.
      *
      * @param countryId Country ISO code
-     * @return List of AlbumResponseDTOs related to the country
+     * @param cursor    Opaque cursor returned by the previous page, or null
+     * @param limit     Requested page size, or null
+     * @return Serialized list of AlbumResponseDTOs, or of an AlbumPageDTO when paged
+     * @throws IllegalArgumentException if the cursor or page size is invalid
      */
-
-    public List<AlbumResponseDTO> getAlbumsByCountryDTO(String countryId) {
-        List<Album> albums = albumRepository.findByCountryId(countryId);
-        return convertToDTOList(albums);
+    public byte[] getAlbumsByCountryJson(String countryId, String cursor, Integer limit) {
+        if (limit == null && cursor == null) {
+            return publicAlbumCache.get(countryId, null, 0, () -> albumRepository.findAlbumDTOsByCountryId(countryId));
+        }
+        long afterId = decodeAlbumCursor(cursor);
+        int pageSize = imageService.resolvePageSize(limit);
+        return publicAlbumCache.get(countryId, afterId, pageSize, () -> toAlbumPage(
+                albumRepository.findAlbumDTOPageByCountryId(countryId, afterId, PageRequest.of(0, pageSize + 1)),
+                pageSize));
     }
 
     /**
@@ -142,11 +193,108 @@ public class AlbumService {
      * @throws NoSuchElementException if the album is not found
      */
 
+    @Transactional(readOnly = true)
     public List<ImageDTO> getImagesByAlbumDTO(Long albumId) {
-        Album album = albumRepository.findById(albumId)
+        if (albumRepository.findById(albumId).isEmpty()) { // served from the second-level cache
+            throw new NoSuchElementException("Album not found");
+        }
+
+        return imageRepository.findImageDTOsByAlbumId(albumId);
+    }
+
+    /**
+     * Retrieves one keyset page of an album's images.
+     * Only the requested page is read and projected; no album or image entity is loaded.
+     *
+     * @param albumId Album identifier
+     * @param cursor  Opaque cursor returned by the previous page, or null for the first page
+     * @param limit   Requested page size, or null for the default
+     * @param sort    "position" (default, the album's display order), "newest" or "oldest"
+     * @return Page of ImageDTOs belonging to the album
+     * @throws NoSuchElementException if the album is not found
+     * @throws IllegalArgumentException if the cursor, page size or sort order is invalid
+     */
+    @Transactional(readOnly = true)
+    public ImagePageDTO getImagesByAlbumPage(Long albumId, String cursor, Integer limit, String sort) {
+        if (albumRepository.findById(albumId).isEmpty()) { // served from the second-level cache
+            throw new NoSuchElementException("Album not found");
+        }
+
+        ImageSortOrder order = ImageSortOrder.parse(sort, ImageSortOrder.POSITION);
+        int pageSize = imageService.resolvePageSize(limit);
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+
+        if (order == ImageSortOrder.POSITION) {
+            AlbumPositionCursor after = AlbumPositionCursor.decode(cursor);
+            List<ImageDTO> rows = imageRepository.findPageByAlbumIdInPosition(albumId,
+                    after.getPosition(), after.getImageId(), page);
+            return toPositionPage(rows, pageSize);
+        }
+
+        ImageCursor position = ImageCursor.decode(cursor, order);
+        List<ImageDTO> rows = order == ImageSortOrder.OLDEST
+                ? imageRepository.findPageByAlbumIdAscending(albumId, position.getUploadDate(), position.getId(), page)
+                : imageRepository.findPageByAlbumId(albumId, position.getUploadDate(), position.getId(), page);
+        return imageService.toPage(rows, pageSize);
+    }
+
+    /**
+     * Retrieves one keyset page of an album owned by the authenticated user.
+     * Ownership is checked against the cached album, so a page of another user's album is never read.
+     *
+     * @param albumId   Album identifier
+     * @param cursor    Opaque cursor returned by the previous page, or null for the first page
+     * @param limit     Requested page size, or null for the default
+     * @param sort      "position" (default), "newest" or "oldest"
+     * @param principal Authenticated user resolved from the JWT
+     * @return Page of ImageDTOs belonging to the album
+     * @throws NoSuchElementException if the album is not found
+     * @throws SecurityException if the album belongs to another user
+     * @throws IllegalArgumentException if the cursor, page size or sort order is invalid
+     */
+    @Transactional(readOnly = true)
+    public ImagePageDTO getUserAlbumImagesPage(Long albumId, String cursor, Integer limit, String sort,
+                                               AuthenticatedUser principal) {
+        Long userId = principal.getId();
+        Album album = albumRepository.findById(albumId) // served from the second-level cache
                 .orElseThrow(() -> new NoSuchElementException("Album not found"));
+        if (!album.getUser().getId().equals(userId)) {
+            throw new SecurityException("You are not authorized to view this album");
+        }
 
-        return imageService.convertToDTOList(album.getImages());
+        return getImagesByAlbumPage(albumId, cursor, limit, sort);
+    }
+
+    /**
+     * Builds a page in display order from rows fetched with one extra element.
+     */
+    private static ImagePageDTO toPositionPage(List<ImageDTO> rows, int pageSize) {
+        if (rows.size() <= pageSize) {
+            return new ImagePageDTO(rows, null);
+        }
+        List<ImageDTO> pageRows = List.copyOf(rows.subList(0, pageSize));
+        ImageDTO last = pageRows.get(pageSize - 1);
+        return new ImagePageDTO(pageRows, new AlbumPositionCursor(last.getPosition(), last.getId()).encode());
+    }
+
+    /**
+     * Returns a ZIP download of an album owned by the authenticated user.
+     * The image list is loaded before the response starts; photos are copied from S3 while it is written.
+     *
+     * @param albumId Album identifier
+     * @param principal Authenticated user
+     * @return Body that writes the archive to the response
+     * @throws NoSuchElementException if the album is not found or has no images
+     * @throws SecurityException if the album belongs to another user
+     */
+
+    public StreamingResponseBody downloadAlbum(Long albumId, AuthenticatedUser principal) {
+        requireAlbumOwner(albumId, principal.getId());
+        List<ImageDTO> images = imageRepository.findImageDTOsByAlbumId(albumId);
+        if (images.isEmpty()) {
+            throw new NoSuchElementException("Album has no images");
+        }
+        return out -> imageZipService.writeZip(images, out);
     }
 
     /**
@@ -154,53 +302,158 @@ public class AlbumService {
      * Verifies ownership before deletion.
      *
      * @param albumId Album identifier
-     * @param token JWT token used to authenticate the user
+     * @param principal Authenticated user
      * @throws SecurityException if the album does not belong to the authenticated user
      * @throws NoSuchElementException if the album is not found
      */
-
-    public void deleteAlbum(Long albumId, String token) {
-        AppUser user = getUserFromToken(token);
+    @Transactional
+    public void deleteAlbum(Long albumId, AuthenticatedUser principal) {
+        Long userId = principal.getId();
 
         Album album = albumRepository.findById(albumId)
                 .orElseThrow(() -> new NoSuchElementException("Album not found"));
 
-        validateAlbumOwnership(user, album);
+        validateAlbumOwnership(userId, album);
 
         // Clear image association to avoid foreign key constraint issues
         album.getImages().clear();
         albumRepository.save(album);
         albumRepository.delete(album);
+        albumMembershipIndex.recordAlbumDeleted(userId, albumId);
+        eventPublisher.publishEvent(new ImageLibraryChangedEvent(userId, ImageLibraryChangedEvent.Type.ALBUM));
+    }
+
+    /**
+     * Adds images to an album owned by the authenticated user with one INSERT ... SELECT.
+     * Images already in the album, missing, or owned by someone else are skipped;
+     * the cost depends on the number of ids sent, not on the size of the album.
+     *
+     * @param albumId Album identifier
+     * @param imageIds Images to add
+     * @param principal Authenticated user
+     * @return Number of images added
+     * @throws NoSuchElementException if the album is not found
+     * @throws SecurityException if the album does not belong to the authenticated user
+     */
+    @Transactional
+    public int addImagesToAlbum(Long albumId, List<Long> imageIds, AuthenticatedUser principal) {
+        Long userId = principal.getId();
+        requireAlbumOwner(albumId, userId);
+
+        int added = albumRepository.addImages(albumId, userId, toIdArray(imageIds));
+        if (added > 0) {
+            albumMembershipIndex.recordImagesAdded(userId, albumId, imageIds);
+            eventPublisher.publishEvent(new ImageLibraryChangedEvent(userId, ImageLibraryChangedEvent.Type.ALBUM));
+        }
+        return added;
+    }
+
+    /**
+     * Removes images from an album owned by the authenticated user with one DELETE.
+     * The album is kept even when it ends up empty.
+     *
+     * @param albumId Album identifier
+     * @param imageIds Images to remove
+     * @param principal Authenticated user
+     * @return Number of images removed
+     * @throws NoSuchElementException if the album is not found
+     * @throws SecurityException if the album does not belong to the authenticated user
+     */
+    @Transactional
+    public int removeImagesFromAlbum(Long albumId, List<Long> imageIds, AuthenticatedUser principal) {
+        Long userId = principal.getId();
+        requireAlbumOwner(albumId, userId);
+
+        int removed = albumRepository.removeImages(albumId, userId, toIdArray(imageIds));
+        if (removed > 0) {
+            albumMembershipIndex.recordImagesRemoved(userId, albumId, imageIds);
+            eventPublisher.publishEvent(new ImageLibraryChangedEvent(userId, ImageLibraryChangedEvent.Type.ALBUM));
+        }
+        return removed;
+    }
+
+    /**
+     * Checks the cached album before writing, so a missing or foreign album is reported as such.
+     * The membership statements enforce ownership again on their own.
+     */
+    void requireAlbumOwner(Long albumId, Long userId) {
+        Album album = albumRepository.findById(albumId) // served from the second-level cache
+                .orElseThrow(() -> new NoSuchElementException("Album not found"));
+        if (!album.getUser().getId().equals(userId)) {
+            throw new SecurityException("You are not authorized to access this album");
+        }
+    }
+
+    private static Long[] toIdArray(List<Long> imageIds) {
+        if (imageIds == null || imageIds.isEmpty()) {
+            throw new IllegalArgumentException("No images selected.");
+        }
+        return imageIds.stream().filter(Objects::nonNull).distinct().toArray(Long[]::new);
     }
 
     /**
      * Validates that the album belongs to the authenticated user.
      *
-     * @param user Authenticated user
+     * @param userId Authenticated user's id
      * @param album Album to validate
      * @throws SecurityException if ownership does not match
      */
 
-    private void validateAlbumOwnership(AppUser user, Album album) {
-        if (!album.getUser().getId().equals(user.getId())) {
+    private void validateAlbumOwnership(Long userId, Album album) {
+        if (!album.getUser().getId().equals(userId)) {
             throw new SecurityException("You are not authorized to delete this album");
         }
     }
 
     /**
-     * Retrieves all albums in the system.
+     * Returns the listing of every album as JSON, from the shared response cache.
      * Intended for administrative or analytical use only.
+     * Without a limit or cursor the whole listing is returned, otherwise one keyset page.
      *
-     * @return List of all albums converted to AlbumResponseDTO
+     * @param cursor Opaque cursor returned by the previous page, or null
+     * @param limit  Requested page size, or null
+     * @return Serialized list of AlbumResponseDTOs, or of an AlbumPageDTO when paged
+     * @throws IllegalArgumentException if the cursor or page size is invalid
+     */
+    public byte[] getAllAlbumsJson(String cursor, Integer limit) {
+        if (limit == null && cursor == null) {
+            return publicAlbumCache.get(null, null, 0, albumRepository::findAllAlbumDTOs);
+        }
+        long afterId = decodeAlbumCursor(cursor);
+        int pageSize = imageService.resolvePageSize(limit);
+        return publicAlbumCache.get(null, afterId, pageSize, () -> toAlbumPage(
+                albumRepository.findAllAlbumDTOPage(afterId, PageRequest.of(0, pageSize + 1)), pageSize));
+    }
+
+    /**
+     * Album pages continue after the last album id returned; no cursor starts before the first album.
      */
+    private static long decodeAlbumCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+    }
 
-    public List<AlbumResponseDTO> getAllAlbumsDTO() {
-        List<Album> albums = albumRepository.findAll();
-        return convertToDTOList(albums);
+    /**
+     * Builds a page from rows fetched with one extra element, which only signals that another page exists.
+     */
+    private static AlbumPageDTO toAlbumPage(List<AlbumResponseDTO> rows, int pageSize) {
+        if (rows.size() <= pageSize) {
+            return new AlbumPageDTO(rows, null);
+        }
+        List<AlbumResponseDTO> pageRows = rows.subList(0, pageSize);
+        return new AlbumPageDTO(List.copyOf(pageRows), Long.toString(pageRows.get(pageSize - 1).getId()));
     }
 
     /**
      * Converts an Album entity to its corresponding AlbumResponseDTO.
+     * Counting initializes the images collection, so this is only meant for albums whose images
+     * are already loaded; listings read their counts from AlbumRepository's aggregate queries.
      *
      * @param album Album entity
      * @return DTO representation of the album
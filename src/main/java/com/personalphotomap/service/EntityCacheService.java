@@ -0,0 +1,118 @@
+package com.personalphotomap.service;
+
+import com.personalphotomap.model.Album;
+import com.personalphotomap.model.AppUser;
+import com.personalphotomap.repository.UserRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * EntityCacheService
+ *
+ * Explicit control over the Hibernate second-level and query cache.
+ *
+ * Responsibilities:
+ * - Evicts a user (and the email lookups) after the user is updated or deleted. Hibernate already
+ *   keeps READ_WRITE entries in step with its own writes; this covers changes made around it
+ *   and makes the eviction independent of how the change was written.
+ * - Reports hit, miss and put counts for each cache region.
+ *
+ * Evictions run once the current transaction commits, so a concurrent read
+ * cannot put the old row back in the meantime.
+ */
+
+@Service
+public class EntityCacheService {
+
+    private static final List<String> ENTITY_REGIONS = List.of(AppUser.CACHE_REGION, Album.CACHE_REGION);
+    private static final List<String> QUERY_REGIONS = List.of(UserRepository.EMAIL_QUERY_REGION);
+
+    private final SessionFactory sessionFactory;
+
+    public EntityCacheService(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    // ===============================
+    // EVICTION
+    // ===============================
+
+    /**
+     * Drops a user and every cached email lookup.
+     */
+    public void evictUser(Long userId) {
+        afterCommit(() -> {
+            sessionFactory.getCache().evictEntityData(AppUser.class, userId);
+            sessionFactory.getCache().evictQueryRegion(UserRepository.EMAIL_QUERY_REGION);
+        });
+    }
+
+    /**
+     * Drops every cached user and album, and every cached query result.
+     */
+    public void evictAll() {
+        afterCommit(() -> {
+            sessionFactory.getCache().evictEntityData(AppUser.class);
+            sessionFactory.getCache().evictEntityData(Album.class);
+            sessionFactory.getCache().evictQueryRegions();
+        });
+    }
+
+    // ===============================
+    // STATISTICS
+    // ===============================
+
+    /**
+     * Hit, miss and put counts of each region, since startup.
+     * Region sizes are not reported, as JCache does not expose them.
+     * Counts stay at zero unless hibernate.generate_statistics is enabled.
+     */
+    public Map<String, Map<String, Object>> getRegionStatistics() {
+        Statistics statistics = sessionFactory.getStatistics();
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (String region : ENTITY_REGIONS) {
+            result.put(region, toMap(statistics.getDomainDataRegionStatistics(region)));
+        }
+        for (String region : QUERY_REGIONS) {
+            result.put(region, toMap(statistics.getQueryRegionStatistics(region)));
+        }
+        return result;
+    }
+
+    private static Map<String, Object> toMap(CacheRegionStatistics region) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (region == null) {
+            return result; // query regions only exist once a cached query has run
+        }
+        long requests = region.getHitCount() + region.getMissCount();
+        result.put("hitCount", region.getHitCount());
+        result.put("missCount", region.getMissCount());
+        result.put("putCount", region.getPutCount());
+        result.put("hitRate", requests == 0 ? 1.0 : (double) region.getHitCount() / requests);
+        return result;
+    }
+
+    private static void afterCommit(Runnable eviction) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eviction.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eviction.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,104 @@
+package com.personalphotomap.service;
+
+/**
+ * Geohash encoding of capture coordinates.
+ *
+ * A geohash interleaves longitude and latitude bits into a base-32 string; every extra character
+ * narrows the cell, and points in the same cell share a prefix. Images store a full-precision hash,
+ * so clustering can group by a prefix and bounding boxes can be turned into a prefix range.
+ */
+public final class Geohash {
+
+    /**
+     * Characters stored for each image (cells of a few centimetres).
+     */
+    public static final int MAX_PRECISION = 12;
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private Geohash() {
+    }
+
+    /**
+     * Encodes a point to a geohash of the given number of characters.
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0;
+        int index = 0;
+
+        while (hash.length() < precision) {
+            if (evenBit) {
+                double mid = (minLon + maxLon) / 2;
+                if (longitude >= mid) {
+                    index = (index << 1) | 1;
+                    minLon = mid;
+                } else {
+                    index = index << 1;
+                    maxLon = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    index = (index << 1) | 1;
+                    minLat = mid;
+                } else {
+                    index = index << 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+
+            if (++bit == 5) {
+                hash.append(BASE32[index]);
+                bit = 0;
+                index = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Full-precision geohash of a capture location, or null when the image has no coordinates.
+     */
+    public static String of(Double latitude, Double longitude) {
+        if (latitude == null || longitude == null) {
+            return null;
+        }
+        return encode(latitude, longitude, MAX_PRECISION);
+    }
+
+    /**
+     * Longest prefix shared by the geohashes of two opposite corners of a box.
+     * Every point inside the box has a geohash starting with it.
+     */
+    public static String commonPrefix(double south, double west, double north, double east) {
+        String a = encode(south, west, MAX_PRECISION);
+        String b = encode(north, east, MAX_PRECISION);
+        int length = 0;
+        while (length < MAX_PRECISION && a.charAt(length) == b.charAt(length)) {
+            length++;
+        }
+        return a.substring(0, length);
+    }
+
+    /**
+     * Exclusive upper bound of the geohashes starting with the prefix, for a range scan.
+     * '~' sorts after every geohash character.
+     */
+    public static String prefixUpperBound(String prefix) {
+        return prefix + "~";
+    }
+
+    /**
+     * Prefix length used to cluster at a map zoom level: roughly four cells across a 256px tile,
+     * so clusters sit about 64px apart on screen.
+     */
+    public static int precisionForZoom(int zoom) {
+        int precision = (int) Math.round((zoom + 2) / 2.5);
+        return Math.max(1, Math.min(MAX_PRECISION, precision));
+    }
+}
@@ -0,0 +1,92 @@
+package com.personalphotomap.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * ImageCursor
+ *
+ * Position of the last image returned by a keyset-paginated listing.
+ * Images are ordered by (uploadDate DESC, id DESC), or ascending where a listing offers it,
+ * so the pair (uploadDate, id) identifies a stable position even while new images are uploaded.
+ *
+ * The cursor is exposed to clients as an opaque URL-safe Base64 string.
+ */
+public final class ImageCursor {
+
+    /**
+     * Position before the first row: every stored image sorts after it.
+     */
+    public static final ImageCursor START =
+            new ImageCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    /**
+     * Position before the first row of an ascending listing: every stored image sorts after it.
+     */
+    public static final ImageCursor START_ASCENDING =
+            new ImageCursor(LocalDateTime.of(1, 1, 1, 0, 0), Long.MIN_VALUE);
+
+    private final LocalDateTime uploadDate;
+    private final Long id;
+
+    public ImageCursor(LocalDateTime uploadDate, Long id) {
+        this.uploadDate = uploadDate;
+        this.id = id;
+    }
+
+    public LocalDateTime getUploadDate() {
+        return uploadDate;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Encodes this position as an opaque string for the client.
+     */
+    public String encode() {
+        String raw = uploadDate + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor of a listing in the given order.
+     * A null or blank value means "start from the first image" of that order.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static ImageCursor decode(String cursor, ImageSortOrder order) {
+        if (order == ImageSortOrder.OLDEST && (cursor == null || cursor.isBlank())) {
+            return START_ASCENDING;
+        }
+        return decode(cursor);
+    }
+
+    /**
+     * Decodes a cursor previously produced by {@link #encode()}.
+     * A null or blank value means "start from the newest image".
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static ImageCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid pagination cursor.");
+            }
+            LocalDateTime uploadDate = LocalDateTime.parse(raw.substring(0, separator));
+            Long id = Long.parseLong(raw.substring(separator + 1));
+            return new ImageCursor(uploadDate, id);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid pagination cursor.");
+        }
+    }
+}
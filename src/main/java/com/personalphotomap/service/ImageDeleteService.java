@@ -1,15 +1,20 @@
 package com.personalphotomap.service;
 
-import com.personalphotomap.model.Album;
+import com.personalphotomap.dto.AlbumResponseDTO;
 import com.personalphotomap.model.Image;
 import com.personalphotomap.repository.AlbumRepository;
 import com.personalphotomap.repository.ImageRepository;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 
 /**
  * ImageDeleteService
@@ -17,10 +22,11 @@ import java.util.concurrent.CompletableFuture;
  * Service responsible for handling asynchronous and safe deletion of images.
  *
  * Responsibilities:
- * - Removes image references from all associated albums.
+ * - Removes image references from all associated albums, found through the album membership index.
  * - Deletes albums that become empty after image removal.
  * - Deletes image files from Amazon S3.
- * - Deletes image records from the database.
+ * - Deletes image records from the database and updates the user's photo counters
+ *   in the same transaction.
  * - Supports bulk deletion in parallel using CompletableFuture and @Async.
  *
  * This class is used to decouple deletion logic from the main ImageService,
@@ -33,41 +39,137 @@ public class ImageDeleteService {
     private final S3Service s3Service;
     private final ImageRepository imageRepository;
     private final AlbumRepository albumRepository;
+    private final ImageStatsService imageStatsService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AlbumMembershipIndex albumMembershipIndex;
 
-    public ImageDeleteService(S3Service s3Service, ImageRepository imageRepository, AlbumRepository albumRepository) {
+    public ImageDeleteService(S3Service s3Service, ImageRepository imageRepository, AlbumRepository albumRepository,
+            ImageStatsService imageStatsService, TransactionTemplate transactionTemplate,
+            ApplicationEventPublisher eventPublisher, AlbumMembershipIndex albumMembershipIndex) {
         this.s3Service = s3Service;
         this.imageRepository = imageRepository;
         this.albumRepository = albumRepository;
+        this.imageStatsService = imageStatsService;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.albumMembershipIndex = albumMembershipIndex;
     }
 
+    /**
+     * Deletes the file from S3, then removes the image from its albums, deletes the row
+     * and decrements the photo counters in one transaction.
+     * An image that was already deleted concurrently is skipped, so counters are never decremented twice.
+     */
     @Async
     public CompletableFuture<Void> deleteImage(Image image) {
         try {
-            List<Album> albums = albumRepository.findByImageId(image.getId());
-            for (Album album : albums) {
-                if (album.getImages().removeIf(img -> img.getId().equals(image.getId()))) {
-                    if (album.getImages().isEmpty()) {
-                        albumRepository.delete(album);
-                    } else {
-                        albumRepository.save(album);
-                    }
-                }
+            Removal removal = delete(image);
+            if (removal != null) {
+                albumMembershipIndex.recordImagesDeleted(removal.userId(), List.of(removal.imageId()),
+                        removal.deletedAlbumIds());
             }
-
-            s3Service.deleteFile(image.getFilePath());
-            imageRepository.delete(image);
-
             return CompletableFuture.completedFuture(null);
         } catch (Exception e) {
             return CompletableFuture.failedFuture(e);
         }
     }
 
+    /**
+     * Deletes one image as described above.
+     *
+     * @return What was removed, or null if the image was already deleted
+     */
+    private Removal delete(Image image) {
+        s3Service.deleteFile(image.getFilePath());
+
+        return transactionTemplate.execute(status ->
+                imageRepository.findById(image.getId()).map(managed -> {
+                    Long userId = managed.getUser().getId();
+                    List<Long> deletedAlbumIds = removeFromAlbums(managed, userId);
+                    if (deletedAlbumIds != null) {
+                        eventPublisher.publishEvent(
+                                new ImageLibraryChangedEvent(userId, ImageLibraryChangedEvent.Type.ALBUM));
+                    }
+                    imageRepository.delete(managed);
+                    imageStatsService.recordDelete(managed);
+                    eventPublisher.publishEvent(
+                            new ImageLibraryChangedEvent(userId, ImageLibraryChangedEvent.Type.DELETE));
+                    return new Removal(userId, managed.getId(),
+                            deletedAlbumIds == null ? List.of() : deletedAlbumIds);
+                }).orElse(null));
+    }
+
+    /**
+     * Removes the image from every album that contains it, deleting albums left empty.
+     * Only the image's own membership rows are deleted; rewriting the albums' image lists
+     * would reinsert every other row and lose their display order.
+     *
+     * The albums to check come from the membership index instead of a query per image.
+     * If the index disagrees with the number of rows deleted, every album of the user is checked instead.
+     *
+     * @return Ids of the albums deleted, or null if no album contained the image
+     */
+    private List<Long> removeFromAlbums(Image image, Long userId) {
+        List<Long> albumIds = albumMembershipIndex.get(userId).albumsContaining(image.getId());
+        int removed = albumRepository.removeImageFromAllAlbums(image.getId());
+        if (removed == 0) {
+            return null;
+        }
+
+        List<Long> deletedAlbumIds = new ArrayList<>();
+        if (removed == albumIds.size()) {
+            for (Long albumId : albumIds) {
+                if (!albumRepository.hasImages(albumId)) {
+                    albumRepository.deleteById(albumId);
+                    deletedAlbumIds.add(albumId);
+                }
+            }
+        } else {
+            for (AlbumResponseDTO album : albumRepository.findAlbumDTOsByUserId(userId)) {
+                if (album.getNumberOfImages() == 0) {
+                    albumRepository.deleteById(album.getId());
+                    deletedAlbumIds.add(album.getId());
+                }
+            }
+            albumMembershipIndex.invalidate(userId);
+        }
+        return deletedAlbumIds;
+    }
+
+    /**
+     * Deletes several images, each in its own transaction, then records them in the album
+     * membership index with one update per user instead of one per image.
+     */
     public void deleteImagesInParallel(List<Image> images) {
-        List<CompletableFuture<Void>> futures = images.stream()
-                .map(this::deleteImage)
-                .toList();
+        List<Removal> removals = new ArrayList<>();
+        RuntimeException failure = null;
+        for (Image image : images) {
+            try {
+                Removal removal = delete(image);
+                if (removal != null) {
+                    removals.add(removal);
+                }
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+
+        // Record what did get deleted, even if some images failed
+        removals.stream().collect(Collectors.groupingBy(Removal::userId)).forEach((userId, userRemovals) ->
+                albumMembershipIndex.recordImagesDeleted(userId,
+                        userRemovals.stream().map(Removal::imageId).toList(),
+                        userRemovals.stream().flatMap(removal -> removal.deletedAlbumIds().stream()).toList()));
+
+        if (failure != null) {
+            throw new CompletionException(failure);
+        }
+    }
 
-        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+    private record Removal(Long userId, Long imageId, List<Long> deletedAlbumIds) {
     }
 }
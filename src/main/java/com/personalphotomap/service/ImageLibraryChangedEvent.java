@@ -0,0 +1,45 @@
+package com.personalphotomap.service;
+
+/**
+ * ImageLibraryChangedEvent
+ *
+ * Published whenever a user's photo library changes, so derived per-user data
+ * (cached counters, library versions) can be dropped.
+ *
+ * Publishers raise it inside the transaction that makes the change;
+ * listeners should use @TransactionalEventListener so they react only once it commits.
+ */
+public class ImageLibraryChangedEvent {
+
+    public enum Type {
+        UPLOAD,
+        DELETE,
+        ALBUM,
+        LOCATION,
+        REBUILD
+    }
+
+    private final Long userId;
+    private final Type type;
+
+    /**
+     * @param userId Owner of the library that changed, or null when every user is affected
+     * @param type   Kind of change
+     */
+    public ImageLibraryChangedEvent(Long userId, Type type) {
+        this.userId = userId;
+        this.type = type;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public boolean isAllUsers() {
+        return userId == null;
+    }
+}
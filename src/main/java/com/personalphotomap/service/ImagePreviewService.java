@@ -0,0 +1,336 @@
+package com.personalphotomap.service;
+
+import com.personalphotomap.dto.ImageDTO;
+import com.personalphotomap.dto.ImagePreviewDTO;
+import com.personalphotomap.model.Album;
+import com.personalphotomap.model.ImagePreview;
+import com.personalphotomap.repository.AlbumRepository;
+import com.personalphotomap.repository.ImagePreviewRepository;
+import com.personalphotomap.repository.ImageRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * ImagePreviewService
+ *
+ * Builds the previews shown in the country grid and the album list, so a whole grid
+ * renders from one listing request and one sprite image per tile instead of one full photo per tile.
+ *
+ * Responsibilities:
+ * - For each country and album of a user, keeps a cover thumbnail and a sprite sheet
+ *   of the first thumbnails in S3 (most recent first for countries, in display order for albums),
+ *   plus the tile offset of each image. Reordering an album rebuilds its preview.
+ * - Marks a user dirty when an ImageLibraryChangedEvent for an upload, delete or album change commits;
+ *   a scheduled job then refreshes that user's previews in the background.
+ * - Only rebuilds a preview when the images it is made of have changed,
+ *   and drops previews of countries and albums that no longer exist.
+ */
+
+@Service
+public class ImagePreviewService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImagePreviewService.class);
+
+    private final ImagePreviewRepository imagePreviewRepository;
+    private final ImageRepository imageRepository;
+    private final AlbumRepository albumRepository;
+    private final ImageStatsService imageStatsService;
+    private final S3Service s3Service;
+
+    private final int spriteTiles;
+    private final int spriteColumns;
+    private final int tileSize;
+    private final int coverSize;
+
+    // Users whose previews must be refreshed by the next run of the job
+    private final Set<Long> dirtyUsers = ConcurrentHashMap.newKeySet();
+
+    public ImagePreviewService(ImagePreviewRepository imagePreviewRepository,
+            ImageRepository imageRepository,
+            AlbumRepository albumRepository,
+            ImageStatsService imageStatsService,
+            S3Service s3Service,
+            @Value("${photomap.previews.sprite-tiles:16}") int spriteTiles,
+            @Value("${photomap.previews.sprite-columns:4}") int spriteColumns,
+            @Value("${photomap.previews.tile-size:128}") int tileSize,
+            @Value("${photomap.previews.cover-size:400}") int coverSize) {
+        this.imagePreviewRepository = imagePreviewRepository;
+        this.imageRepository = imageRepository;
+        this.albumRepository = albumRepository;
+        this.imageStatsService = imageStatsService;
+        this.s3Service = s3Service;
+        this.spriteTiles = spriteTiles;
+        this.spriteColumns = spriteColumns;
+        this.tileSize = tileSize;
+        this.coverSize = coverSize;
+    }
+
+    // ===============================
+    // READS
+    // ===============================
+
+    /**
+     * Returns every country and album preview of a user.
+     * A user without any preview yet (e.g. data from before previews existed) is queued for generation.
+     */
+    public List<ImagePreviewDTO> getPreviews(Long userId) {
+        List<ImagePreview> previews = imagePreviewRepository.findByUserId(userId);
+        if (previews.isEmpty()) {
+            dirtyUsers.add(userId);
+        }
+        return previews.stream().map(this::toDTO).collect(Collectors.toList());
+    }
+
+    // ===============================
+    // REFRESH
+    // ===============================
+
+    /**
+     * Queues the user's previews for a refresh once a membership change commits.
+     * Counter rebuilds do not change membership and are ignored.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLibraryChanged(ImageLibraryChangedEvent event) {
+        if (event.isAllUsers() || event.getType() == ImageLibraryChangedEvent.Type.REBUILD) {
+            return;
+        }
+        dirtyUsers.add(event.getUserId());
+    }
+
+    /**
+     * Background job: refreshes the previews of every user changed since the last run.
+     * A user whose refresh fails is queued again for the next run.
+     */
+    @Scheduled(fixedDelayString = "${photomap.previews.refresh-delay:PT30S}")
+    public void refreshDirtyUsers() {
+        for (Long userId : List.copyOf(dirtyUsers)) {
+            dirtyUsers.remove(userId);
+            try {
+                refreshUser(userId);
+            } catch (Exception e) {
+                logger.warn("Failed to refresh previews of user {}", userId, e);
+                dirtyUsers.add(userId);
+            }
+        }
+    }
+
+    /**
+     * Brings every country and album preview of a user in line with its current images.
+     */
+    public void refreshUser(Long userId) {
+        Map<String, ImagePreview> existing = new HashMap<>();
+        for (ImagePreview preview : imagePreviewRepository.findByUserId(userId)) {
+            existing.put(preview.getScope() + ":" + preview.getScopeKey(), preview);
+        }
+
+        for (String countryId : imageStatsService.getCountriesWithPhotos(userId)) {
+            List<ImageDTO> images = imageRepository.findPageByCountryIdAndUserId(countryId, userId,
+                    ImageCursor.START.getUploadDate(), ImageCursor.START.getId(), PageRequest.of(0, spriteTiles));
+            refresh(userId, ImagePreview.Scope.COUNTRY, countryId, images, existing);
+        }
+        for (Album album : albumRepository.findByUserId(userId)) {
+            List<ImageDTO> images = imageRepository.findPageByAlbumIdInPosition(album.getId(),
+                    AlbumPositionCursor.START.getPosition(), AlbumPositionCursor.START.getImageId(),
+                    PageRequest.of(0, spriteTiles));
+            refresh(userId, ImagePreview.Scope.ALBUM, album.getId().toString(), images, existing);
+        }
+
+        // Whatever is left belongs to countries and albums that are gone
+        for (ImagePreview stale : existing.values()) {
+            imagePreviewRepository.delete(stale);
+            deleteObjects(stale.getCoverUrl(), stale.getSpriteUrl());
+        }
+    }
+
+    private void refresh(Long userId, ImagePreview.Scope scope, String key, List<ImageDTO> images,
+            Map<String, ImagePreview> existing) {
+        if (images.isEmpty()) {
+            return; // an existing preview is dropped with the stale ones
+        }
+        ImagePreview preview = existing.remove(scope + ":" + key);
+
+        String membership = joinIds(images.stream().map(ImageDTO::getId).toList());
+        if (preview != null && membership.equals(preview.getMembership())) {
+            return;
+        }
+        if (preview == null) {
+            preview = new ImagePreview(userId, scope, key);
+        }
+
+        String oldCover = preview.getCoverUrl();
+        String oldSprite = preview.getSpriteUrl();
+        render(preview, images);
+        preview.setMembership(membership);
+        preview.setUpdatedAt(LocalDateTime.now());
+        imagePreviewRepository.save(preview);
+        deleteObjects(oldCover, oldSprite);
+    }
+
+    // ===============================
+    // RENDERING
+    // ===============================
+
+    /**
+     * Draws the cover and the sprite sheet of a preview and uploads both to S3.
+     * Images that cannot be read or decoded are left out of the sprite.
+     */
+    private void render(ImagePreview preview, List<ImageDTO> images) {
+        List<Long> drawnIds = new ArrayList<>();
+        List<BufferedImage> tiles = new ArrayList<>();
+        BufferedImage cover = null;
+
+        for (ImageDTO image : images) {
+            BufferedImage source = read(image.getFilePath(), cover == null ? coverSize : tileSize);
+            if (source == null) {
+                continue;
+            }
+            if (cover == null) {
+                cover = squareThumbnail(source, coverSize);
+            }
+            tiles.add(squareThumbnail(source, tileSize));
+            drawnIds.add(image.getId());
+        }
+
+        int columns = Math.max(1, Math.min(spriteColumns, tiles.size()));
+        int rows = Math.max(1, (tiles.size() + columns - 1) / columns);
+        BufferedImage sprite = new BufferedImage(columns * tileSize, rows * tileSize, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = sprite.createGraphics();
+        try {
+            for (int i = 0; i < tiles.size(); i++) {
+                graphics.drawImage(tiles.get(i), (i % columns) * tileSize, (i / columns) * tileSize, null);
+            }
+        } finally {
+            graphics.dispose();
+        }
+
+        String prefix = "preview-" + preview.getUserId() + "-" + preview.getScope().name().toLowerCase()
+                + "-" + preview.getScopeKey() + "-" + System.currentTimeMillis();
+        preview.setCoverUrl(cover == null ? null : s3Service.uploadBytes(toJpeg(cover), prefix + "-cover.jpg", "image/jpeg"));
+        preview.setSpriteUrl(tiles.isEmpty() ? null : s3Service.uploadBytes(toJpeg(sprite), prefix + "-sprite.jpg", "image/jpeg"));
+        preview.setTileSize(tileSize);
+        preview.setSpriteColumns(columns);
+        preview.setImageIds(joinIds(drawnIds));
+    }
+
+    /**
+     * Decodes an image from S3, subsampled so its short side stays at or above the target size.
+     * Returns null when the object is missing or not a readable image.
+     */
+    private BufferedImage read(String fileUrl, int targetSize) {
+        try (InputStream in = s3Service.openFile(fileUrl);
+             ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int shortSide = Math.min(reader.getWidth(0), reader.getHeight(0));
+                int step = Math.max(1, shortSide / targetSize);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        } catch (Exception e) {
+            logger.debug("Skipping unreadable image {} in preview", fileUrl, e);
+            return null;
+        }
+    }
+
+    /**
+     * Center-crops an image to a square and scales it to size x size.
+     */
+    private static BufferedImage squareThumbnail(BufferedImage source, int size) {
+        int side = Math.min(source.getWidth(), source.getHeight());
+        int x = (source.getWidth() - side) / 2;
+        int y = (source.getHeight() - side) / 2;
+
+        BufferedImage thumbnail = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, size, size);
+            graphics.drawImage(source, 0, 0, size, size, x, y, x + side, y + side, null);
+        } finally {
+            graphics.dispose();
+        }
+        return thumbnail;
+    }
+
+    private static byte[] toJpeg(BufferedImage image) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(image, "jpg", out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode preview", e);
+        }
+    }
+
+    private void deleteObjects(String... fileUrls) {
+        for (String fileUrl : fileUrls) {
+            if (fileUrl == null) {
+                continue;
+            }
+            try {
+                s3Service.deleteFile(fileUrl);
+            } catch (Exception e) {
+                logger.warn("Failed to delete old preview {}", fileUrl, e);
+            }
+        }
+    }
+
+    // ===============================
+    // HELPERS
+    // ===============================
+
+    private ImagePreviewDTO toDTO(ImagePreview preview) {
+        Map<Long, int[]> offsets = new LinkedHashMap<>();
+        List<Long> ids = splitIds(preview.getImageIds());
+        int columns = Math.max(1, preview.getSpriteColumns());
+        for (int i = 0; i < ids.size(); i++) {
+            offsets.put(ids.get(i), new int[] {
+                    (i % columns) * preview.getTileSize(),
+                    (i / columns) * preview.getTileSize() });
+        }
+        return new ImagePreviewDTO(preview.getScope().name(), preview.getScopeKey(), preview.getCoverUrl(),
+                preview.getSpriteUrl(), preview.getTileSize(), offsets);
+    }
+
+    private static String joinIds(List<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+
+    private static List<Long> splitIds(String ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.stream(ids.split(",")).map(Long::valueOf).toList();
+    }
+}
@@ -1,19 +1,28 @@
 package com.personalphotomap.service;
 
+import com.personalphotomap.dto.ImageClusterDTO;
 import com.personalphotomap.dto.ImageDTO;
+import com.personalphotomap.dto.ImagePageDTO;
+import com.personalphotomap.dto.ImagePreviewDTO;
+import com.personalphotomap.dto.MapSummaryDTO;
 import com.personalphotomap.model.AppUser;
 import com.personalphotomap.model.Image;
 import com.personalphotomap.repository.ImageRepository;
 import com.personalphotomap.repository.UserRepository;
-import com.personalphotomap.security.JwtUtil;
+import com.personalphotomap.security.AuthenticatedUser;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
@@ -26,9 +35,13 @@ import java.util.stream.Collectors;
  * Responsibilities:
  * - Handles upload of images to S3 and saves metadata to the database.
  * - Provides methods to retrieve images by country, year, and user.
+ * - Streams very large listings through ImageStreamService instead of building them in memory.
+ * - Builds ZIP downloads of a country or year through ImageZipService.
+ * - Serves the country and album previews built in the background by ImagePreviewService.
+ * - Stores capture coordinates and clusters geotagged images for the map.
  * - Supports asynchronous and secure deletion of single or multiple images.
  * - Converts Image entities to DTOs for API responses.
- * - Extracts and validates authenticated user from JWT tokens.
+ * - Scopes every operation to the authenticated principal resolved by the JWT filter.
  *
  * This service acts as the main interface between the image controller layer and persistence layer,
  * ensuring business logic is centralized and reusable.
@@ -37,41 +50,44 @@ import java.util.stream.Collectors;
 @Service
 public class ImageService {
 
+    /**
+     * Page size used when a client asks for pagination without a limit.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    /**
+     * Upper bound for the page size a client can request.
+     */
+    public static final int MAX_PAGE_SIZE = 500;
+
     private final ImageRepository imageRepository;
     private final UserRepository userRepository;
-    private final JwtUtil jwtUtil;
     private final ImageUploadService imageUploadService;
     private final ImageDeleteService imageDeleteService;
+    private final ImageStatsService imageStatsService;
+    private final ImageStreamService imageStreamService;
+    private final ImageZipService imageZipService;
+    private final ImagePreviewService imagePreviewService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public ImageService(ImageRepository imageRepository,
             UserRepository userRepository,
-            JwtUtil jwtUtil,
             ImageUploadService imageUploadService,
-            ImageDeleteService imageDeleteService) {
+            ImageDeleteService imageDeleteService,
+            ImageStatsService imageStatsService,
+            ImageStreamService imageStreamService,
+            ImageZipService imageZipService,
+            ImagePreviewService imagePreviewService,
+            ApplicationEventPublisher eventPublisher) {
         this.imageRepository = imageRepository;
         this.userRepository = userRepository;
-        this.jwtUtil = jwtUtil;
         this.imageUploadService = imageUploadService;
         this.imageDeleteService = imageDeleteService;
-    }
-
-    /**
-     * Extracts the AppUser associated with the provided JWT token.
-     * Centralized method for token validation and user retrieval.
-     */
-
-    public AppUser getUserFromToken(String token) { // after testing make it private again
-        String email = jwtUtil.extractUsernameFromToken(token);
-        if (email == null) {
-            throw new IllegalArgumentException("Invalid or missing JWT token.");
-        }
-
-        AppUser user = userRepository.findByEmail(email);
-        if (user == null) {
-            throw new IllegalArgumentException("User Not Found.");
-        }
-
-        return user;
+        this.imageStatsService = imageStatsService;
+        this.imageStreamService = imageStreamService;
+        this.imageZipService = imageZipService;
+        this.imagePreviewService = imagePreviewService;
+        this.eventPublisher = eventPublisher;
     }
 
     // ===============================
@@ -85,19 +101,29 @@ public class ImageService {
      * @return list of uploaded image URLs
      */
 
-    public List<String> handleUpload(List<MultipartFile> files, String countryId, int year, String token) {
-        AppUser user = getUserFromToken(token);
+    public List<String> handleUpload(List<MultipartFile> files, String countryId, int year, AuthenticatedUser principal) {
+        return handleUpload(files, countryId, year, null, null, principal);
+    }
+
+    /**
+     * Same as handleUpload, with capture coordinates given by the client for every file.
+     * When they are null, each file's EXIF GPS location is used if present.
+     */
+    public List<String> handleUpload(List<MultipartFile> files, String countryId, int year,
+            Double latitude, Double longitude, AuthenticatedUser principal) {
+        AppUser user = findUser(principal);
 
         if (files == null || files.isEmpty()) {
             throw new IllegalArgumentException("No files were provided.");
         }
+        validateCoordinates(latitude, longitude);
 
         List<CompletableFuture<String>> futures = new ArrayList<>();
         for (MultipartFile file : files) {
             if (file == null || file.isEmpty()) {
                 throw new IllegalArgumentException("One or more files are empty.");
             }
-            futures.add(imageUploadService.uploadAndSaveImage(file, countryId, year, user));
+            futures.add(imageUploadService.uploadAndSaveImage(file, countryId, year, user, latitude, longitude));
         }
 
         CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
@@ -108,6 +134,16 @@ public class ImageService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Loads the user entity behind the authenticated principal, for uploads, which store a reference to it.
+     * Served from the second-level cache.
+     */
+
+    private AppUser findUser(AuthenticatedUser principal) {
+        return userRepository.findById(principal.getId())
+                .orElseThrow(() -> new IllegalArgumentException("User Not Found."));
+    }
+
     // ===============================
     // DELETE METHODS
     // ===============================
@@ -117,10 +153,10 @@ public class ImageService {
      * Uses async deletion for better performance.
      */
 
-    public void deleteAllImagesByCountry(String countryId, String token) { // ✅
-        AppUser user = getUserFromToken(token);
+    public void deleteAllImagesByCountry(String countryId, AuthenticatedUser principal) { // ✅
+        Long userId = principal.getId();
 
-        List<Image> images = imageRepository.findByCountryIdAndUserId(countryId, user.getId());
+        List<Image> images = imageRepository.findByCountryIdAndUserId(countryId, userId);
         if (images.isEmpty()) {
             return;
         }
@@ -133,12 +169,12 @@ public class ImageService {
      * Currently not used on frontend but kept for potential future use.
      */
 
-    public void deleteImagesByCountryAndYear(String countryId, int year, String token) { // ✅ ANALIZAR PQ NAO TENHO
+    public void deleteImagesByCountryAndYear(String countryId, int year, AuthenticatedUser principal) { // ✅ ANALIZAR PQ NAO TENHO
                                                                                          // BOTAO PARA DELETAR POR
                                                                                          // IMAGEM E ANO NO FRONT
-        AppUser user = getUserFromToken(token);
+        Long userId = principal.getId();
 
-        List<Image> images = imageRepository.findByCountryIdAndYearAndUserId(countryId, year, user.getId());
+        List<Image> images = imageRepository.findByCountryIdAndYearAndUserId(countryId, year, userId);
         if (images.isEmpty()) {
             return;
         }
@@ -150,12 +186,12 @@ public class ImageService {
      * Deletes a single image by ID if it belongs to the authenticated user.
      */
 
-    public void deleteImageById(Long imageId, String token) { // ✅
-        AppUser user = getUserFromToken(token);
+    public void deleteImageById(Long imageId, AuthenticatedUser principal) { // ✅
+        Long userId = principal.getId();
         Image image = imageRepository.findById(imageId)
                 .orElseThrow(() -> new IllegalArgumentException("Image not found."));
 
-        if (!image.getUser().getId().equals(user.getId())) {
+        if (!image.getUser().getId().equals(userId)) {
             throw new SecurityException("You do not have permission to delete this image.");
         }
 
@@ -167,15 +203,15 @@ public class ImageService {
      * user.
      */
 
-    public void deleteMultipleImages(List<Long> imageIds, String token) { // ✅
-        AppUser user = getUserFromToken(token);
+    public void deleteMultipleImages(List<Long> imageIds, AuthenticatedUser principal) { // ✅
+        Long userId = principal.getId();
         List<Image> imagesToDelete = imageRepository.findAllById(imageIds);
 
         if (imagesToDelete.isEmpty())
             return;
 
         boolean hasUnauthorized = imagesToDelete.stream()
-                .anyMatch(img -> !img.getUser().getId().equals(user.getId()));
+                .anyMatch(img -> !img.getUser().getId().equals(userId));
 
         if (hasUnauthorized) {
             throw new SecurityException("You do not have permission to delete one or more images.");
@@ -192,74 +228,105 @@ public class ImageService {
      * Returns all images associated with a country for the authenticated user.
      */
 
-    public List<ImageDTO> getImagesByCountry(String countryId, String token) { // ✅
-        AppUser user = getUserFromToken(token);
-        List<Image> images = imageRepository.findByCountryIdAndUserId(countryId, user.getId());
-        return convertToDTOList(images);
+    @Transactional(readOnly = true)
+    public List<ImageDTO> getImagesByCountry(String countryId, AuthenticatedUser principal) { // ✅
+        Long userId = principal.getId();
+        return imageRepository.findImageDTOsByCountryIdAndUserId(countryId, userId);
     }
 
     /**
      * Returns the list of distinct countries where the user has uploaded photos.
+     * Served from the per-user photo counters.
      */
 
-    public List<String> getCountriesWithPhotos(String token) { // ✅
-        AppUser user = getUserFromToken(token);
-        return imageRepository.findDistinctCountryIdsByUserId(user.getId());
+    @Transactional(readOnly = true)
+    public List<String> getCountriesWithPhotos(AuthenticatedUser principal) { // ✅
+        Long userId = principal.getId();
+        return imageStatsService.getCountriesWithPhotos(userId);
     }
 
     /**
      * Returns a list of distinct years the user has uploaded photos for.
+     * Served from the per-user photo counters.
      */
 
-    public List<Integer> getAvailableYears(String token) { // ✅
-        AppUser user = getUserFromToken(token);
-        return imageRepository.findDistinctYearsByUserId(user.getId());
+    @Transactional(readOnly = true)
+    public List<Integer> getAvailableYears(AuthenticatedUser principal) { // ✅
+        Long userId = principal.getId();
+        return imageStatsService.getAvailableYears(userId);
     }
 
     /**
      * Returns all images from the authenticated user, optionally filtered by year.
      */
     
-    public List<ImageDTO> getAllImages(String token, Integer year) { // ✅
-        AppUser user = getUserFromToken(token);
+    @Transactional(readOnly = true)
+    public List<ImageDTO> getAllImages(AuthenticatedUser principal, Integer year) { // ✅
+        Long userId = principal.getId();
 
-        List<Image> images;
         if (year != null) {
-            images = imageRepository.findByUserIdAndYear(user.getId(), year);
-        } else {
-            images = imageRepository.findByUserIdOrderByUploadDateDesc(user.getId());
+            return imageRepository.findImageDTOsByUserIdAndYear(userId, year);
         }
+        return imageRepository.findImageDTOsByUserIdOrderByUploadDateDesc(userId);
+    }
 
-        return convertToDTOList(images);
+    /**
+     * Same listing as getAllImages, written to the response as rows are read.
+     * The user id is read here, before the response starts.
+     */
+    public StreamingResponseBody streamAllImages(AuthenticatedUser principal, Integer year, ImageStreamService.Format format) {
+        Long userId = principal.getId();
+        return out -> imageStreamService.writeAllImages(userId, year, format, out);
     }
 
     /**
      * Returns the list of available years for a specific country.
+     * Served from the per-user photo counters.
      */
-    public List<Integer> getYearsByCountry(String countryId, String token) { // ✅
-        AppUser user = getUserFromToken(token);
-        return imageRepository.findDistinctYearsByCountryIdAndUserId(countryId, user.getId());
+    @Transactional(readOnly = true)
+    public List<Integer> getYearsByCountry(String countryId, AuthenticatedUser principal) { // ✅
+        Long userId = principal.getId();
+        return imageStatsService.getYearsByCountry(countryId, userId);
     }
 
     /**
      * Returns all images from a specific country and year for the authenticated
      * user.
      */
-    public List<ImageDTO> getImagesByCountryAndYear(String countryId, int year, String token) { // ✅
-        AppUser user = getUserFromToken(token);
-        List<Image> images = imageRepository.findByCountryIdAndYearAndUserId(countryId, year, user.getId());
-        return convertToDTOList(images);
+    @Transactional(readOnly = true)
+    public List<ImageDTO> getImagesByCountryAndYear(String countryId, int year, AuthenticatedUser principal) { // ✅
+        Long userId = principal.getId();
+        return imageRepository.findImageDTOsByCountryIdAndYearAndUserId(countryId, year, userId);
+    }
+
+    /**
+     * Returns a ZIP download of the user's images for a country, optionally limited to one year.
+     * The image list is loaded here, so empty selections surface before the
+     * response starts; the photos themselves are copied from S3 while the archive is written.
+     *
+     * @throws NoSuchElementException if there are no images to download
+     */
+    public StreamingResponseBody downloadImagesByCountry(String countryId, Integer year, AuthenticatedUser principal) {
+        List<ImageDTO> images = year != null
+                ? getImagesByCountryAndYear(countryId, year, principal)
+                : getImagesByCountry(countryId, principal);
+        if (images.isEmpty()) {
+            throw new NoSuchElementException("No images found.");
+        }
+        return out -> imageZipService.writeZip(images, out);
     }
 
     /**
      * Returns a summary containing the total number of photos and distinct
      * countries.
+     * Served from the per-user photo counters.
      */
-    public Map<String, Object> countUserPhotosAndCountries(String token) { // ✅
-        AppUser user = getUserFromToken(token);
+    @Transactional(readOnly = true)
+    public Map<String, Object> countUserPhotosAndCountries(AuthenticatedUser principal) { // ✅
+        Long userId = principal.getId();
 
-        long photoCount = imageRepository.countByUserId(user.getId());
-        long countryCount = imageRepository.countDistinctCountryByUserId(user.getId());
+        long photoCount = imageStatsService.getPhotoCount(userId);
+        long countryCount = imageStatsService.getCountryCount(userId);
 
         Map<String, Object> response = new HashMap<>();
         response.put("photoCount", photoCount);
@@ -267,6 +334,183 @@ public class ImageService {
         return response;
     }
 
+    /**
+     * Returns totals, years and per-country, per-year photo counts in one response,
+     * so the map can render after a single request.
+     */
+    @Transactional(readOnly = true)
+    public MapSummaryDTO getMapSummary(AuthenticatedUser principal) {
+        Long userId = principal.getId();
+        return imageStatsService.getMapSummary(userId);
+    }
+
+    /**
+     * Cover thumbnails and sprite sheets of the user's countries and albums.
+     */
+    @Transactional(readOnly = true)
+    public List<ImagePreviewDTO> getPreviews(AuthenticatedUser principal) {
+        Long userId = principal.getId();
+        return imagePreviewService.getPreviews(userId);
+    }
+
+    // ===============================
+    // LOCATION METHODS
+    // ===============================
+
+    /**
+     * Sets or clears the capture coordinates of one of the user's images.
+     * Publishes a LOCATION change, delivered once the update commits, so the library version
+     * (and with it the ETags of cached listings and clusters) moves on and the user's previews are refreshed.
+     */
+    @Transactional
+    public void updateImageLocation(Long imageId, Double latitude, Double longitude, AuthenticatedUser principal) {
+        Long userId = principal.getId();
+        validateCoordinates(latitude, longitude);
+
+        Image image = imageRepository.findById(imageId)
+                .orElseThrow(() -> new IllegalArgumentException("Image not found."));
+        if (!image.getUser().getId().equals(userId)) {
+            throw new SecurityException("You do not have permission to edit this image.");
+        }
+
+        image.setLatitude(latitude);
+        image.setLongitude(longitude);
+        image.setGeohash(Geohash.of(latitude, longitude));
+        imageRepository.save(image);
+        eventPublisher.publishEvent(new ImageLibraryChangedEvent(userId, ImageLibraryChangedEvent.Type.LOCATION));
+    }
+
+    /**
+     * Returns the user's geotagged images inside a bounding box, grouped into map clusters.
+     * The cluster size follows the zoom level; a box crossing the antimeridian (west > east)
+     * is split in two.
+     */
+    @Transactional(readOnly = true)
+    public List<ImageClusterDTO> getClusters(double south, double west, double north, double east, int zoom,
+            AuthenticatedUser principal) {
+        Long userId = principal.getId();
+        validateCoordinates(south, west);
+        validateCoordinates(north, east);
+        if (south > north) {
+            throw new IllegalArgumentException("South must not be greater than north.");
+        }
+        if (zoom < 0) {
+            throw new IllegalArgumentException("Zoom must not be negative.");
+        }
+
+        int precision = Geohash.precisionForZoom(zoom);
+        if (west > east) {
+            List<ImageClusterDTO> clusters = new ArrayList<>(findClusters(userId, south, west, north, 180, precision));
+            clusters.addAll(findClusters(userId, south, -180, north, east, precision));
+            return clusters;
+        }
+        return findClusters(userId, south, west, north, east, precision);
+    }
+
+    private List<ImageClusterDTO> findClusters(Long userId, double south, double west, double north, double east,
+            int precision) {
+        String prefix = Geohash.commonPrefix(south, west, north, east);
+        return imageRepository.findClusters(userId, prefix, Geohash.prefixUpperBound(prefix),
+                south, west, north, east, precision);
+    }
+
+    /**
+     * Coordinates are optional, but must come as a pair of valid decimal degrees.
+     */
+    private void validateCoordinates(Double latitude, Double longitude) {
+        if (latitude == null && longitude == null) {
+            return;
+        }
+        if (latitude == null || longitude == null) {
+            throw new IllegalArgumentException("Latitude and longitude must be provided together.");
+        }
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Coordinates are out of range.");
+        }
+    }
+
+    // ===============================
+    // PAGINATED GET METHODS
+    // ===============================
+
+    /**
+     * Returns one keyset page of the authenticated user's images, optionally filtered by year.
+     */
+    @Transactional(readOnly = true)
+    public ImagePageDTO getAllImagesPage(AuthenticatedUser principal, Integer year, String cursor, Integer limit) {
+        Long userId = principal.getId();
+        ImageCursor position = ImageCursor.decode(cursor);
+        int pageSize = resolvePageSize(limit);
+
+        List<ImageDTO> rows;
+        if (year != null) {
+            rows = imageRepository.findPageByUserIdAndYear(userId, year,
+                    position.getUploadDate(), position.getId(), PageRequest.of(0, pageSize + 1));
+        } else {
+            rows = imageRepository.findPageByUserId(userId,
+                    position.getUploadDate(), position.getId(), PageRequest.of(0, pageSize + 1));
+        }
+
+        return toPage(rows, pageSize);
+    }
+
+    /**
+     * Returns one keyset page of the authenticated user's images for a country.
+     */
+    @Transactional(readOnly = true)
+    public ImagePageDTO getImagesByCountryPage(String countryId, AuthenticatedUser principal, String cursor, Integer limit) {
+        Long userId = principal.getId();
+        ImageCursor position = ImageCursor.decode(cursor);
+        int pageSize = resolvePageSize(limit);
+
+        List<ImageDTO> rows = imageRepository.findPageByCountryIdAndUserId(countryId, userId,
+                position.getUploadDate(), position.getId(), PageRequest.of(0, pageSize + 1));
+        return toPage(rows, pageSize);
+    }
+
+    /**
+     * Returns one keyset page of the authenticated user's images for a country and year.
+     */
+    @Transactional(readOnly = true)
+    public ImagePageDTO getImagesByCountryAndYearPage(String countryId, int year, AuthenticatedUser principal,
+            String cursor, Integer limit) {
+        Long userId = principal.getId();
+        ImageCursor position = ImageCursor.decode(cursor);
+        int pageSize = resolvePageSize(limit);
+
+        List<ImageDTO> rows = imageRepository.findPageByCountryIdAndYearAndUserId(countryId, year, userId,
+                position.getUploadDate(), position.getId(), PageRequest.of(0, pageSize + 1));
+        return toPage(rows, pageSize);
+    }
+
+    /**
+     * Validates the requested page size and applies the default and upper bound.
+     */
+    public int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1.");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Builds a page from rows fetched with one extra element.
+     * The extra row only signals that another page exists and is not returned.
+     */
+    public ImagePageDTO toPage(List<ImageDTO> rows, int pageSize) {
+        if (rows.size() <= pageSize) {
+            return new ImagePageDTO(rows, null);
+        }
+
+        List<ImageDTO> pageRows = rows.subList(0, pageSize);
+        ImageDTO last = pageRows.get(pageSize - 1);
+        String nextCursor = new ImageCursor(last.getUploadDate(), last.getId()).encode();
+        return new ImagePageDTO(pageRows, nextCursor);
+    }
+
     // ===============================
     // CONVERSION HELPERS
     // ===============================
@@ -0,0 +1,30 @@
+package com.personalphotomap.service;
+
+import java.util.Locale;
+
+/**
+ * Order of a keyset-paginated image listing: by (uploadDate, id), or by the album's own
+ * display order for album listings.
+ */
+public enum ImageSortOrder {
+
+    NEWEST,
+    OLDEST,
+    POSITION;
+
+    /**
+     * Parses the "sort" request parameter. A null or blank value means the listing's default order.
+     *
+     * @throws IllegalArgumentException if the value is not a known order
+     */
+    public static ImageSortOrder parse(String value, ImageSortOrder defaultOrder) {
+        if (value == null || value.isBlank()) {
+            return defaultOrder;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid sort order. Use 'position', 'newest' or 'oldest'.");
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.personalphotomap.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.personalphotomap.dto.CountrySummaryDTO;
+import com.personalphotomap.dto.MapSummaryDTO;
+import com.personalphotomap.model.Image;
+import com.personalphotomap.model.ImageStat;
+import com.personalphotomap.repository.ImageStatRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.transaction.Transactional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * ImageStatsService
+ *
+ * Maintains and serves the per-user photo counters stored in the image_stats table.
+ *
+ * Responsibilities:
+ * - Increments / decrements the (user, country, year) counter for every image insert and delete.
+ *   These methods require the caller's transaction, so a counter never diverges from the image row.
+ * - Answers the count, countries and years queries from the counters,
+ *   whose size depends on the number of trips, not on the number of photos.
+ * - Keeps each user's counters in a bounded in-memory cache, dropped when an
+ *   ImageLibraryChangedEvent for that user commits. The TTL is only a safety net.
+ * - Rebuilds counters from the images table to repair drift.
+ */
+
+@Service
+public class ImageStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageStatsService.class);
+
+    private static final String CACHE_NAME = "imageStats";
+
+    private final ImageStatRepository imageStatRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Cache<Long, UserStats> cache;
+
+    public ImageStatsService(ImageStatRepository imageStatRepository,
+            ApplicationEventPublisher eventPublisher,
+            MeterRegistry meterRegistry,
+            @Value("${photomap.stats-cache.maximum-size:10000}") long maximumSize,
+            @Value("${photomap.stats-cache.expire-after-write:PT1H}") Duration expireAfterWrite) {
+        this.imageStatRepository = imageStatRepository;
+        this.eventPublisher = eventPublisher;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    // ===============================
+    // MAINTENANCE (caller's transaction)
+    // ===============================
+
+    /**
+     * Counts a newly inserted image. Must run in the transaction that inserts it.
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void recordUpload(Image image) {
+        if (image.getCountryId() == null) {
+            return;
+        }
+        imageStatRepository.increment(image.getUser().getId(), image.getCountryId(), image.getYear(), 1);
+    }
+
+    /**
+     * Uncounts a deleted image. Must run in the transaction that deletes it.
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void recordDelete(Image image) {
+        if (image.getCountryId() == null) {
+            return;
+        }
+        Long userId = image.getUser().getId();
+        imageStatRepository.decrement(userId, image.getCountryId(), image.getYear(), 1);
+        imageStatRepository.deleteIfEmpty(userId, image.getCountryId(), image.getYear());
+    }
+
+    // ===============================
+    // READS
+    // ===============================
+
+    public long getPhotoCount(Long userId) {
+        return stats(userId).photoCount;
+    }
+
+    public long getCountryCount(Long userId) {
+        return stats(userId).countsByCountry.size();
+    }
+
+    public List<String> getCountriesWithPhotos(Long userId) {
+        return List.copyOf(stats(userId).countsByCountry.keySet());
+    }
+
+    /**
+     * Distinct years, most recent first.
+     */
+    public List<Integer> getAvailableYears(Long userId) {
+        return stats(userId).years;
+    }
+
+    /**
+     * Years of one country, oldest first.
+     */
+    public List<Integer> getYearsByCountry(String countryId, Long userId) {
+        SortedMap<Integer, Long> counts = stats(userId).countsByCountry.get(countryId);
+        return counts == null ? List.of() : List.copyOf(counts.keySet());
+    }
+
+    /**
+     * Totals, years and per-country, per-year counts in one response.
+     * The counters are the (country, year) groups of the user's images, read with a single query.
+     */
+    public MapSummaryDTO getMapSummary(Long userId) {
+        UserStats stats = stats(userId);
+        List<CountrySummaryDTO> countries = new ArrayList<>(stats.countsByCountry.size());
+        stats.countsByCountry.forEach((countryId, counts) -> countries.add(new CountrySummaryDTO(
+                countryId,
+                counts.values().stream().mapToLong(Long::longValue).sum(),
+                counts)));
+        return new MapSummaryDTO(stats.photoCount, countries.size(), stats.years, countries);
+    }
+
+    /**
+     * Loads all counters of a user with one query and keeps them cached.
+     * An invalidation issued while the load runs waits for it and then removes the loaded entry.
+     */
+    private UserStats stats(Long userId) {
+        return cache.get(userId, id -> new UserStats(imageStatRepository.findByUserId(id)));
+    }
+
+    // ===============================
+    // CACHE
+    // ===============================
+
+    /**
+     * Drops cached counters once the change that made them stale has committed.
+     * Events published outside a transaction are applied immediately.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLibraryChanged(ImageLibraryChangedEvent event) {
+        if (event.isAllUsers()) {
+            cache.invalidateAll();
+        } else {
+            cache.invalidate(event.getUserId());
+        }
+    }
+
+    /**
+     * Cache effectiveness since startup, to help size photomap.stats-cache.maximum-size.
+     * The same figures are published as the cache.* meters tagged cache=imageStats.
+     */
+    public Map<String, Object> getCacheStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        return result;
+    }
+
+    // ===============================
+    // DRIFT REPAIR
+    // ===============================
+
+    /**
+     * Recomputes the counters of one user from the images table.
+     *
+     * @return number of (country, year) counters written
+     */
+    @Transactional
+    public int rebuildForUser(Long userId) {
+        imageStatRepository.lockForRebuild();
+        imageStatRepository.deleteByUserId(userId);
+        int rows = imageStatRepository.rebuildForUser(userId);
+        eventPublisher.publishEvent(new ImageLibraryChangedEvent(userId, ImageLibraryChangedEvent.Type.REBUILD));
+        logger.info("Rebuilt {} photo counters for user {}", rows, userId);
+        return rows;
+    }
+
+    /**
+     * Recomputes every counter from the images table.
+     *
+     * @return number of counters written
+     */
+    @Transactional
+    public int rebuildAll() {
+        imageStatRepository.lockForRebuild();
+        imageStatRepository.deleteAllStats();
+        int rows = imageStatRepository.rebuildAll();
+        eventPublisher.publishEvent(new ImageLibraryChangedEvent(null, ImageLibraryChangedEvent.Type.REBUILD));
+        logger.info("Rebuilt {} photo counters for all users", rows);
+        return rows;
+    }
+
+    /**
+     * Read-only view of one user's counters.
+     */
+    private static final class UserStats {
+
+        private final long photoCount;
+        private final List<Integer> years;
+        private final SortedMap<String, SortedMap<Integer, Long>> countsByCountry;
+
+        UserStats(List<ImageStat> rows) {
+            long total = 0;
+            SortedSet<Integer> distinctYears = new TreeSet<>(Comparator.reverseOrder());
+            SortedMap<String, SortedMap<Integer, Long>> byCountry = new TreeMap<>();
+            for (ImageStat row : rows) {
+                total += row.getPhotoCount();
+                distinctYears.add(row.getYear());
+                byCountry.computeIfAbsent(row.getCountryId(), key -> new TreeMap<>())
+                        .put(row.getYear(), row.getPhotoCount());
+            }
+            byCountry.replaceAll((country, counts) -> Collections.unmodifiableSortedMap(counts));
+
+            this.photoCount = total;
+            this.years = List.copyOf(distinctYears);
+            this.countsByCountry = Collections.unmodifiableSortedMap(byCountry);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.personalphotomap.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.personalphotomap.dto.ImageDTO;
+import com.personalphotomap.repository.ImageRepository;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * ImageStreamService
+ *
+ * Writes large image listings straight to the response while they are read from the database.
+ *
+ * Responsibilities:
+ * - Reads ImageDTO rows through a server-side cursor (ImageRepository.STREAM_FETCH_SIZE rows per fetch)
+ *   inside a read-only transaction.
+ * - Serializes each row with a Jackson streaming generator as soon as it is read,
+ *   either as one JSON array or as newline-delimited JSON (one object per line).
+ *
+ * Heap use per request is bounded by the fetch size and the generator buffer,
+ * not by the number of photos the user has.
+ */
+
+@Service
+public class ImageStreamService {
+
+    public enum Format {
+        JSON_ARRAY,
+        NDJSON
+    }
+
+    private final ImageRepository imageRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ImageStreamService(ImageRepository imageRepository,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager) {
+        this.imageRepository = imageRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Writes all images of a user, most recent first, optionally filtered by year.
+     * The output stream is flushed but not closed.
+     *
+     * @return number of images written
+     */
+    public long writeAllImages(Long userId, Integer year, Format format, OutputStream out) {
+        Long written = readOnlyTransaction.execute(status -> {
+            try (Stream<ImageDTO> rows = year != null
+                    ? imageRepository.streamImageDTOsByUserIdAndYear(userId, year)
+                    : imageRepository.streamImageDTOsByUserId(userId)) {
+                return write(rows.iterator(), format, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return written != null ? written : 0;
+    }
+
+    private long write(Iterator<ImageDTO> rows, Format format, OutputStream out) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            if (format == Format.JSON_ARRAY) {
+                generator.writeStartArray();
+            }
+            while (rows.hasNext()) {
+                generator.writeObject(rows.next());
+                if (format == Format.NDJSON) {
+                    generator.writeRaw('\n');
+                }
+                count++;
+            }
+            if (format == Format.JSON_ARRAY) {
+                generator.writeEndArray();
+            }
+        }
+        out.flush();
+        return count;
+    }
+}
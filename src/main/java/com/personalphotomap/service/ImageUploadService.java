@@ -1,11 +1,17 @@
 package com.personalphotomap.service;
 
+import com.drew.imaging.ImageProcessingException;
+import com.drew.imaging.jpeg.JpegMetadataReader;
+import com.drew.lang.GeoLocation;
+import com.drew.metadata.exif.GpsDirectory;
 import org.apache.tika.Tika;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.util.StringUtils;
 
@@ -14,6 +20,7 @@ import com.personalphotomap.model.Image;
 import com.personalphotomap.repository.ImageRepository;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
@@ -26,7 +33,9 @@ import java.util.concurrent.CompletableFuture;
  * - Validates uploaded files using Apache Tika (accepts only JPEG).
  * - Renames files using UUID to ensure uniqueness.
  * - Uploads images to S3 storage.
- * - Persists image metadata (e.g. country, user, year, path) in the database.
+ * - Reads capture coordinates from EXIF GPS tags when the client did not send them.
+ * - Persists image metadata (e.g. country, user, year, path, coordinates) in the database,
+ *   together with the user's photo counters in the same transaction.
  * - Uses @Async and CompletableFuture to support parallel uploads.
  *
  * Designed to be called from ImageService, separating file handling from core logic.
@@ -43,8 +52,18 @@ public class ImageUploadService {
     @Autowired
     private ImageRepository imageRepository;
 
+    @Autowired
+    private ImageStatsService imageStatsService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Async
-    public CompletableFuture<String> uploadAndSaveImage(MultipartFile file, String countryId, int year, AppUser user) {
+    public CompletableFuture<String> uploadAndSaveImage(MultipartFile file, String countryId, int year, AppUser user,
+            Double latitude, Double longitude) {
         String threadName = Thread.currentThread().getName();
 
         try {
@@ -73,7 +92,23 @@ public class ImageUploadService {
             image.setFileName(fileName);
             image.setFilePath(fileUrl);
             image.setYear(year);
-            imageRepository.save(image);
+            image.setSizeBytes(file.getSize());
+            if (latitude == null || longitude == null) {
+                GeoLocation exif = readExifLocation(file);
+                if (exif != null) {
+                    latitude = exif.getLatitude();
+                    longitude = exif.getLongitude();
+                }
+            }
+            image.setLatitude(latitude);
+            image.setLongitude(longitude);
+            image.setGeohash(Geohash.of(latitude, longitude));
+            transactionTemplate.executeWithoutResult(status -> {
+                imageRepository.save(image);
+                imageStatsService.recordUpload(image);
+                eventPublisher.publishEvent(
+                        new ImageLibraryChangedEvent(user.getId(), ImageLibraryChangedEvent.Type.UPLOAD));
+            });
 
             return CompletableFuture.completedFuture(fileUrl);
         } catch (IOException e) {
@@ -82,4 +117,19 @@ public class ImageUploadService {
         }
     }
 
+    /**
+     * Reads the capture location from the JPEG's EXIF GPS tags.
+     *
+     * @return the location, or null if the file has none (0,0 is treated as none)
+     */
+    private GeoLocation readExifLocation(MultipartFile file) {
+        try (InputStream in = file.getInputStream()) {
+            GpsDirectory gps = JpegMetadataReader.readMetadata(in).getFirstDirectoryOfType(GpsDirectory.class);
+            GeoLocation location = gps != null ? gps.getGeoLocation() : null;
+            return location != null && !location.isZero() ? location : null;
+        } catch (ImageProcessingException | IOException e) {
+            logger.debug("No readable EXIF location in {}", file.getOriginalFilename(), e);
+            return null;
+        }
+    }
 }
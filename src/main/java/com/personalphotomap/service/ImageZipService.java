@@ -0,0 +1,161 @@
+package com.personalphotomap.service;
+
+import com.personalphotomap.dto.ImageDTO;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * ImageZipService
+ *
+ * Writes a set of images as a ZIP archive straight to an output stream.
+ *
+ * Responsibilities:
+ * - Opens the next few S3 objects ahead of the one being copied (bounded read-ahead),
+ *   so request latency overlaps with writing instead of adding up per photo.
+ * - Copies every object body into its ZIP entry as it arrives; no photo is held whole in memory or on disk.
+ * - Skips objects that cannot be opened (e.g. deleted from the bucket) and logs them.
+ *
+ * Entries are written without compression: JPEGs are already compressed, so deflating them again
+ * only costs CPU. ZipOutputStream needs the CRC of a STORED entry before its data, which would
+ * require buffering each photo, so entries use DEFLATED at level 0 (raw stored blocks) instead.
+ */
+
+@Service
+public class ImageZipService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageZipService.class);
+
+    private final S3Service s3Service;
+    private final int readAhead;
+    private final ExecutorService prefetchExecutor;
+
+    public ImageZipService(S3Service s3Service,
+            @Value("${photomap.download.read-ahead:4}") int readAhead,
+            @Value("${photomap.download.prefetch-threads:16}") int prefetchThreads) {
+        this.s3Service = s3Service;
+        this.readAhead = readAhead;
+        this.prefetchExecutor = Executors.newFixedThreadPool(prefetchThreads,
+                new CustomizableThreadFactory("zip-prefetch-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    /**
+     * Writes the images as ZIP entries named after their file names.
+     * The output stream is finished but not closed.
+     *
+     * @return number of entries written
+     */
+    public int writeZip(List<ImageDTO> images, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        zip.setMethod(ZipOutputStream.DEFLATED);
+        zip.setLevel(Deflater.NO_COMPRESSION);
+
+        Iterator<ImageDTO> pending = images.iterator();
+        Deque<Prefetch> window = new ArrayDeque<>(readAhead);
+        int written = 0;
+        try {
+            fill(window, pending);
+            while (!window.isEmpty()) {
+                Prefetch next = window.poll();
+                fill(window, pending);
+
+                try (InputStream in = next.await()) {
+                    if (in == null) {
+                        continue;
+                    }
+                    zip.putNextEntry(new ZipEntry(next.image.getFileName()));
+                    in.transferTo(zip);
+                    zip.closeEntry();
+                    written++;
+                }
+            }
+            zip.finish();
+            zip.flush();
+            return written;
+        } finally {
+            window.forEach(Prefetch::discard);
+        }
+    }
+
+    /**
+     * Starts opening objects until readAhead of them are in flight.
+     */
+    private void fill(Deque<Prefetch> window, Iterator<ImageDTO> pending) {
+        while (window.size() < readAhead && pending.hasNext()) {
+            ImageDTO image = pending.next();
+            window.add(new Prefetch(image,
+                    CompletableFuture.supplyAsync(() -> s3Service.openFile(image.getFilePath()), prefetchExecutor)));
+        }
+    }
+
+    /**
+     * An S3 object being opened in the background.
+     */
+    private static final class Prefetch {
+
+        private final ImageDTO image;
+        private final CompletableFuture<InputStream> body;
+
+        Prefetch(ImageDTO image, CompletableFuture<InputStream> body) {
+            this.image = image;
+            this.body = body;
+        }
+
+        /**
+         * Waits for the object to open.
+         *
+         * @return its body, or null if it could not be opened and should be skipped
+         */
+        InputStream await() throws IOException {
+            try {
+                return body.get();
+            } catch (ExecutionException e) {
+                logger.warn("Skipping image {} in ZIP download: {}", image.getId(), e.getCause().getMessage());
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while opening image " + image.getId());
+            }
+        }
+
+        /**
+         * Releases an object that will not be written, e.g. after the client disconnected.
+         * An object still opening is closed as soon as it opens.
+         */
+        void discard() {
+            body.thenAccept(in -> {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    logger.debug("Failed to release prefetched image {}", image.getId(), e);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.personalphotomap.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LibraryVersionService
+ *
+ * Tracks a version of each user's photo library, used as a strong ETag for listing endpoints.
+ *
+ * Responsibilities:
+ * - Bumps a user's version once an upload, delete or album change commits.
+ * - Builds ETags from the user id, the version and a per-startup epoch, with no database access.
+ *   The epoch changes on every restart, so tags issued before a restart never match afterwards.
+ *
+ * Versions live in memory, like the photo counter cache, so they assume a single application instance.
+ */
+
+@Service
+public class LibraryVersionService {
+
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the strong ETag of the user's current library version.
+     * Read it before querying, so a response is never labelled with a version newer than its data.
+     */
+    public String etag(Long userId) {
+        long version = versions.getOrDefault(userId, 0L);
+        return "\"" + epoch + "." + userId + "." + version + "\"";
+    }
+
+    /**
+     * Moves the user to a new version once the change has committed.
+     * Versions come from one global sequence, so they never repeat.
+     * Counter rebuilds do not change what listings return and are ignored.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLibraryChanged(ImageLibraryChangedEvent event) {
+        if (event.getType() == ImageLibraryChangedEvent.Type.REBUILD || event.isAllUsers()) {
+            return;
+        }
+        versions.put(event.getUserId(), sequence.incrementAndGet());
+    }
+}
@@ -0,0 +1,96 @@
+package com.personalphotomap.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * PublicAlbumCache
+ *
+ * Shared cache of the cross-user album listings (/api/albums/all and /api/albums/{countryId}),
+ * holding each response already serialized to JSON.
+ *
+ * Responsibilities:
+ * - Serves a repeated listing or page from memory, with no query and no Jackson work.
+ * - Drops every entry once an album change commits (create, delete, or images removed from an album).
+ *   Keys carry a generation that each change advances, so a page still being built from the
+ *   previous data is stored under an old key and never served.
+ * - Bounds the cache by the total size of the stored responses. The TTL is only a safety net,
+ *   for changes made around the application and for replica lag after a commit.
+ *
+ * Like the photo counter cache, it assumes a single application instance.
+ */
+
+@Service
+public class PublicAlbumCache {
+
+    private static final String CACHE_NAME = "publicAlbums";
+
+    private final ObjectMapper objectMapper;
+    private final Cache<Key, byte[]> responses;
+    private final AtomicLong generation = new AtomicLong();
+
+    public PublicAlbumCache(ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${photomap.public-albums-cache.maximum-bytes:67108864}") long maximumBytes,
+            @Value("${photomap.public-albums-cache.expire-after-write:PT10M}") Duration expireAfterWrite) {
+        this.objectMapper = objectMapper;
+        this.responses = Caffeine.newBuilder()
+                .maximumWeight(maximumBytes)
+                .weigher((Key key, byte[] json) -> json.length)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, CACHE_NAME);
+    }
+
+    /**
+     * Returns the serialized listing, building and serializing it on a miss.
+     *
+     * @param countryId Country of the listing, or null for all albums
+     * @param afterId   Album id the page starts after, or null for an unpaged listing
+     * @param pageSize  Page size, or 0 for an unpaged listing
+     * @param loader    Builds the response on a miss
+     */
+    public byte[] get(String countryId, Long afterId, int pageSize, Supplier<?> loader) {
+        Key key = new Key(generation.get(), countryId, afterId, pageSize);
+        return responses.get(key, k -> serialize(loader.get()));
+    }
+
+    /**
+     * Drops every cached listing once an album change commits.
+     * Uploads and counter rebuilds do not change any album and are ignored.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLibraryChanged(ImageLibraryChangedEvent event) {
+        if (event.getType() != ImageLibraryChangedEvent.Type.ALBUM) {
+            return;
+        }
+        generation.incrementAndGet();
+        responses.invalidateAll();
+    }
+
+    private byte[] serialize(Object response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record Key(long generation, String countryId, Long afterId, int pageSize) {
+    }
+}
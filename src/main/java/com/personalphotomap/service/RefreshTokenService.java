@@ -0,0 +1,161 @@
+package com.personalphotomap.service;
+
+import com.personalphotomap.model.AppUser;
+import com.personalphotomap.model.RefreshToken;
+import com.personalphotomap.repository.RefreshTokenRepository;
+import com.personalphotomap.repository.UserRepository;
+import com.personalphotomap.security.JwtUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * RefreshTokenService
+ *
+ * Issues, rotates and revokes the long-lived refresh tokens that back the short-lived access tokens.
+ *
+ * Responsibilities:
+ * - Issues an opaque random refresh token at login, stored server-side as a SHA-256 hash.
+ * - Exchanges a refresh token for a new access token and a new refresh token (rotation).
+ *   The user is read from the database here, past the entity cache, so revocations and role or
+ *   premium changes take effect at the next refresh instead of costing a lookup on every request.
+ * - Detects reuse: a token that was already exchanged revokes its whole family, since one of
+ *   the two holders is not the user.
+ * - Revokes a family on logout, and every token of a user on demand.
+ * - Deletes expired rows in the background.
+ */
+
+@Service
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final JwtUtil jwtUtil;
+    private final Duration refreshTokenTtl;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+            UserRepository userRepository,
+            JwtUtil jwtUtil,
+            @Value("${photomap.jwt.refresh-token-ttl:P30D}") Duration refreshTokenTtl) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.jwtUtil = jwtUtil;
+        this.refreshTokenTtl = refreshTokenTtl;
+    }
+
+    /**
+     * Issues a refresh token starting a new family, for a login.
+     *
+     * @return the token to hand to the client; it is not stored in clear
+     */
+    @Transactional
+    public String issue(Long userId) {
+        return store(userId, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Exchanges a refresh token for a new access token and a new refresh token.
+     * The presented token cannot be used again.
+     *
+     * @return map with the new "token", "refreshToken" and "expiresIn" (access token lifetime in seconds)
+     * @throws SecurityException if the token is unknown, expired, revoked or already used,
+     *                           or its user no longer exists
+     */
+    @Transactional(noRollbackFor = SecurityException.class)
+    public Map<String, String> rotate(String rawToken) {
+        RefreshToken current = refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .orElseThrow(() -> new SecurityException("Invalid refresh token."));
+
+        if (current.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new SecurityException("Refresh token expired.");
+        }
+
+        if (refreshTokenRepository.revokeIfActive(current.getId()) == 0) {
+            // Already exchanged or revoked: whoever presents it now may hold a stolen copy
+            int revoked = refreshTokenRepository.revokeFamily(current.getFamilyId());
+            logger.warn("Refresh token reused for user {}; revoked {} token(s) of its family",
+                    current.getUserId(), revoked);
+            throw new SecurityException("Refresh token already used.");
+        }
+
+        AppUser user = userRepository.findCurrentById(current.getUserId())
+                .orElseThrow(() -> new SecurityException("User not found."));
+
+        Map<String, String> response = new HashMap<>();
+        response.put("token", jwtUtil.generateToken(user));
+        response.put("refreshToken", store(user.getId(), current.getFamilyId()));
+        response.put("expiresIn", String.valueOf(jwtUtil.getAccessTokenTtl().toSeconds()));
+        return response;
+    }
+
+    /**
+     * Revokes the token and every other token of its family (logout of one session).
+     * Unknown tokens are ignored.
+     */
+    @Transactional
+    public void revoke(String rawToken) {
+        refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId()));
+    }
+
+    /**
+     * Revokes every refresh token of a user (logout everywhere).
+     * Access tokens already issued stay valid until they expire.
+     */
+    @Transactional
+    public void revokeAllForUser(Long userId) {
+        refreshTokenRepository.revokeAllForUser(userId);
+    }
+
+    /**
+     * Deletes expired tokens. Revoked tokens are kept until they expire, so reuse is still detected.
+     */
+    @Scheduled(cron = "${photomap.jwt.refresh-token-cleanup:0 0 4 * * *}")
+    @Transactional
+    public void deleteExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            logger.info("Deleted {} expired refresh token(s)", deleted);
+        }
+    }
+
+    private String store(Long userId, String familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        LocalDateTime now = LocalDateTime.now();
+        refreshTokenRepository.save(new RefreshToken(userId, hash(rawToken), familyId, now, now.plus(refreshTokenTtl)));
+        return rawToken;
+    }
+
+    private static String hash(String rawToken) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(rawToken.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
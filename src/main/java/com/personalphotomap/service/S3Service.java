@@ -5,13 +5,14 @@ import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 
+import java.io.InputStream;
 import java.net.URL;
 import java.util.UUID;
 
 /**
  * S3Service
  * 
- * Manages file uploads to and deletions from AWS S3.
+ * Manages file uploads to, reads from and deletions from AWS S3.
  * Provides two overloads for uploadFile(), allowing either:
  * - auto-generated file names, or
  * - custom-specified file names.
@@ -69,6 +70,39 @@ public class S3Service {
         }
     }
 
+    /**
+     * Uploads generated content (e.g. a thumbnail) to S3 under the given key.
+     *
+     * @param bytes The content to store.
+     * @param key The exact file name (key) to store in S3.
+     * @param contentType The MIME type served with the object.
+     * @return The public URL of the uploaded file.
+     */
+    public String uploadBytes(byte[] bytes, String key, String contentType) {
+        try {
+            String bucketName = System.getenv("S3_BUCKET_NAME");
+            s3Client.putObject(
+                b -> b.bucket(bucketName).key(key).contentType(contentType),
+                RequestBody.fromBytes(bytes)
+            );
+            return s3Client.utilities().getUrl(b -> b.bucket(bucketName).key(key)).toString();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to upload file to S3", e);
+        }
+    }
+
+    /**
+     * Opens a file stored in S3 for reading, based on its full public URL.
+     * The body is streamed from S3 as it is read; the caller must close it.
+     *
+     * @param fileUrl The full URL of the S3 object to read.
+     * @return The object's content.
+     */
+    public InputStream openFile(String fileUrl) {
+        String bucketName = System.getenv("S3_BUCKET_NAME");
+        return s3Client.getObject(b -> b.bucket(bucketName).key(keyFromUrl(fileUrl)));
+    }
+
     /**
      * Deletes a file from S3 based on its full public URL.
      * <p>
@@ -80,12 +114,18 @@ public class S3Service {
     public void deleteFile(String fileUrl) {
         try {
             String bucketName = System.getenv("S3_BUCKET_NAME");
-            // Extract the key from the URL by taking the substring after the last '/'
-            String key = fileUrl.substring(fileUrl.lastIndexOf('/') + 1);
+            String key = keyFromUrl(fileUrl);
 
             s3Client.deleteObject(b -> b.bucket(bucketName).key(key));
         } catch (Exception e) {
             throw new RuntimeException("Error deleting file on S3", e);
         }
     }
+
+    /**
+     * Extracts the key from the URL by taking the substring after the last '/'.
+     */
+    private String keyFromUrl(String fileUrl) {
+        return fileUrl.substring(fileUrl.lastIndexOf('/') + 1);
+    }
 }
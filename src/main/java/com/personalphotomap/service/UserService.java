@@ -6,13 +6,20 @@ import com.personalphotomap.dto.LoginRequestDTO;
 import com.personalphotomap.dto.RegisterRequestDTO;
 import com.personalphotomap.dto.UserDTO;
 import com.personalphotomap.dto.UserSummaryDTO;
+import com.personalphotomap.dto.UserSummaryPageDTO;
 import com.personalphotomap.repository.ImageRepository;
 import com.personalphotomap.repository.UserRepository;
+import com.personalphotomap.security.AuthenticatedUser;
 import com.personalphotomap.security.JwtUtil;
+import com.personalphotomap.security.LoginThrottle;
+import com.personalphotomap.security.TooManyRequestsException;
 
 import jakarta.transaction.Transactional;
 
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.JpaSort;
 import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
@@ -29,20 +36,50 @@ import java.util.Optional;
 @Service
 public class UserService {
 
+    /**
+     * Page size of the admin user listing when none is requested.
+     */
+    public static final int DEFAULT_USER_PAGE_SIZE = 50;
+
+    /**
+     * Upper bound for the page size of the admin user listing.
+     */
+    public static final int MAX_USER_PAGE_SIZE = 500;
+
+    /**
+     * Sort keys accepted by the admin user listing, mapped to the JPQL expression they order by.
+     * Only these are ever placed in the query.
+     */
+    private static final Map<String, String> USER_SUMMARY_SORTS = Map.of(
+            "id", "u.id",
+            "fullname", "u.fullname",
+            "email", "u.email",
+            "photoCount", "COUNT(i.id)",
+            "storageBytes", "COALESCE(SUM(i.sizeBytes), 0)",
+            "lastUpload", "MAX(i.uploadDate)");
+
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final LoginThrottle loginThrottle;
     private final JwtUtil jwtUtil;
     private final ImageRepository imageRepository;
     private final ImageDeleteService imageDeleteService;
+    private final EntityCacheService entityCacheService;
+    private final RefreshTokenService refreshTokenService;
 
     public UserService(UserRepository userRepository,
-            PasswordEncoder passwordEncoder,
-            JwtUtil jwtUtil, ImageRepository imageRepository, ImageDeleteService imageDeleteService) {
+            PasswordHashingService passwordHashingService,
+            LoginThrottle loginThrottle,
+            JwtUtil jwtUtil, ImageRepository imageRepository, ImageDeleteService imageDeleteService,
+            EntityCacheService entityCacheService, RefreshTokenService refreshTokenService) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
+        this.loginThrottle = loginThrottle;
         this.jwtUtil = jwtUtil;
         this.imageRepository = imageRepository;
         this.imageDeleteService = imageDeleteService;
+        this.entityCacheService = entityCacheService;
+        this.refreshTokenService = refreshTokenService;
     }
 
     /**
@@ -58,20 +95,63 @@ public class UserService {
                 .toList();
     }
 
+    /**
+     * Retrieves every user with their photo count, storage used and latest upload,
+     * aggregated in a single statement.
+     *
+     * @return A list of UserSummaryDTO objects ordered by user id
+     */
     public List<UserSummaryDTO> getAllUsersWithPhotoCount() {
-        List<AppUser> users = userRepository.findAll();
-
-        return users.stream()
-                .map(user -> {
-                    long count = imageRepository.countByUserId(user.getId());
-                    return new UserSummaryDTO(
-                            user.getId(),
-                            user.getFullname(),
-                            user.getEmail(),
-                            user.getCountry(),
-                            (int) count);
-                })
-                .toList();
+        return userRepository.findUserSummaries(JpaSort.unsafe(Sort.Direction.ASC, "u.id"));
+    }
+
+    /**
+     * Retrieves one page of user summaries.
+     *
+     * @param page Zero-based page number, or null for the first page
+     * @param size Page size, or null for the default
+     * @param sort Sort key, optionally followed by ",asc" or ",desc" (e.g. "photoCount,desc");
+     *             null sorts by id
+     * @return The requested page and the total number of users
+     * @throws IllegalArgumentException if a parameter is out of range or the sort key is unknown
+     */
+    public UserSummaryPageDTO getUserSummaryPage(Integer page, Integer size, String sort) {
+        int pageNumber = page == null ? 0 : page;
+        if (pageNumber < 0) {
+            throw new IllegalArgumentException("Page number must not be negative.");
+        }
+        int pageSize = size == null ? DEFAULT_USER_PAGE_SIZE : size;
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1.");
+        }
+        pageSize = Math.min(pageSize, MAX_USER_PAGE_SIZE);
+
+        Page<UserSummaryDTO> result = userRepository.findUserSummaries(
+                PageRequest.of(pageNumber, pageSize, toUserSummarySort(sort)));
+        return new UserSummaryPageDTO(result.getContent(), pageNumber, pageSize,
+                result.getTotalElements(), result.getTotalPages());
+    }
+
+    /**
+     * Parses "key[,asc|desc]" into an order on the whitelisted expression, with the user id as tie-breaker
+     * so that equal aggregates keep a stable order across pages.
+     */
+    private static Sort toUserSummarySort(String sort) {
+        if (sort == null || sort.isBlank()) {
+            return JpaSort.unsafe(Sort.Direction.ASC, "u.id");
+        }
+        String[] parts = sort.split(",", 2);
+        String expression = USER_SUMMARY_SORTS.get(parts[0].trim());
+        if (expression == null) {
+            throw new IllegalArgumentException("Invalid sort key. Use one of " + USER_SUMMARY_SORTS.keySet() + ".");
+        }
+        Sort.Direction direction = Sort.Direction.ASC;
+        if (parts.length > 1) {
+            direction = Sort.Direction.fromOptionalString(parts[1].trim())
+                    .orElseThrow(() -> new IllegalArgumentException("Invalid sort direction. Use 'asc' or 'desc'."));
+        }
+        Sort order = JpaSort.unsafe(direction, expression);
+        return expression.equals("u.id") ? order : order.and(JpaSort.unsafe(Sort.Direction.ASC, "u.id"));
     }
 
     /**
@@ -80,6 +160,7 @@ public class UserService {
      *
      * @param registerRequest DTO containing user registration data
      * @return A success or conflict message
+     * @throws TooManyRequestsException if the password hashing pool is saturated
      */
     public String registerUser(RegisterRequestDTO registerRequest) {
         if (userRepository.findByEmail(registerRequest.getEmail()) != null) {
@@ -90,7 +171,7 @@ public class UserService {
         newUser.setFullname(registerRequest.getFullname());
         newUser.setEmail(registerRequest.getEmail());
         newUser.setCountry(registerRequest.getCountry());
-        newUser.setPassword(passwordEncoder.encode(registerRequest.getPassword()));
+        newUser.setPassword(passwordHashingService.encode(registerRequest.getPassword()));
         newUser.setRole("ROLE_USER"); // Default role
 
         userRepository.save(newUser);
@@ -99,24 +180,34 @@ public class UserService {
 
     /**
      * Authenticates a user based on email and password.
-     * Generates a JWT token upon successful login.
+     * Generates a short-lived access token upon successful login, carrying the user's id, role and
+     * premium flag, and a refresh token used to obtain the next access tokens.
+     * Throttled per client address and per account before the password is checked.
      *
      * @param loginRequest DTO containing email and password
-     * @return A map with token and basic user info
-     * @throws SecurityException if credentials are invalid
+     * @param clientIp     Address the request came from
+     * @return A map with the access token, refresh token, access token lifetime and basic user info
+     * @throws SecurityException        if credentials are invalid
+     * @throws TooManyRequestsException if a throttle is hit or the password hashing pool is saturated
      */
 
-    public Map<String, String> authenticateUser(LoginRequestDTO loginRequest) {
+    public Map<String, String> authenticateUser(LoginRequestDTO loginRequest, String clientIp) {
+        loginThrottle.checkAttempt(clientIp, loginRequest.getEmail());
+
         AppUser user = userRepository.findByEmail(loginRequest.getEmail());
 
-        if (user == null || !passwordEncoder.matches(loginRequest.getPassword(), user.getPassword())) {
+        if (user == null || !passwordHashingService.matches(loginRequest.getPassword(), user.getPassword())) {
+            loginThrottle.recordFailure(loginRequest.getEmail());
             throw new SecurityException("Invalid credentials");
         }
+        loginThrottle.recordSuccess(loginRequest.getEmail());
 
-        String token = jwtUtil.generateToken(user.getEmail());
+        String token = jwtUtil.generateToken(user);
 
         Map<String, String> response = new HashMap<>();
         response.put("token", token);
+        response.put("refreshToken", refreshTokenService.issue(user.getId()));
+        response.put("expiresIn", String.valueOf(jwtUtil.getAccessTokenTtl().toSeconds()));
         response.put("fullname", user.getFullname());
         response.put("email", user.getEmail());
         response.put("premium", String.valueOf(user.isPremium()));
@@ -137,32 +228,24 @@ public class UserService {
 
     /**
      * Upgrades the current authenticated user to premium status.
-     * Extracts the user from JWT token and updates the role.
-     * Also sends a real-time notification via WebSocket.
+     * Returns a new token, since the premium flag is part of the token claims.
      *
-     * @param token The JWT token from the Authorization header
-     * @return A response map with confirmation message and premium status
-     * @throws SecurityException        if token format is invalid
+     * @param principal The authenticated user
+     * @return A response map with confirmation message, premium status and the new token
      * @throws IllegalArgumentException if user is not found
      */
-    public Map<String, Object> upgradeCurrentUserToPremium(String token) {
-        if (token == null || !token.startsWith("Bearer ")) {
-            throw new SecurityException("Invalid token format");
-        }
-
-        String email = jwtUtil.extractUsername(token.substring(7));
-        AppUser user = userRepository.findByEmail(email);
-
-        if (user == null) {
-            throw new IllegalArgumentException("User not found.");
-        }
+    public Map<String, Object> upgradeCurrentUserToPremium(AuthenticatedUser principal) {
+        AppUser user = userRepository.findById(principal.getId())
+                .orElseThrow(() -> new IllegalArgumentException("User not found."));
 
         user.setPremium(true);
         userRepository.save(user);
+        entityCacheService.evictUser(user.getId());
 
         Map<String, Object> response = new HashMap<>();
         response.put("premium", true);
         response.put("message", "User upgraded to premium!");
+        response.put("token", jwtUtil.generateToken(user));
         return response;
     }
 
@@ -178,6 +261,7 @@ public class UserService {
             return false;
         }
         userRepository.deleteById(id);
+        entityCacheService.evictUser(id);
         return true;
     }
 
@@ -191,6 +275,7 @@ public class UserService {
             images.forEach(image -> imageDeleteService.deleteImage(image));
 
             userRepository.delete(user);
+            entityCacheService.evictUser(userId);
             return true;
         }
         return false;
@@ -203,6 +288,7 @@ public class UserService {
         allImages.forEach(image -> imageDeleteService.deleteImage(image));
 
         userRepository.deleteAll();
+        entityCacheService.evictAll();
     }
 
 }
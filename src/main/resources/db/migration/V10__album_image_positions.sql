@@ -0,0 +1,27 @@
+-- Display order of the images in an album, as sparse positions.
+-- Each new membership row takes the next value of a global sequence times 1024, so it lands after every
+-- existing row; moving an image writes a position between its new neighbours and updates that row only.
+-- Rebalancing gives an album fresh positions from the same sequence, keeping its order.
+CREATE SEQUENCE IF NOT EXISTS album_images_position_seq;
+
+ALTER TABLE album_images ADD COLUMN IF NOT EXISTS position BIGINT;
+
+-- Existing albums keep their images in upload order.
+UPDATE album_images ai
+    SET position = o.position
+    FROM (
+        SELECT ordered.album_id, ordered.image_id, nextval('album_images_position_seq') * 1024 AS position
+        FROM (
+            SELECT ai2.album_id, ai2.image_id
+            FROM album_images ai2 JOIN images i ON i.id = ai2.image_id
+            ORDER BY ai2.album_id, i.upload_date, i.id
+        ) ordered
+    ) o
+    WHERE ai.album_id = o.album_id AND ai.image_id = o.image_id;
+
+ALTER TABLE album_images
+    ALTER COLUMN position SET DEFAULT nextval('album_images_position_seq') * 1024,
+    ALTER COLUMN position SET NOT NULL;
+
+-- Album pages in display order: a range read on (album_id, position), tied by image_id.
+CREATE INDEX IF NOT EXISTS idx_album_images_album_position ON album_images (album_id, position, image_id);
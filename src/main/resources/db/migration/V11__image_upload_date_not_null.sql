@@ -0,0 +1,9 @@
+-- Keyset pages compare (upload_date, id) with the cursor, which never matches a NULL upload_date,
+-- so such rows would be left out of every page. Images without an upload date, written before
+-- it was always set, are given the epoch: they list last, and do not count as a recent upload.
+UPDATE images
+    SET upload_date = TIMESTAMP '1970-01-01 00:00:00'
+    WHERE upload_date IS NULL;
+
+ALTER TABLE images
+    ALTER COLUMN upload_date SET NOT NULL;
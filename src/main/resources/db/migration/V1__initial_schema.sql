@@ -0,0 +1,43 @@
+-- Initial schema, equivalent to what ddl-auto=update generated before migrations were introduced.
+-- Databases that already contain these tables are baselined at version 1 and skip this script.
+
+CREATE TABLE users (
+    id       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    fullname VARCHAR(255) NOT NULL,
+    email    VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    country  VARCHAR(255),
+    role     VARCHAR(255),
+    premium  BOOLEAN      NOT NULL DEFAULT FALSE,
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE images (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    country_id  VARCHAR(255),
+    file_name   VARCHAR(255),
+    file_path   VARCHAR(255),
+    year        INTEGER NOT NULL,
+    upload_date TIMESTAMP(6),
+    user_id     BIGINT  NOT NULL,
+    CONSTRAINT fk_images_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE INDEX idx_images_user ON images (user_id);
+CREATE INDEX idx_images_country ON images (country_id);
+CREATE INDEX idx_images_year ON images (year);
+
+CREATE TABLE albums (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name       VARCHAR(255) NOT NULL,
+    country_id VARCHAR(255) NOT NULL,
+    user_id    BIGINT       NOT NULL,
+    CONSTRAINT fk_albums_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE album_images (
+    album_id BIGINT NOT NULL,
+    image_id BIGINT NOT NULL,
+    CONSTRAINT fk_album_images_album FOREIGN KEY (album_id) REFERENCES albums (id),
+    CONSTRAINT fk_album_images_image FOREIGN KEY (image_id) REFERENCES images (id)
+);
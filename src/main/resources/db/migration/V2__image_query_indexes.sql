@@ -0,0 +1,34 @@
+-- Composite and covering indexes for the per-user image queries in ImageRepository.
+-- Every listing filters on user_id first; keyset pages sort by (upload_date DESC, id DESC).
+
+-- Country / country+year listings and the DISTINCT year / country aggregates (index-only scans).
+-- The trailing sort columns let country+year keyset pages read rows already in order.
+CREATE INDEX IF NOT EXISTS idx_images_user_country_year
+    ON images (user_id, country_id, year, upload_date DESC, id DESC);
+
+-- "All pictures" listings and keyset pages, newest first.
+-- Covers every ImageDTO column so the listing can be answered from the index alone.
+CREATE INDEX IF NOT EXISTS idx_images_user_upload_date
+    ON images (user_id, upload_date DESC, id DESC)
+    INCLUDE (country_id, year, file_name, file_path);
+
+-- Year-filtered listings and keyset pages.
+CREATE INDEX IF NOT EXISTS idx_images_user_year_upload_date
+    ON images (user_id, year, upload_date DESC, id DESC);
+
+-- Country keyset pages, which span years and therefore cannot use the index above in order.
+CREATE INDEX IF NOT EXISTS idx_images_user_country_upload_date
+    ON images (user_id, country_id, upload_date DESC, id DESC);
+
+-- Superseded: user_id is the leading column of the composites above,
+-- and no query filters on country or year without the user.
+DROP INDEX IF EXISTS idx_images_user;
+DROP INDEX IF EXISTS idx_images_country;
+DROP INDEX IF EXISTS idx_images_year;
+
+-- Album membership is read from both sides: images of an album, and albums containing an image.
+CREATE INDEX IF NOT EXISTS idx_album_images_album ON album_images (album_id, image_id);
+CREATE INDEX IF NOT EXISTS idx_album_images_image ON album_images (image_id);
+
+CREATE INDEX IF NOT EXISTS idx_albums_user_country ON albums (user_id, country_id);
+CREATE INDEX IF NOT EXISTS idx_albums_country ON albums (country_id);
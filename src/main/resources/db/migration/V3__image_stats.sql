@@ -0,0 +1,17 @@
+-- Per-user photo counts by country and year, maintained alongside every image insert and delete.
+-- Serves the count / countries / years endpoints without scanning the user's images.
+
+CREATE TABLE image_stats (
+    user_id     BIGINT       NOT NULL,
+    country_id  VARCHAR(255) NOT NULL,
+    year        INTEGER      NOT NULL,
+    photo_count BIGINT       NOT NULL,
+    CONSTRAINT pk_image_stats PRIMARY KEY (user_id, country_id, year),
+    CONSTRAINT fk_image_stats_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+INSERT INTO image_stats (user_id, country_id, year, photo_count)
+SELECT user_id, country_id, year, COUNT(*)
+FROM images
+WHERE country_id IS NOT NULL
+GROUP BY user_id, country_id, year;
@@ -0,0 +1,14 @@
+-- Capture coordinates of each image (from EXIF or the client) and their geohash.
+-- The geohash uses the "C" collation so range comparisons follow plain byte order.
+ALTER TABLE images
+    ADD COLUMN IF NOT EXISTS latitude DOUBLE PRECISION,
+    ADD COLUMN IF NOT EXISTS longitude DOUBLE PRECISION,
+    ADD COLUMN IF NOT EXISTS geohash VARCHAR(12) COLLATE "C";
+
+-- Map clustering: a geohash prefix range narrows the user's geotagged images to the viewport,
+-- the bounding box is checked on the following key columns and the id feeds the sample image,
+-- so clusters are computed from an index-only scan. Images without coordinates are left out.
+CREATE INDEX IF NOT EXISTS idx_images_user_geohash
+    ON images (user_id, geohash, latitude, longitude)
+    INCLUDE (id)
+    WHERE geohash IS NOT NULL;
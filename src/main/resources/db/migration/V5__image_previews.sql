@@ -0,0 +1,19 @@
+-- Cover thumbnails and sprite sheets for the country grid and the album list.
+-- One row per (user, country) or (user, album); image_ids lists the sprite's tiles in order,
+-- so tile n sits at column n % sprite_columns, row n / sprite_columns.
+
+CREATE TABLE image_previews (
+    id             BIGSERIAL    PRIMARY KEY,
+    user_id        BIGINT       NOT NULL,
+    scope          VARCHAR(16)  NOT NULL,
+    scope_key      VARCHAR(255) NOT NULL,
+    cover_url      TEXT,
+    sprite_url     TEXT,
+    tile_size      INTEGER      NOT NULL,
+    sprite_columns INTEGER      NOT NULL,
+    image_ids      TEXT         NOT NULL,
+    membership     TEXT         NOT NULL,
+    updated_at     TIMESTAMP    NOT NULL,
+    CONSTRAINT uq_image_previews_scope UNIQUE (user_id, scope, scope_key),
+    CONSTRAINT fk_image_previews_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
@@ -0,0 +1,19 @@
+-- Server-side refresh tokens. Only the SHA-256 of each token is stored.
+-- Every refresh replaces the presented token with a new one of the same family; presenting a
+-- replaced token again means a copy of it leaked, and the whole family is revoked.
+
+CREATE TABLE refresh_tokens (
+    id          BIGSERIAL   PRIMARY KEY,
+    user_id     BIGINT      NOT NULL,
+    token_hash  VARCHAR(64) NOT NULL,
+    family_id   VARCHAR(36) NOT NULL,
+    created_at  TIMESTAMP   NOT NULL,
+    expires_at  TIMESTAMP   NOT NULL,
+    revoked     BOOLEAN     NOT NULL DEFAULT FALSE,
+    CONSTRAINT uq_refresh_tokens_hash UNIQUE (token_hash),
+    CONSTRAINT fk_refresh_tokens_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_refresh_tokens_family ON refresh_tokens (family_id);
+CREATE INDEX idx_refresh_tokens_user ON refresh_tokens (user_id);
+CREATE INDEX idx_refresh_tokens_expires_at ON refresh_tokens (expires_at);
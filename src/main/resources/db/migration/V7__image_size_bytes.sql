@@ -0,0 +1,11 @@
+-- Stored size of each image, recorded at upload. Images uploaded before this column existed count as 0.
+-- A constant default makes this a metadata-only change, without rewriting the table.
+ALTER TABLE images
+    ADD COLUMN IF NOT EXISTS size_bytes BIGINT NOT NULL DEFAULT 0;
+
+-- The admin user summary aggregates count, storage and last upload per user.
+-- Adding size_bytes to the covering columns lets that aggregate run as an index-only scan.
+DROP INDEX IF EXISTS idx_images_user_upload_date;
+CREATE INDEX IF NOT EXISTS idx_images_user_upload_date
+    ON images (user_id, upload_date DESC, id DESC)
+    INCLUDE (country_id, year, file_name, file_path, size_bytes);
@@ -0,0 +1,4 @@
+-- Public album listings page through a country's albums in id order.
+-- With id as the second key column, each page is a range read that stops after the page size.
+DROP INDEX IF EXISTS idx_albums_country;
+CREATE INDEX IF NOT EXISTS idx_albums_country_id ON albums (country_id, id);
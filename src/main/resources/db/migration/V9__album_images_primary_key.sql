@@ -0,0 +1,13 @@
+-- An image is in an album at most once. Bulk membership edits rely on this key
+-- (INSERT ... ON CONFLICT DO NOTHING), so duplicate rows left by earlier writes are removed first.
+DELETE FROM album_images a
+    USING album_images b
+    WHERE a.album_id = b.album_id
+      AND a.image_id = b.image_id
+      AND a.ctid < b.ctid;
+
+ALTER TABLE album_images
+    ADD CONSTRAINT pk_album_images PRIMARY KEY (album_id, image_id);
+
+-- Superseded by the primary key index, which has the same columns.
+DROP INDEX IF EXISTS idx_album_images_album;
@@ -0,0 +1,123 @@
+package com.personalphotomap.photo_map;
+
+import com.personalphotomap.model.AppUser;
+import com.personalphotomap.model.Image;
+import com.personalphotomap.repository.AlbumRepository;
+import com.personalphotomap.repository.ImageRepository;
+import com.personalphotomap.repository.UserRepository;
+import com.personalphotomap.security.JwtUtil;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Asserts that the admin user listing aggregates photo counts, storage and latest upload
+ * in one statement (plus the page count), whatever the number of users.
+ */
+public class AdminUserSummaryTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ImageRepository imageRepository;
+    @Autowired
+    private AlbumRepository albumRepository;
+    @Autowired
+    private JwtUtil jwtUtil;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private String adminToken;
+    private AppUser admin;
+
+    @BeforeEach
+    void setUp() {
+        albumRepository.deleteAll();
+        imageRepository.deleteAll();
+        userRepository.deleteAll();
+
+        admin = saveUser("admin-summary@email.com", "ROLE_ADMIN");
+        adminToken = "Bearer " + jwtUtil.generateToken(admin);
+
+        // user i has i images of 1000 bytes each
+        for (int i = 1; i <= 4; i++) {
+            AppUser user = saveUser("summary" + i + "@email.com", "ROLE_USER");
+            for (int n = 0; n < i; n++) {
+                Image image = new Image(null, "br", "photo" + n + ".jpg", user, "path" + n + ".jpg", 2023);
+                image.setSizeBytes(1000);
+                imageRepository.save(image);
+            }
+        }
+    }
+
+    @Test
+    void fullListingIsOneStatement() throws Exception {
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/api/admin/users").header("Authorization", adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(5))
+                .andExpect(jsonPath("$[0].id").value(admin.getId()))
+                .andExpect(jsonPath("$[0].photoCount").value(0))
+                .andExpect(jsonPath("$[0].storageBytes").value(0))
+                .andExpect(jsonPath("$[0].lastUpload").doesNotExist())
+                .andExpect(jsonPath("$[4].photoCount").value(4))
+                .andExpect(jsonPath("$[4].storageBytes").value(4000))
+                .andExpect(jsonPath("$[4].lastUpload").exists());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void pagesAreSortedByAggregates() throws Exception {
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/api/admin/users").param("size", "2").param("sort", "storageBytes,desc")
+                        .header("Authorization", adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.items[0].email").value("summary4@email.com"))
+                .andExpect(jsonPath("$.items[1].email").value("summary3@email.com"))
+                .andExpect(jsonPath("$.totalElements").value(5))
+                .andExpect(jsonPath("$.totalPages").value(3));
+
+        assertEquals(2, statistics.getPrepareStatementCount(), "page and count");
+
+        mockMvc.perform(get("/api/admin/users").param("page", "2").param("size", "2").param("sort", "photoCount")
+                        .header("Authorization", adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].photoCount").value(4));
+
+        mockMvc.perform(get("/api/admin/users").param("sort", "lastUpload,desc")
+                        .header("Authorization", adminToken))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void unknownSortKeysAreRejected() throws Exception {
+        mockMvc.perform(get("/api/admin/users").param("sort", "password")
+                        .header("Authorization", adminToken))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/admin/users").param("sort", "id,sideways")
+                        .header("Authorization", adminToken))
+                .andExpect(status().isBadRequest());
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
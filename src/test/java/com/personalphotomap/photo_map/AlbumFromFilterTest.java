@@ -0,0 +1,143 @@
+package com.personalphotomap.photo_map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.personalphotomap.model.Album;
+import com.personalphotomap.model.AppUser;
+import com.personalphotomap.model.Image;
+import com.personalphotomap.repository.AlbumRepository;
+import com.personalphotomap.repository.ImageRepository;
+import com.personalphotomap.repository.UserRepository;
+import com.personalphotomap.security.JwtUtil;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Creates albums from server-side filters and checks that the images are added by a single statement,
+ * from the user's own images only.
+ */
+public class AlbumFromFilterTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ImageRepository imageRepository;
+    @Autowired
+    private AlbumRepository albumRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private JwtUtil jwtUtil;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private AppUser owner;
+    private String ownerToken;
+    private List<Long> japan2023;
+    private Album foreignAlbum;
+
+    @BeforeEach
+    void setUp() {
+        albumRepository.deleteAll();
+        imageRepository.deleteAll();
+        userRepository.deleteAll();
+
+        owner = saveUser("filter-owner@email.com");
+        AppUser other = saveUser("filter-other@email.com");
+        ownerToken = "Bearer " + jwtUtil.generateToken(owner);
+
+        japan2023 = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            japan2023.add(saveImage(owner, "jp", 2023).getId());
+        }
+        saveImage(owner, "jp", 2022);
+        saveImage(owner, "br", 2023);
+        Image foreign = saveImage(other, "jp", 2023);
+
+        foreignAlbum = new Album("Other", "jp");
+        foreignAlbum.setUser(other);
+        foreignAlbum.setImages(new ArrayList<>(List.of(foreign)));
+        foreignAlbum = albumRepository.save(foreignAlbum);
+    }
+
+    @Test
+    void matchingImagesAreAddedByOneStatement() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        long albumId = create(Map.of("albumName", "Japan 2023", "countryId", "jp", "year", 2023))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.numberOfImages").value(3))
+                .andReturn().getResponse().getContentAsString().transform(this::id);
+
+        assertEquals(2, statistics.getPrepareStatementCount(), "album insert and INSERT ... SELECT");
+        assertEquals(0, statistics.getEntityStatistics(Image.class.getName()).getLoadCount());
+        assertEquals(japan2023, members(albumId));
+
+        // An existing album as the source, narrowed by upload date
+        Map<String, Object> copy = new HashMap<>(Map.of("albumName", "Copy", "countryId", "jp",
+                "sourceAlbumId", albumId, "from", "2000-01-01T00:00:00"));
+        long copyId = create(copy).andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString().transform(this::id);
+        assertEquals(japan2023, members(copyId));
+    }
+
+    @Test
+    void emptyOrForeignSelectionsCreateNothing() throws Exception {
+        long albums = albumRepository.count();
+
+        create(Map.of("albumName", "Nothing", "countryId", "fr"))
+                .andExpect(status().isBadRequest());
+        create(Map.of("albumName", "Stolen", "countryId", "jp", "sourceAlbumId", foreignAlbum.getId()))
+                .andExpect(status().isForbidden());
+        create(Map.of("albumName", "Backwards", "countryId", "jp",
+                        "from", "2024-01-01T00:00:00", "to", "2023-01-01T00:00:00"))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(albums, albumRepository.count());
+    }
+
+    private ResultActions create(Map<String, Object> request) throws Exception {
+        return mockMvc.perform(post("/api/albums/from-filter").header("Authorization", ownerToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)));
+    }
+
+    private long id(String json) {
+        try {
+            return objectMapper.readTree(json).get("id").asLong();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private List<Long> members(long albumId) {
+        return jdbcTemplate.queryForList("SELECT image_id FROM album_images WHERE album_id = ? ORDER BY image_id",
+                Long.class, albumId);
+    }
+
+    private Image saveImage(AppUser user, String countryId, int year) {
+        return imageRepository.save(new Image(null, countryId, "photo.jpg", user, "path.jpg", year));
+    }
+}
@@ -0,0 +1,144 @@
+package com.personalphotomap.photo_map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.personalphotomap.model.Album;
+import com.personalphotomap.model.AppUser;
+import com.personalphotomap.model.Image;
+import com.personalphotomap.repository.AlbumRepository;
+import com.personalphotomap.repository.ImageRepository;
+import com.personalphotomap.repository.UserRepository;
+import com.personalphotomap.security.JwtUtil;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Walks an album page by page in display order and both date orders, through the public and the owner-only endpoint,
+ * and checks that no image entity is loaded along the way.
+ */
+public class AlbumImagePageTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ImageRepository imageRepository;
+    @Autowired
+    private AlbumRepository albumRepository;
+    @Autowired
+    private JwtUtil jwtUtil;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private String ownerToken;
+    private String otherToken;
+    private Album album;
+    private List<Long> imageIds;
+
+    @BeforeEach
+    void setUp() {
+        albumRepository.deleteAll();
+        imageRepository.deleteAll();
+        userRepository.deleteAll();
+
+        AppUser owner = saveUser("album-page-owner@email.com");
+        AppUser other = saveUser("album-page-other@email.com");
+        ownerToken = "Bearer " + jwtUtil.generateToken(owner);
+        otherToken = "Bearer " + jwtUtil.generateToken(other);
+
+        List<Image> images = new ArrayList<>();
+        imageIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Image image = imageRepository.save(new Image(null, "br", "photo" + i + ".jpg", owner, "path" + i + ".jpg", 2023));
+            images.add(image);
+            imageIds.add(image.getId());
+        }
+        // An image outside the album must never show up
+        imageRepository.save(new Image(null, "br", "loose.jpg", owner, "loose.jpg", 2023));
+
+        album = new Album("Paged", "br");
+        album.setUser(owner);
+        album.setImages(images);
+        album = albumRepository.save(album);
+    }
+
+    @Test
+    void pagesWalkTheAlbumInEveryOrder() throws Exception {
+        List<Long> newest = new ArrayList<>(imageIds);
+        newest.sort((a, b) -> Long.compare(b, a));
+        List<Long> oldest = new ArrayList<>(imageIds);
+        oldest.sort(Long::compare);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        String base = "/api/albums/" + album.getId() + "/images";
+        String owned = "/api/albums/user/" + album.getId() + "/images";
+        assertEquals(newest, walk(base, "newest", ownerToken));
+        assertEquals(oldest, walk(base, "oldest", ownerToken));
+        assertEquals(imageIds, walk(base, null, ownerToken), "display order is the order images were added in");
+        assertEquals(imageIds, walk(owned, "position", ownerToken));
+        assertEquals(newest, walk(owned, "newest", ownerToken));
+        assertEquals(oldest, walk(owned, "oldest", ownerToken));
+
+        assertEquals(0, statistics.getEntityStatistics(Image.class.getName()).getLoadCount());
+        assertEquals(0, statistics.getCollectionFetchCount());
+    }
+
+    @Test
+    void ownerEndpointRejectsOtherUsersAndBadInput() throws Exception {
+        mockMvc.perform(get("/api/albums/user/" + album.getId() + "/images").header("Authorization", otherToken))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/albums/user/" + (album.getId() + 1000) + "/images").header("Authorization", ownerToken))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/albums/user/" + album.getId() + "/images").param("sort", "sideways")
+                        .header("Authorization", ownerToken))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void downloadIsLimitedToTheAlbumOwner() throws Exception {
+        mockMvc.perform(get("/api/albums/" + album.getId() + "/download").header("Authorization", otherToken))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/albums/" + (album.getId() + 1000) + "/download").header("Authorization", ownerToken))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/albums/" + album.getId() + "/download").header("Authorization", ownerToken))
+                .andExpect(status().isOk());
+    }
+
+    private List<Long> walk(String url, String sort, String token) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            var request = get(url).param("limit", "2").header("Authorization", token);
+            if (sort != null) {
+                request.param("sort", sort);
+            }
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            String body = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            JsonNode page = objectMapper.readTree(body);
+            page.get("items").forEach(item -> ids.add(item.get("id").asLong()));
+            cursor = page.get("hasMore").asBoolean() ? page.get("nextCursor").asText() : null;
+        } while (cursor != null);
+        return ids;
+    }
+}
@@ -0,0 +1,136 @@
+package com.personalphotomap.photo_map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.personalphotomap.dto.AlbumImagesRequestDTO;
+import com.personalphotomap.model.Album;
+import com.personalphotomap.model.AppUser;
+import com.personalphotomap.model.Image;
+import com.personalphotomap.repository.AlbumRepository;
+import com.personalphotomap.repository.ImageRepository;
+import com.personalphotomap.repository.UserRepository;
+import com.personalphotomap.security.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Bulk album membership: duplicates and other users' images are skipped,
+ * and only the album owner can change it.
+ */
+public class AlbumMembershipTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ImageRepository imageRepository;
+    @Autowired
+    private AlbumRepository albumRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    private String ownerToken;
+    private String otherToken;
+    private Album album;
+    private List<Long> ownImages;
+    private Long foreignImage;
+
+    @BeforeEach
+    void setUp() {
+        albumRepository.deleteAll();
+        imageRepository.deleteAll();
+        userRepository.deleteAll();
+
+        AppUser owner = saveUser("membership-owner@email.com");
+        AppUser other = saveUser("membership-other@email.com");
+        ownerToken = "Bearer " + jwtUtil.generateToken(owner);
+        otherToken = "Bearer " + jwtUtil.generateToken(other);
+
+        ownImages = new ArrayList<>();
+        List<Image> first = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Image image = imageRepository.save(new Image(null, "jp", "photo" + i + ".jpg", owner, "path" + i + ".jpg", 2023));
+            ownImages.add(image.getId());
+            if (i == 0) {
+                first.add(image);
+            }
+        }
+        foreignImage = imageRepository.save(new Image(null, "jp", "other.jpg", other, "other.jpg", 2023)).getId();
+
+        album = new Album("Japan", "jp");
+        album.setUser(owner);
+        album.setImages(first);
+        album = albumRepository.save(album);
+    }
+
+    @Test
+    void addingSkipsExistingAndForeignImages() throws Exception {
+        List<Long> ids = new ArrayList<>(ownImages);
+        ids.add(foreignImage);
+        ids.add(ownImages.get(1)); // sent twice
+
+        mockMvc.perform(send(post("/api/albums/" + album.getId() + "/images"), ids, ownerToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.added").value(3));
+        assertEquals(ownImages, members());
+
+        mockMvc.perform(send(post("/api/albums/" + album.getId() + "/images"), ownImages, ownerToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.added").value(0));
+    }
+
+    @Test
+    void removingDeletesOnlyTheGivenImages() throws Exception {
+        mockMvc.perform(send(post("/api/albums/" + album.getId() + "/images"), ownImages, ownerToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(send(delete("/api/albums/" + album.getId() + "/images"),
+                        List.of(ownImages.get(0), ownImages.get(2), foreignImage), ownerToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.removed").value(2));
+        assertEquals(List.of(ownImages.get(1), ownImages.get(3)), members());
+    }
+
+    @Test
+    void onlyTheOwnerChangesMembership() throws Exception {
+        mockMvc.perform(send(post("/api/albums/" + album.getId() + "/images"), List.of(foreignImage), otherToken))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(send(delete("/api/albums/" + album.getId() + "/images"), ownImages, otherToken))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(send(post("/api/albums/" + (album.getId() + 1000) + "/images"), ownImages, ownerToken))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(send(post("/api/albums/" + album.getId() + "/images"), List.of(), ownerToken))
+                .andExpect(status().isBadRequest());
+        assertEquals(List.of(ownImages.get(0)), members());
+    }
+
+    private MockHttpServletRequestBuilder send(MockHttpServletRequestBuilder request, List<Long> ids, String token)
+            throws Exception {
+        return request.header("Authorization", token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new AlbumImagesRequestDTO(ids)));
+    }
+
+    private List<Long> members() {
+        return jdbcTemplate.queryForList("SELECT image_id FROM album_images WHERE album_id = ? ORDER BY image_id",
+                Long.class, album.getId());
+    }
+}
@@ -0,0 +1,221 @@
+package com.personalphotomap.photo_map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.personalphotomap.dto.AlbumImagesRequestDTO;
+import com.personalphotomap.dto.AlbumRequestDTO;
+import com.personalphotomap.dto.MoveAlbumImageRequestDTO;
+import com.personalphotomap.model.Album;
+import com.personalphotomap.model.AppUser;
+import com.personalphotomap.model.Image;
+import com.personalphotomap.repository.AlbumRepository;
+import com.personalphotomap.repository.ImageRepository;
+import com.personalphotomap.repository.UserRepository;
+import com.personalphotomap.security.JwtUtil;
+import com.personalphotomap.service.AlbumOrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Album display order: a move rewrites only the moved image, pages follow the new order,
+ * and rebalancing (inline or in the background) never changes it.
+ */
+public class AlbumOrderTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ImageRepository imageRepository;
+    @Autowired
+    private AlbumRepository albumRepository;
+    @Autowired
+    private AlbumOrderService albumOrderService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    private String ownerToken;
+    private String otherToken;
+    private Album album;
+    private List<Long> imageIds;
+
+    @BeforeEach
+    void setUp() {
+        albumRepository.deleteAll();
+        imageRepository.deleteAll();
+        userRepository.deleteAll();
+
+        AppUser owner = saveUser("order-owner@email.com");
+        AppUser other = saveUser("order-other@email.com");
+        ownerToken = "Bearer " + jwtUtil.generateToken(owner);
+        otherToken = "Bearer " + jwtUtil.generateToken(other);
+
+        List<Image> images = new ArrayList<>();
+        imageIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Image image = imageRepository.save(new Image(null, "pt", "photo" + i + ".jpg", owner, "path" + i + ".jpg", 2023));
+            images.add(image);
+            imageIds.add(image.getId());
+        }
+
+        album = new Album("Lisbon", "pt");
+        album.setUser(owner);
+        album.setImages(images);
+        album = albumRepository.save(album);
+    }
+
+    @Test
+    void movesRewriteOneRowAndPagesFollowTheNewOrder() throws Exception {
+        Long a = imageIds.get(0), b = imageIds.get(1), c = imageIds.get(2), d = imageIds.get(3), e = imageIds.get(4);
+        Map<Long, Long> before = positions();
+
+        mockMvc.perform(put("/api/albums/" + album.getId() + "/images/" + d + "/position")
+                        .header("Authorization", ownerToken))
+                .andExpect(status().isOk());        // no body: d a b c e
+        assertEquals(List.of(d, a, b, c, e), walk());
+        Map<Long, Long> after = positions();
+        for (Long id : List.of(a, b, c, e)) {
+            assertEquals(before.get(id), after.get(id), "only the moved image changes position");
+        }
+
+        move(e, a, ownerToken);                         // d a e b c
+        assertEquals(List.of(d, a, e, b, c), walk());
+
+        move(d, c, ownerToken);                         // a e b c d
+        assertEquals(List.of(a, e, b, c, d), walk());
+    }
+
+    @Test
+    void newImagesKeepTheRequestOrderAtTheEnd() throws Exception {
+        Long extra1 = imageRepository.save(new Image(null, "pt", "x1.jpg", album.getUser(), "x1.jpg", 2023)).getId();
+        Long extra2 = imageRepository.save(new Image(null, "pt", "x2.jpg", album.getUser(), "x2.jpg", 2023)).getId();
+
+        mockMvc.perform(post("/api/albums/" + album.getId() + "/images")
+                        .header("Authorization", ownerToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AlbumImagesRequestDTO(List.of(extra2, extra1)))))
+                .andExpect(status().isOk());
+
+        List<Long> expected = new ArrayList<>(imageIds);
+        expected.add(extra2);
+        expected.add(extra1);
+        assertEquals(expected, walk());
+    }
+
+    @Test
+    void createdAlbumsKeepTheRequestOrder() throws Exception {
+        List<Long> requested = List.of(imageIds.get(3), imageIds.get(0), imageIds.get(4), imageIds.get(1));
+
+        String body = mockMvc.perform(post("/api/albums")
+                        .header("Authorization", ownerToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AlbumRequestDTO("Porto", "pt", requested))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(requested, walk(objectMapper.readTree(body).get("id").asLong()));
+    }
+
+    @Test
+    void rebalancingKeepsTheOrder() throws Exception {
+        // Pack the album so that no position is left between neighbours
+        for (int i = 0; i < imageIds.size(); i++) {
+            jdbcTemplate.update("UPDATE album_images SET position = ? WHERE album_id = ? AND image_id = ?",
+                    i, album.getId(), imageIds.get(i));
+        }
+        Long a = imageIds.get(0), b = imageIds.get(1), c = imageIds.get(2), d = imageIds.get(3), e = imageIds.get(4);
+
+        move(e, a, ownerToken);                         // a e b c d, renumbered inline
+        assertEquals(List.of(a, e, b, c, d), walk());
+        Map<Long, Long> spread = positions();
+        assertTrue(spread.get(b) - spread.get(a) >= 1024, "the album was renumbered");
+
+        // Halve the gap between a and e until it is crowded, then let the background job run
+        for (int i = 0; i < 8; i++) {
+            move(b, a, ownerToken);
+            move(e, a, ownerToken);
+        }
+        List<Long> crowded = walk();
+        albumOrderService.rebalanceCrowdedAlbums();
+        assertEquals(crowded, walk());
+        Map<Long, Long> rebalanced = positions();
+        assertTrue(rebalanced.get(crowded.get(2)) - rebalanced.get(crowded.get(1)) >= 1024);
+    }
+
+    @Test
+    void movesAreCheckedAgainstOwnerAndAlbum() throws Exception {
+        Long a = imageIds.get(0), b = imageIds.get(1);
+        Long loose = imageRepository.save(new Image(null, "pt", "loose.jpg", album.getUser(), "loose.jpg", 2023)).getId();
+
+        mockMvc.perform(moveRequest(album.getId(), a, b, otherToken)).andExpect(status().isForbidden());
+        mockMvc.perform(moveRequest(album.getId() + 1000, a, b, ownerToken)).andExpect(status().isNotFound());
+        mockMvc.perform(moveRequest(album.getId(), loose, b, ownerToken)).andExpect(status().isNotFound());
+        mockMvc.perform(moveRequest(album.getId(), a, loose, ownerToken)).andExpect(status().isNotFound());
+        mockMvc.perform(moveRequest(album.getId(), a, a, ownerToken)).andExpect(status().isBadRequest());
+        assertEquals(imageIds, walk());
+    }
+
+    private void move(Long imageId, Long afterImageId, String token) throws Exception {
+        mockMvc.perform(moveRequest(album.getId(), imageId, afterImageId, token)).andExpect(status().isOk());
+    }
+
+    private RequestBuilder moveRequest(Long albumId, Long imageId,
+            Long afterImageId, String token) throws Exception {
+        return put("/api/albums/" + albumId + "/images/" + imageId + "/position")
+                .header("Authorization", token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new MoveAlbumImageRequestDTO(afterImageId)));
+    }
+
+    private List<Long> walk() throws Exception {
+        return walk(album.getId());
+    }
+
+    private List<Long> walk(Long albumId) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            var request = get("/api/albums/user/" + albumId + "/images").param("limit", "2")
+                    .header("Authorization", ownerToken);
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            String body = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            JsonNode page = objectMapper.readTree(body);
+            page.get("items").forEach(item -> ids.add(item.get("id").asLong()));
+            cursor = page.get("hasMore").asBoolean() ? page.get("nextCursor").asText() : null;
+        } while (cursor != null);
+        return ids;
+    }
+
+    private Map<Long, Long> positions() {
+        Map<Long, Long> result = new HashMap<>();
+        jdbcTemplate.query("SELECT image_id, position FROM album_images WHERE album_id = ?",
+                rs -> { result.put(rs.getLong(1), rs.getLong(2)); }, album.getId());
+        return result;
+    }
+}
@@ -0,0 +1,125 @@
+package com.personalphotomap.photo_map;
+
+import com.personalphotomap.model.Album;
+import com.personalphotomap.model.AppUser;
+import com.personalphotomap.model.Image;
+import com.personalphotomap.repository.AlbumRepository;
+import com.personalphotomap.repository.ImageRepository;
+import com.personalphotomap.repository.UserRepository;
+import com.personalphotomap.security.JwtUtil;
+import com.personalphotomap.service.ImageLibraryChangedEvent;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Asserts that album listings read their image counts from one aggregate statement,
+ * however many albums and images there are, and never initialize an album's images collection.
+ */
+public class AlbumQueryCountTest extends PostgresIntegrationTest {
+
+    private static final int IMAGES_PER_ALBUM = 7;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ImageRepository imageRepository;
+    @Autowired
+    private AlbumRepository albumRepository;
+    @Autowired
+    private JwtUtil jwtUtil;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private AppUser user;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        albumRepository.deleteAll();
+        imageRepository.deleteAll();
+        userRepository.deleteAll();
+
+        user = new AppUser();
+        user.setFullname("Album Count");
+        user.setEmail("album-count@email.com");
+        user.setPassword("not-used");
+        user.setRole("ROLE_USER");
+        user = userRepository.save(user);
+
+        token = "Bearer " + jwtUtil.generateToken(user);
+    }
+
+    @Test
+    void albumListingsUseOneStatementWhateverTheirSize() throws Exception {
+        addAlbums(2);
+        assertListings(2);
+
+        addAlbums(5);
+        assertListings(7);
+    }
+
+    @Test
+    void emptyAlbumsCountZeroImages() throws Exception {
+        Album album = new Album("Empty", "br");
+        album.setUser(user);
+        album.setImages(new ArrayList<>());
+        albumRepository.save(album);
+
+        mockMvc.perform(get("/api/albums/user").header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].numberOfImages").value(0));
+    }
+
+    private void assertListings(int albumCount) throws Exception {
+        for (String url : List.of("/api/albums/user", "/api/albums/user/br", "/api/albums/br", "/api/albums/all")) {
+            Statistics statistics = statistics();
+            statistics.clear();
+
+            mockMvc.perform(get(url).header("Authorization", token))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(albumCount))
+                    .andExpect(jsonPath("$[0].numberOfImages").value(IMAGES_PER_ALBUM));
+
+            assertEquals(1, statistics.getPrepareStatementCount(), url);
+            assertEquals(0, statistics.getCollectionFetchCount(), url);
+            assertEquals(0, statistics.getEntityStatistics(Image.class.getName()).getLoadCount(), url);
+        }
+    }
+
+    private void addAlbums(int count) {
+        for (int a = 0; a < count; a++) {
+            List<Image> images = new ArrayList<>();
+            for (int i = 0; i < IMAGES_PER_ALBUM; i++) {
+                images.add(imageRepository.save(new Image(null, "br", "photo" + i + ".jpg", user, "path" + i + ".jpg", 2023)));
+            }
+            Album album = new Album("Album " + a, "br");
+            album.setUser(user);
+            album.setImages(images);
+            albumRepository.save(album);
+        }
+        // Announce the change as AlbumService does, so cached public listings are dropped
+        eventPublisher.publishEvent(new ImageLibraryChangedEvent(user.getId(), ImageLibraryChangedEvent.Type.ALBUM));
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
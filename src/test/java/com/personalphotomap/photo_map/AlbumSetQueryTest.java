@@ -0,0 +1,230 @@
+package com.personalphotomap.photo_map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.personalphotomap.dto.AlbumImagesRequestDTO;
+import com.personalphotomap.dto.AlbumRequestDTO;
+import com.personalphotomap.model.Album;
+import com.personalphotomap.model.AppUser;
+import com.personalphotomap.model.Image;
+import com.personalphotomap.repository.AlbumRepository;
+import com.personalphotomap.repository.ImageRepository;
+import com.personalphotomap.repository.UserRepository;
+import com.personalphotomap.security.JwtUtil;
+import com.personalphotomap.service.ImageDeleteService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Set queries over album membership: answered from the in-memory index without statements
+ * once it is built, and kept in step with album changes and image deletes.
+ */
+public class AlbumSetQueryTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ImageRepository imageRepository;
+    @Autowired
+    private AlbumRepository albumRepository;
+    @Autowired
+    private ImageDeleteService imageDeleteService;
+    @Autowired
+    private JwtUtil jwtUtil;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private AppUser owner;
+    private String ownerToken;
+    private List<Image> images;
+    private Long foreignImage;
+    private Long foreignAlbum;
+    private Long albumA;
+    private Long albumB;
+
+    @BeforeEach
+    void setUp() {
+        albumRepository.deleteAll();
+        imageRepository.deleteAll();
+        userRepository.deleteAll();
+
+        owner = saveUser("sets-owner@email.com");
+        AppUser other = saveUser("sets-other@email.com");
+        ownerToken = "Bearer " + jwtUtil.generateToken(owner);
+
+        images = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            images.add(imageRepository.save(new Image(null, "it", "photo" + i + ".jpg", owner, "path" + i + ".jpg", 2023)));
+        }
+        Image foreign = imageRepository.save(new Image(null, "it", "other.jpg", other, "other.jpg", 2023));
+        foreignImage = foreign.getId();
+
+        albumA = saveAlbum(owner, images.subList(0, 3));   // 0 1 2
+        albumB = saveAlbum(owner, images.subList(1, 4));   // 1 2 3, image 4 is in no album
+        foreignAlbum = saveAlbum(other, List.of(foreign));
+    }
+
+    @Test
+    void setQueriesCombineAlbumsFromMemory() throws Exception {
+        assertEquals(ids(1, 2), query("allOf=" + albumA + "," + albumB));
+        assertEquals(ids(0), query("anyOf=" + albumA + "&noneOf=" + albumB));
+        assertEquals(ids(0, 1, 2, 3), query("anyOf=" + albumA + "," + albumB));
+        assertEquals(ids(4), query("inNoAlbum=true"));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        assertEquals(ids(1, 2), query("allOf=" + albumA + "&anyOf=" + albumB));
+        assertEquals(0, statistics.getPrepareStatementCount(), "the built index answers without the database");
+
+        mockMvc.perform(get("/api/albums/user/membership/images").header("Authorization", ownerToken))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/albums/user/membership/images").param("allOf", foreignAlbum.toString())
+                        .header("Authorization", ownerToken))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/albums/user/membership/images").param("allOf", String.valueOf(albumA + 1000))
+                        .header("Authorization", ownerToken))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void albumChangesAndDeletesKeepTheIndexInStep() throws Exception {
+        assertEquals(ids(4), query("inNoAlbum=true")); // builds the index
+
+        send(post("/api/albums/" + albumA + "/images"), List.of(images.get(4).getId(), foreignImage));
+        assertEquals(List.of(), query("inNoAlbum=true"));
+        assertEquals(ids(0, 1, 2, 4), query("allOf=" + albumA));
+
+        send(delete("/api/albums/" + albumA + "/images"), List.of(images.get(0).getId()));
+        assertEquals(ids(0), query("inNoAlbum=true"));
+
+        imageDeleteService.deleteImage(images.get(3)).join(); // B keeps 1 and 2
+        assertEquals(ids(1, 2), query("allOf=" + albumB));
+
+        mockMvc.perform(delete("/api/albums/" + albumB).header("Authorization", ownerToken))
+                .andExpect(status().isOk());
+        assertEquals(ids(1, 2, 4), query("allOf=" + albumA));
+        mockMvc.perform(get("/api/albums/user/membership/images").param("allOf", albumB.toString())
+                        .header("Authorization", ownerToken))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void createdAlbumsAreRecordedWithTheImagesStored() throws Exception {
+        assertEquals(ids(4), query("inNoAlbum=true")); // builds the index
+
+        String body = mockMvc.perform(post("/api/albums")
+                        .header("Authorization", ownerToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new AlbumRequestDTO("New", "it", List.of(images.get(4).getId(), images.get(0).getId())))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long created = objectMapper.readTree(body).get("id").asLong();
+
+        assertEquals(ids(0, 4), query("allOf=" + created));
+        assertEquals(List.of(), query("inNoAlbum=true"));
+    }
+
+    @Test
+    void deletingTheLastImageOfAnAlbumDeletesTheAlbum() throws Exception {
+        Long solo = saveAlbum(owner, List.of(images.get(4)));
+        assertEquals(ids(4), query("allOf=" + solo));
+
+        imageDeleteService.deleteImage(images.get(4)).join();
+
+        assertFalse(albumRepository.existsById(solo));
+        assertEquals(List.of(), query("inNoAlbum=true"));
+        mockMvc.perform(get("/api/albums/user/membership/images").param("allOf", solo.toString())
+                        .header("Authorization", ownerToken))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void bulkDeletesAreRecordedTogether() throws Exception {
+        assertEquals(ids(4), query("inNoAlbum=true")); // builds the index
+
+        imageDeleteService.deleteImagesInParallel(List.of(images.get(1), images.get(2), images.get(4)));
+
+        assertEquals(ids(0), query("allOf=" + albumA));
+        assertEquals(ids(3), query("allOf=" + albumB));
+        assertEquals(List.of(), query("inNoAlbum=true"));
+    }
+
+    @Test
+    void lookupReturnsTheAlbumsOfEachOwnedImage() throws Exception {
+        List<Long> requested = List.of(images.get(2).getId(), images.get(0).getId(), images.get(4).getId(), foreignImage);
+
+        String body = mockMvc.perform(post("/api/albums/user/membership/lookup")
+                        .header("Authorization", ownerToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AlbumImagesRequestDTO(requested))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode result = objectMapper.readTree(body);
+
+        assertEquals(3, result.size(), "the other user's image is left out");
+        assertEquals(List.of(albumA, albumB), longs(result.get(images.get(2).getId().toString())));
+        assertEquals(List.of(albumA), longs(result.get(images.get(0).getId().toString())));
+        assertEquals(List.of(), longs(result.get(images.get(4).getId().toString())));
+    }
+
+    private List<Long> query(String queryString) throws Exception {
+        String body = mockMvc.perform(get("/api/albums/user/membership/images?" + queryString)
+                        .header("Authorization", ownerToken))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode result = objectMapper.readTree(body);
+        List<Long> ids = longs(result.get("imageIds"));
+        assertEquals(ids.size(), result.get("count").asInt());
+        return ids;
+    }
+
+    private void send(MockHttpServletRequestBuilder request, List<Long> imageIds) throws Exception {
+        mockMvc.perform(request.header("Authorization", ownerToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AlbumImagesRequestDTO(imageIds))))
+                .andExpect(status().isOk());
+    }
+
+    private List<Long> ids(int... indexes) {
+        List<Long> result = new ArrayList<>();
+        for (int index : indexes) {
+            result.add(images.get(index).getId());
+        }
+        return result;
+    }
+
+    private static List<Long> longs(JsonNode array) {
+        List<Long> result = new ArrayList<>();
+        array.forEach(node -> result.add(node.asLong()));
+        return result;
+    }
+
+    private Long saveAlbum(AppUser owner, List<Image> albumImages) {
+        Album album = new Album("Album", "it");
+        album.setUser(owner);
+        album.setImages(new ArrayList<>(albumImages));
+        return albumRepository.save(album).getId();
+    }
+}
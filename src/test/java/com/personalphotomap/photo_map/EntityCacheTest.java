@@ -0,0 +1,97 @@
+package com.personalphotomap.photo_map;
+
+import com.personalphotomap.model.AppUser;
+import com.personalphotomap.repository.AlbumRepository;
+import com.personalphotomap.repository.ImageRepository;
+import com.personalphotomap.repository.ImageStatRepository;
+import com.personalphotomap.repository.UserRepository;
+import com.personalphotomap.service.EntityCacheService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that users and the email lookup are served by the second-level and query cache,
+ * that explicit eviction and native counter writes behave, and that region statistics are reported.
+ */
+public class EntityCacheTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ImageRepository imageRepository;
+    @Autowired
+    private AlbumRepository albumRepository;
+    @Autowired
+    private ImageStatRepository imageStatRepository;
+    @Autowired
+    private EntityCacheService entityCacheService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private AppUser user;
+
+    @BeforeEach
+    void setUp() {
+        albumRepository.deleteAll();
+        imageRepository.deleteAll();
+        userRepository.deleteAll();
+
+        user = new AppUser();
+        user.setFullname("Cache");
+        user.setEmail("cache@email.com");
+        user.setPassword("not-used");
+        user.setRole("ROLE_USER");
+        user = userRepository.save(user);
+    }
+
+    @Test
+    void emailLookupIsServedFromTheCacheUntilTheUserIsEvicted() {
+        Statistics statistics = statistics();
+        userRepository.findByEmail(user.getEmail());
+
+        statistics.clear();
+        assertEquals(user.getId(), userRepository.findByEmail(user.getEmail()).getId());
+        assertEquals(user.getId(), userRepository.findById(user.getId()).orElseThrow().getId());
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        // Native counter writes declare their table, so they leave the user regions alone
+        transactionTemplate.executeWithoutResult(status -> imageStatRepository.increment(user.getId(), "br", 2023, 1));
+        statistics.clear();
+        userRepository.findByEmail(user.getEmail());
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        entityCacheService.evictUser(user.getId());
+        statistics.clear();
+        userRepository.findByEmail(user.getEmail());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void regionStatisticsReportHitsAndMisses() {
+        userRepository.findByEmail(user.getEmail());
+        userRepository.findByEmail(user.getEmail());
+        userRepository.findById(user.getId());
+
+        Map<String, Map<String, Object>> regions = entityCacheService.getRegionStatistics();
+        assertTrue(regions.keySet().containsAll(List.of(AppUser.CACHE_REGION, UserRepository.EMAIL_QUERY_REGION)));
+        assertTrue((long) regions.get(UserRepository.EMAIL_QUERY_REGION).get("hitCount") >= 1);
+        assertTrue((long) regions.get(AppUser.CACHE_REGION).get("hitCount") >= 1);
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
@@ -0,0 +1,53 @@
+package com.personalphotomap.photo_map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Login throttling behind the proxy, through a real server so Tomcat's RemoteIpValve runs.
+ * The test client connects from loopback, a trusted proxy, like Render's load balancer does.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class ForwardedClientAddressTest extends PostgresIntegrationTest {
+
+    private static final int ATTEMPTS_PER_IP = 20;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void spoofedForwardedForDoesNotResetTheLoginLimit() throws Exception {
+        // The proxy appends the address it saw; whatever comes before it was sent by the client
+        for (int i = 0; i < ATTEMPTS_PER_IP; i++) {
+            assertEquals(HttpStatus.UNAUTHORIZED, login("198.51.100." + i + ", 203.0.113.7", i));
+        }
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, login("198.51.100.99, 203.0.113.7", ATTEMPTS_PER_IP));
+
+        // Another client behind the same proxy has its own limit
+        assertEquals(HttpStatus.UNAUTHORIZED, login("203.0.113.8", ATTEMPTS_PER_IP + 1));
+    }
+
+    /**
+     * Logs in as an unknown account, a different one each time so only the per-IP limit applies.
+     */
+    private HttpStatus login(String forwardedFor, int account) throws Exception {
+        String body = "{\"email\":\"nobody" + account + "@email.com\",\"password\":\"wrong-password\"}";
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .header("X-Forwarded-For", forwardedFor)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return HttpStatus.valueOf(httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode());
+    }
+}
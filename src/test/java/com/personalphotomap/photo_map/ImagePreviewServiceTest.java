@@ -0,0 +1,135 @@
+package com.personalphotomap.photo_map;
+
+import com.personalphotomap.dto.ImageDTO;
+import com.personalphotomap.dto.ImagePreviewDTO;
+import com.personalphotomap.model.Album;
+import com.personalphotomap.model.ImagePreview;
+import com.personalphotomap.repository.AlbumRepository;
+import com.personalphotomap.repository.ImagePreviewRepository;
+import com.personalphotomap.repository.ImageRepository;
+import com.personalphotomap.service.ImagePreviewService;
+import com.personalphotomap.service.ImageStatsService;
+import com.personalphotomap.service.S3Service;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ImagePreviewServiceTest {
+
+    @Mock
+    private ImagePreviewRepository imagePreviewRepository;
+
+    @Mock
+    private ImageRepository imageRepository;
+
+    @Mock
+    private AlbumRepository albumRepository;
+
+    @Mock
+    private ImageStatsService imageStatsService;
+
+    @Mock
+    private S3Service s3Service;
+
+    private ImagePreviewService imagePreviewService;
+
+    @BeforeEach
+    void setUp() {
+        imagePreviewService = new ImagePreviewService(imagePreviewRepository, imageRepository, albumRepository,
+                imageStatsService, s3Service, 16, 2, 32, 64);
+    }
+
+    @Test
+    void shouldBuildSpriteWithOffsetsAndSkipUnchangedMembership() throws Exception {
+        List<ImageDTO> images = new ArrayList<>();
+        for (long id = 3; id >= 1; id--) {
+            images.add(new ImageDTO(id, "br", "photo" + id + ".jpg", "https://bucket/key" + id, 2023,
+                    LocalDateTime.now()));
+        }
+        byte[] jpeg = jpeg(120, 80);
+
+        when(imagePreviewRepository.findByUserId(1L)).thenReturn(List.of());
+        when(imageStatsService.getCountriesWithPhotos(1L)).thenReturn(List.of("br"));
+        when(albumRepository.findByUserId(1L)).thenReturn(List.of());
+        when(imageRepository.findPageByCountryIdAndUserId(eq("br"), eq(1L), any(), any(), any())).thenReturn(images);
+        when(s3Service.openFile(anyString())).thenAnswer(invocation -> new ByteArrayInputStream(jpeg));
+        when(s3Service.uploadBytes(any(), anyString(), eq("image/jpeg")))
+                .thenAnswer(invocation -> "https://bucket/" + invocation.getArgument(1));
+
+        imagePreviewService.refreshUser(1L);
+
+        ArgumentCaptor<ImagePreview> saved = ArgumentCaptor.forClass(ImagePreview.class);
+        verify(imagePreviewRepository).save(saved.capture());
+        ImagePreview preview = saved.getValue();
+        assertEquals("3,2,1", preview.getImageIds());
+        assertEquals(2, preview.getSpriteColumns());
+
+        ArgumentCaptor<byte[]> uploads = ArgumentCaptor.forClass(byte[].class);
+        verify(s3Service, times(2)).uploadBytes(uploads.capture(), anyString(), eq("image/jpeg"));
+        BufferedImage sprite = ImageIO.read(new ByteArrayInputStream(uploads.getAllValues().get(1)));
+        assertEquals(64, sprite.getWidth());
+        assertEquals(64, sprite.getHeight());
+
+        // Same images again: nothing is redrawn
+        when(imagePreviewRepository.findByUserId(1L)).thenReturn(List.of(preview));
+        imagePreviewService.refreshUser(1L);
+        verify(imagePreviewRepository, times(1)).save(any());
+
+        List<ImagePreviewDTO> previews = imagePreviewService.getPreviews(1L);
+        assertEquals(1, previews.size());
+        assertArrayEquals(new int[] {0, 0}, previews.get(0).getOffsets().get(3L));
+        assertArrayEquals(new int[] {32, 0}, previews.get(0).getOffsets().get(2L));
+        assertArrayEquals(new int[] {0, 32}, previews.get(0).getOffsets().get(1L));
+    }
+
+    @Test
+    void shouldBuildAlbumPreviewsInDisplayOrder() throws Exception {
+        List<ImageDTO> images = new ArrayList<>();
+        for (long id : new long[] {2, 3, 1}) {
+            images.add(new ImageDTO(id, "br", "photo" + id + ".jpg", "https://bucket/key" + id, 2023,
+                    LocalDateTime.now()));
+        }
+        Album album = mock(Album.class);
+        when(album.getId()).thenReturn(7L);
+        byte[] jpeg = jpeg(40, 40);
+
+        when(imagePreviewRepository.findByUserId(1L)).thenReturn(List.of());
+        when(imageStatsService.getCountriesWithPhotos(1L)).thenReturn(List.of());
+        when(albumRepository.findByUserId(1L)).thenReturn(List.of(album));
+        when(imageRepository.findPageByAlbumIdInPosition(eq(7L), eq(Long.MIN_VALUE), eq(Long.MIN_VALUE), any()))
+                .thenReturn(images);
+        when(s3Service.openFile(anyString())).thenAnswer(invocation -> new ByteArrayInputStream(jpeg));
+        when(s3Service.uploadBytes(any(), anyString(), eq("image/jpeg")))
+                .thenAnswer(invocation -> "https://bucket/" + invocation.getArgument(1));
+
+        imagePreviewService.refreshUser(1L);
+
+        ArgumentCaptor<ImagePreview> saved = ArgumentCaptor.forClass(ImagePreview.class);
+        verify(imagePreviewRepository).save(saved.capture());
+        assertEquals("2,3,1", saved.getValue().getImageIds());
+        verify(imageRepository, never()).findPageByAlbumId(any(), any(), any(), any());
+    }
+
+    private static byte[] jpeg(int width, int height) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "jpg", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,229 @@
+package com.personalphotomap.photo_map;
+
+import com.personalphotomap.model.Album;
+import com.personalphotomap.model.AppUser;
+import com.personalphotomap.model.Image;
+import com.personalphotomap.repository.AlbumRepository;
+import com.personalphotomap.repository.ImageRepository;
+import com.personalphotomap.repository.UserRepository;
+import com.personalphotomap.security.JwtUtil;
+import com.personalphotomap.service.ImageLibraryChangedEvent;
+import com.personalphotomap.service.ImageStatsService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Asserts how many SQL statements each image listing endpoint issues.
+ * Listings must read ImageDTO projections in a single statement, whatever the number of images,
+ * and must never load the owning AppUser row per image.
+ * The user is resolved from the token claims without a query; the album lookup is warmed up in setUp
+ * and then served by the second-level cache.
+ */
+public class ImageQueryCountTest extends PostgresIntegrationTest {
+
+    /**
+     * Statements spent by the JWT filter to build the principal (none: it comes from the token claims).
+     */
+    private static final int FILTER_STATEMENTS = 0;
+
+    /**
+     * Statements spent by the service layer to resolve the user (none: services take the principal).
+     */
+    private static final int USER_LOOKUP_STATEMENTS = 0;
+
+    private static final int IMAGE_COUNT = 25;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ImageRepository imageRepository;
+    @Autowired
+    private AlbumRepository albumRepository;
+    @Autowired
+    private JwtUtil jwtUtil;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ImageStatsService imageStatsService;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private String token;
+    private Long userId;
+    private Long albumId;
+
+    @BeforeEach
+    void setUp() {
+        albumRepository.deleteAll();
+        imageRepository.deleteAll();
+        userRepository.deleteAll();
+
+        AppUser user = new AppUser();
+        user.setFullname("Query Count");
+        user.setEmail("query-count@email.com");
+        user.setPassword("not-used");
+        user.setRole("ROLE_USER");
+        user = userRepository.save(user);
+        userId = user.getId();
+
+        List<Image> images = new ArrayList<>();
+        for (int i = 0; i < IMAGE_COUNT; i++) {
+            images.add(imageRepository.save(new Image(null, "br", "photo" + i + ".jpg", user, "path" + i + ".jpg", 2023)));
+        }
+
+        Album album = new Album("Brazil", "br");
+        album.setUser(user);
+        album.setImages(images);
+        albumId = albumRepository.save(album).getId();
+
+        token = "Bearer " + jwtUtil.generateToken(user);
+
+        // Load the album once so later lookups come from the second-level cache
+        albumRepository.findById(albumId);
+    }
+
+    @Test
+    void allPicturesUsesOneStatement() throws Exception {
+        assertStatements("/api/images/allPictures", IMAGE_COUNT);
+        assertStatements("/api/images/allPictures?year=2023", IMAGE_COUNT);
+    }
+
+    @Test
+    void imagesByCountryUseOneStatement() throws Exception {
+        assertStatements("/api/images/br", IMAGE_COUNT);
+    }
+
+    @Test
+    void imagesByCountryAndYearUseOneStatement() throws Exception {
+        assertStatements("/api/images/br/2023", IMAGE_COUNT);
+    }
+
+    @Test
+    void paginatedListingsUseOneStatement() throws Exception {
+        assertPageStatements("/api/images/allPictures?limit=10");
+        assertPageStatements("/api/images/br?limit=10");
+        assertPageStatements("/api/images/br/2023?limit=10");
+    }
+
+    @Test
+    void albumImagesUseExistenceCheckAndOneStatement() throws Exception {
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/api/albums/" + albumId + "/images").header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(IMAGE_COUNT));
+
+        // Projection query only: the album existence check hits the second-level cache
+        // and the album's collection is never initialized
+        assertEquals(FILTER_STATEMENTS + 1, statistics.getPrepareStatementCount());
+        assertEquals(0, imageLoads(statistics));
+    }
+
+    @Test
+    void mapSummaryUsesOneStatementThenCache() throws Exception {
+        imageStatsService.rebuildForUser(userId);
+        Statistics statistics = statistics();
+
+        for (int cachedStatements : new int[] { 1, 0 }) {
+            statistics.clear();
+
+            mockMvc.perform(get("/api/images/map-summary").header("Authorization", token))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.photoCount").value(IMAGE_COUNT))
+                    .andExpect(jsonPath("$.countries[0].photosByYear['2023']").value(IMAGE_COUNT));
+
+            assertEquals(FILTER_STATEMENTS + USER_LOOKUP_STATEMENTS + cachedStatements,
+                    statistics.getPrepareStatementCount());
+        }
+    }
+
+    @Test
+    void unchangedListingsAnswer304WithoutQueries() throws Exception {
+        for (String url : List.of("/api/images/allPictures", "/api/images/br", "/api/images/br/2023?limit=10")) {
+            String etag = mockMvc.perform(get(url).header("Authorization", token))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getHeader("ETag");
+
+            Statistics statistics = statistics();
+            statistics.clear();
+
+            mockMvc.perform(get(url).header("Authorization", token).header("If-None-Match", etag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string("ETag", etag));
+
+            assertEquals(FILTER_STATEMENTS, statistics.getPrepareStatementCount(), url);
+        }
+    }
+
+    @Test
+    void tokensWithoutUserClaimsStillAuthenticate() throws Exception {
+        String legacyToken = "Bearer " + jwtUtil.generateToken("query-count@email.com");
+
+        mockMvc.perform(get("/api/images/allPictures").header("Authorization", legacyToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(IMAGE_COUNT));
+    }
+
+    @Test
+    void uploadChangesTheListingETag() throws Exception {
+        String etag = mockMvc.perform(get("/api/images/allPictures").header("Authorization", token))
+                .andReturn().getResponse().getHeader("ETag");
+
+        eventPublisher.publishEvent(new ImageLibraryChangedEvent(userId, ImageLibraryChangedEvent.Type.UPLOAD));
+
+        mockMvc.perform(get("/api/images/allPictures").header("Authorization", token).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(IMAGE_COUNT));
+    }
+
+    private void assertStatements(String url, int expectedSize) throws Exception {
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        mockMvc.perform(get(url).header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(expectedSize));
+
+        assertEquals(FILTER_STATEMENTS + USER_LOOKUP_STATEMENTS + 1, statistics.getPrepareStatementCount(), url);
+        assertEquals(0, imageLoads(statistics), url);
+    }
+
+    private void assertPageStatements(String url) throws Exception {
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        mockMvc.perform(get(url).header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(10))
+                .andExpect(jsonPath("$.hasMore").value(true));
+
+        assertEquals(FILTER_STATEMENTS + USER_LOOKUP_STATEMENTS + 1, statistics.getPrepareStatementCount(), url);
+        assertEquals(0, imageLoads(statistics), url);
+    }
+
+    private long imageLoads(Statistics statistics) {
+        return statistics.getEntityStatistics(Image.class.getName()).getLoadCount();
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
@@ -0,0 +1,206 @@
+package com.personalphotomap.photo_map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.personalphotomap.model.AppUser;
+import com.personalphotomap.repository.ImageRepository;
+import com.personalphotomap.repository.UserRepository;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * EXPLAIN harness for ImageRepository.
+ *
+ * Every query method declared on ImageRepository is invoked once with sample arguments.
+ * The SQL Hibernate generates is captured and explained as a generic plan with sequential scans
+ * disabled, so a "Seq Scan" node can only appear when no index is able to serve the query.
+ * Index scans that leave part of the WHERE clause to a row-by-row filter are reported as well.
+ * New repository methods are picked up automatically; the test fails if one of them regresses.
+ */
+@Transactional
+@TestPropertySource(properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+        "com.personalphotomap.photo_map.ImageRepositoryPlanTest$SqlCaptor")
+public class ImageRepositoryPlanTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private ImageRepository imageRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void everyImageRepositoryQueryUsesAnIndex() throws Exception {
+        AppUser user = new AppUser();
+        user.setFullname("Plan Harness");
+        user.setEmail("plan-harness@email.com");
+        user.setPassword("not-used");
+        user = userRepository.save(user);
+
+        // Realistic row counts and statistics, so the planner's index choice matches production
+        jdbcTemplate.update("INSERT INTO images (country_id, file_name, file_path, year, upload_date, user_id) " +
+                "SELECT 'c' || (n % 40), 'photo' || n || '.jpg', 'path' || n || '.jpg', 2000 + n % 25, " +
+                "now() - n * interval '1 minute', ? FROM generate_series(1, 20000) AS n", user.getId());
+        jdbcTemplate.execute("ANALYZE images");
+
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+        jdbcTemplate.execute("SET LOCAL plan_cache_mode = force_generic_plan");
+
+        List<Method> methods = new ArrayList<>(Arrays.asList(ImageRepository.class.getDeclaredMethods()));
+        methods.removeIf(method -> method.isDefault() || method.isSynthetic()
+                || Modifier.isStatic(method.getModifiers()));
+        methods.sort(Comparator.comparing(Method::getName));
+        assertFalse(methods.isEmpty());
+
+        List<String> regressions = new ArrayList<>();
+        for (Method method : methods) {
+            SqlCaptor.CAPTURED.clear();
+            invoke(method, user);
+            assertFalse(SqlCaptor.CAPTURED.isEmpty(), "No SQL captured for " + method.getName());
+
+            for (String sql : SqlCaptor.CAPTURED) {
+                JsonNode plan = explain(sql);
+                List<String> problems = new ArrayList<>();
+                collectRegressions(plan.get(0).get("Plan"), problems);
+                if (!problems.isEmpty()) {
+                    regressions.add(method.getName() + " -> " + problems + "\n    " + sql);
+                }
+            }
+        }
+
+        assertTrue(regressions.isEmpty(), "Queries not fully served by an index:\n" + String.join("\n", regressions));
+    }
+
+    /**
+     * Calls a repository method with sample arguments derived from its parameter types.
+     */
+    private void invoke(Method method, AppUser user) throws IllegalAccessException {
+        Object[] args = new Object[method.getParameterCount()];
+        Class<?>[] types = method.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            args[i] = sampleArgument(types[i], method.getParameters()[i].getName(), user, method);
+        }
+
+        try {
+            Object result = method.invoke(imageRepository, args);
+            if (result instanceof Stream<?> rows) {
+                // Streams are lazy: fetch one row so the statement is executed, then release the cursor
+                try (rows) {
+                    rows.findFirst();
+                }
+            }
+        } catch (InvocationTargetException e) {
+            fail("Invoking " + method.getName() + " failed", e.getCause());
+        }
+    }
+
+    private Object sampleArgument(Class<?> type, String name, AppUser user, Method method) {
+        if (type == Long.class || type == long.class) {
+            return name.toLowerCase().contains("user") ? user.getId() : 1L;
+        }
+        if (type == Integer.class || type == int.class) {
+            return 2023;
+        }
+        if (type == String.class) {
+            return "br";
+        }
+        if (type == Double.class || type == double.class) {
+            return 0.0;
+        }
+        if (type == LocalDateTime.class) {
+            return LocalDateTime.now();
+        }
+        if (type == Pageable.class) {
+            return PageRequest.of(0, 10);
+        }
+        if (type == AppUser.class) {
+            return user;
+        }
+        throw new IllegalStateException("Add a sample argument for " + type.getSimpleName()
+                + " used by ImageRepository." + method.getName());
+    }
+
+    /**
+     * Explains a captured statement as a generic plan, so the result does not depend on sample values.
+     * Hibernate's positional parameters are renumbered for PREPARE and bound to NULL.
+     */
+    private JsonNode explain(String sql) throws Exception {
+        StringBuilder numbered = new StringBuilder();
+        int parameter = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                numbered.append('$').append(++parameter);
+            } else {
+                numbered.append(c);
+            }
+        }
+
+        String nulls = String.join(", ", Collections.nCopies(parameter, "NULL"));
+        jdbcTemplate.execute("PREPARE plan_check AS " + numbered);
+        try {
+            String execute = parameter == 0 ? "plan_check" : "plan_check(" + nulls + ")";
+            String json = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) EXECUTE " + execute, String.class);
+            return objectMapper.readTree(json);
+        } finally {
+            jdbcTemplate.execute("DEALLOCATE plan_check");
+        }
+    }
+
+    /**
+     * Collects sequential scans, and driving index scans that still need a residual filter
+     * (the index narrows the user's rows but does not cover the rest of the predicate).
+     * Inner sides of a join are per-row lookups, so a filter there is not reported.
+     */
+    private void collectRegressions(JsonNode node, List<String> regressions) {
+        String nodeType = node.path("Node Type").asText();
+        String relation = node.path("Relation Name").asText();
+        boolean joinLookup = "Inner".equals(node.path("Parent Relationship").asText());
+        if ("Seq Scan".equals(nodeType)) {
+            regressions.add("Seq Scan on " + relation);
+        } else if (nodeType.contains("Index") && node.has("Filter") && !joinLookup) {
+            regressions.add(nodeType + " on " + relation + " with Filter " + node.get("Filter").asText());
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collectRegressions(child, regressions);
+        }
+    }
+
+    /**
+     * Records every SQL statement Hibernate prepares while the harness runs.
+     */
+    public static class SqlCaptor implements StatementInspector {
+
+        static final List<String> CAPTURED = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            CAPTURED.add(sql);
+            return sql;
+        }
+    }
+}
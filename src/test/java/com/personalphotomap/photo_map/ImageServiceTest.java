@@ -2,24 +2,34 @@ package com.personalphotomap.photo_map;
 
 
 import com.personalphotomap.dto.ImageDTO;
+import com.personalphotomap.dto.ImagePageDTO;
 import com.personalphotomap.model.AppUser;
 import com.personalphotomap.model.Image;
 import com.personalphotomap.repository.ImageRepository;
+import com.personalphotomap.repository.UserRepository;
+import com.personalphotomap.security.AuthenticatedUser;
+import com.personalphotomap.service.ImageCursor;
 import com.personalphotomap.service.ImageDeleteService;
+import com.personalphotomap.service.ImageLibraryChangedEvent;
 import com.personalphotomap.service.ImageService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.web.multipart.MultipartFile;
 import com.personalphotomap.service.ImageUploadService;
 
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,6 +41,10 @@ public class ImageServiceTest {
     private ImageUploadService imageUploadService;
     @Mock
     private ImageDeleteService imageDeleteService;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @Spy
     @InjectMocks
@@ -39,7 +53,8 @@ public class ImageServiceTest {
     @Test
     void shouldReturnImageDTOsForCountryAndUserToken() {
         // Arrange
-        String token = "mock-token";
+        AuthenticatedUser principal = new AuthenticatedUser(1L, "leandro@email.com", "",
+                AuthorityUtils.createAuthorityList("ROLE_USER"));
         String countryId = "br";
 
         AppUser mockUser = new AppUser();
@@ -74,26 +89,45 @@ public class ImageServiceTest {
         List<ImageDTO> expectedDTOs = List.of(dto1, dto2);
 
         // Mocks
-        doReturn(mockUser).when(imageService).getUserFromToken(token);
-        when(imageRepository.findByCountryIdAndUserId(countryId, mockUser.getId()))
-                .thenReturn(mockImages);
-        doReturn(expectedDTOs).when(imageService).convertToDTOList(mockImages);
+        when(imageRepository.findImageDTOsByCountryIdAndUserId(countryId, mockUser.getId()))
+                .thenReturn(expectedDTOs);
 
         // Act
-        List<ImageDTO> result = imageService.getImagesByCountry(countryId, token);
+        List<ImageDTO> result = imageService.getImagesByCountry(countryId, principal);
 
         // Assert
         assertEquals(2, result.size());
         assertEquals("photo1.jpg", result.get(0).getFileName());
         assertEquals("photo2.jpg", result.get(1).getFileName());
 
-        verify(imageRepository, times(1)).findByCountryIdAndUserId(countryId, mockUser.getId());
+        verify(imageRepository, times(1)).findImageDTOsByCountryIdAndUserId(countryId, mockUser.getId());
+        verify(imageRepository, never()).findByCountryIdAndUserId(countryId, mockUser.getId());
+    }
+
+    @Test
+    void shouldPublishLocationChangeAfterSavingCoordinates() {
+        AuthenticatedUser principal = new AuthenticatedUser(1L, "leandro@email.com", "",
+                AuthorityUtils.createAuthorityList("ROLE_USER"));
+        AppUser owner = new AppUser();
+        owner.setId(1L);
+        Image image = new Image(5L, "br", "photo.jpg", owner, "path.jpg", 2023);
+        when(imageRepository.findById(5L)).thenReturn(Optional.of(image));
+
+        imageService.updateImageLocation(5L, -22.9, -43.2, principal);
+
+        InOrder order = inOrder(imageRepository, eventPublisher);
+        order.verify(imageRepository).save(image);
+        ArgumentCaptor<ImageLibraryChangedEvent> event = ArgumentCaptor.forClass(ImageLibraryChangedEvent.class);
+        order.verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(1L, event.getValue().getUserId());
+        assertEquals(ImageLibraryChangedEvent.Type.LOCATION, event.getValue().getType());
     }
 
     @Test
     void shouldHandleUploadAndReturnListOfUrls() {
         // Arrange
-        String token = "mock-token";
+        AuthenticatedUser principal = new AuthenticatedUser(1L, "leandro@email.com", "",
+                AuthorityUtils.createAuthorityList("ROLE_USER"));
         String countryId = "br";
         int year = 2023;
 
@@ -106,29 +140,30 @@ public class ImageServiceTest {
         List<MultipartFile> files = List.of(file1, file2);
 
         // Mocks
-        doReturn(mockUser).when(imageService).getUserFromToken(token);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(mockUser));
 
-        when(imageUploadService.uploadAndSaveImage(eq(file1), eq(countryId), eq(year), eq(mockUser)))
+        when(imageUploadService.uploadAndSaveImage(eq(file1), eq(countryId), eq(year), eq(mockUser), isNull(), isNull()))
                 .thenReturn(CompletableFuture.completedFuture("https://s3.bucket.com/photo1.jpg"));
 
-        when(imageUploadService.uploadAndSaveImage(eq(file2), eq(countryId), eq(year), eq(mockUser)))
+        when(imageUploadService.uploadAndSaveImage(eq(file2), eq(countryId), eq(year), eq(mockUser), isNull(), isNull()))
                 .thenReturn(CompletableFuture.completedFuture("https://s3.bucket.com/photo2.jpg"));
 
         // Act
-        List<String> result = imageService.handleUpload(files, countryId, year, token);
+        List<String> result = imageService.handleUpload(files, countryId, year, principal);
 
         // Assert
         assertEquals(2, result.size());
         assertEquals("https://s3.bucket.com/photo1.jpg", result.get(0));
         assertEquals("https://s3.bucket.com/photo2.jpg", result.get(1));
 
-        verify(imageUploadService, times(1)).uploadAndSaveImage(file1, countryId, year, mockUser);
-        verify(imageUploadService, times(1)).uploadAndSaveImage(file2, countryId, year, mockUser);
+        verify(imageUploadService, times(1)).uploadAndSaveImage(file1, countryId, year, mockUser, null, null);
+        verify(imageUploadService, times(1)).uploadAndSaveImage(file2, countryId, year, mockUser, null, null);
     }
     @Test
     void shouldDeleteAllImagesByCountryForUser() {
         // Arrange
-        String token = "mock-token";
+        AuthenticatedUser principal = new AuthenticatedUser(1L, "leandro@email.com", "",
+                AuthorityUtils.createAuthorityList("ROLE_USER"));
         String countryId = "br";
 
         AppUser mockUser = new AppUser();
@@ -139,15 +174,51 @@ public class ImageServiceTest {
         Image image2 = new Image(2L, countryId, "photo2.jpg", mockUser, "path2.jpg", 2023);
         List<Image> mockImages = List.of(image1, image2);
 
-        doReturn(mockUser).when(imageService).getUserFromToken(token);
         when(imageRepository.findByCountryIdAndUserId(countryId, mockUser.getId()))
                 .thenReturn(mockImages);
 
         // Act
-        imageService.deleteAllImagesByCountry(countryId, token);
+        imageService.deleteAllImagesByCountry(countryId, principal);
 
         // Assert
         verify(imageDeleteService, times(1)).deleteImagesInParallel(mockImages);
     }
 
+    @Test
+    void shouldReturnKeysetPageWithCursorToNextPage() {
+        // Arrange
+        AuthenticatedUser principal = new AuthenticatedUser(1L, "leandro@email.com", "",
+                AuthorityUtils.createAuthorityList("ROLE_USER"));
+        String countryId = "br";
+
+        AppUser mockUser = new AppUser();
+        mockUser.setId(1L);
+        mockUser.setEmail("leandro@email.com");
+
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 12, 0);
+        ImageDTO image1 = new ImageDTO(3L, countryId, "photo3.jpg", "path3.jpg", 2023, now);
+        ImageDTO image2 = new ImageDTO(2L, countryId, "photo2.jpg", "path2.jpg", 2023, now);
+        ImageDTO image3 = new ImageDTO(1L, countryId, "photo1.jpg", "path1.jpg", 2023, now.minusDays(1));
+
+        when(imageRepository.findPageByCountryIdAndUserId(countryId, mockUser.getId(),
+                ImageCursor.START.getUploadDate(), ImageCursor.START.getId(), PageRequest.of(0, 3)))
+                .thenReturn(List.of(image1, image2, image3));
+        when(imageRepository.findPageByCountryIdAndUserId(countryId, mockUser.getId(),
+                now, 2L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(image3));
+
+        // Act
+        ImagePageDTO firstPage = imageService.getImagesByCountryPage(countryId, principal, null, 2);
+        ImagePageDTO secondPage = imageService.getImagesByCountryPage(countryId, principal, firstPage.getNextCursor(), 2);
+
+        // Assert
+        assertEquals(2, firstPage.getItems().size());
+        assertEquals("photo3.jpg", firstPage.getItems().get(0).getFileName());
+        assertEquals("photo2.jpg", firstPage.getItems().get(1).getFileName());
+
+        assertEquals(1, secondPage.getItems().size());
+        assertEquals("photo1.jpg", secondPage.getItems().get(0).getFileName());
+        assertNull(secondPage.getNextCursor());
+    }
+
 }
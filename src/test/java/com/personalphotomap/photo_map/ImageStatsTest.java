@@ -0,0 +1,99 @@
+package com.personalphotomap.photo_map;
+
+import com.personalphotomap.model.AppUser;
+import com.personalphotomap.model.Image;
+import com.personalphotomap.repository.AlbumRepository;
+import com.personalphotomap.repository.ImageRepository;
+import com.personalphotomap.repository.UserRepository;
+import com.personalphotomap.service.ImageDeleteService;
+import com.personalphotomap.service.ImageStatsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the per-user photo counters follow image inserts and deletes,
+ * and that a rebuild repairs counters that drifted from the images table.
+ */
+public class ImageStatsTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ImageRepository imageRepository;
+    @Autowired
+    private AlbumRepository albumRepository;
+    @Autowired
+    private ImageStatsService imageStatsService;
+    @Autowired
+    private ImageDeleteService imageDeleteService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private AppUser user;
+
+    @BeforeEach
+    void setUp() {
+        albumRepository.deleteAll();
+        imageRepository.deleteAll();
+        userRepository.deleteAll();
+
+        user = new AppUser();
+        user.setFullname("Stats");
+        user.setEmail("stats@email.com");
+        user.setPassword("not-used");
+        user.setRole("ROLE_USER");
+        user = userRepository.save(user);
+    }
+
+    @Test
+    void countersFollowUploadsAndDeletes() {
+        Image first = upload("br", 2023);
+        upload("br", 2024);
+        upload("fr", 2023);
+        long hitsBefore = (long) imageStatsService.getCacheStats().get("hitCount");
+
+        assertEquals(3, imageStatsService.getPhotoCount(user.getId()));
+        assertEquals(2, imageStatsService.getCountryCount(user.getId()));
+        assertEquals(List.of(2024, 2023), imageStatsService.getAvailableYears(user.getId()));
+        assertEquals(List.of(2023, 2024), imageStatsService.getYearsByCountry("br", user.getId()));
+        assertEquals(hitsBefore + 3, imageStatsService.getCacheStats().get("hitCount"), "counters are loaded once per user");
+
+        imageDeleteService.deleteImage(first).join();
+        imageDeleteService.deleteImage(first).join();
+
+        assertEquals(2, imageStatsService.getPhotoCount(user.getId()));
+        assertEquals(List.of(2024), imageStatsService.getYearsByCountry("br", user.getId()));
+    }
+
+    @Test
+    void rebuildRepairsDriftedCounters() {
+        upload("br", 2023);
+        upload("br", 2023);
+        jdbcTemplate.update("UPDATE image_stats SET photo_count = 99 WHERE user_id = ?", user.getId());
+        jdbcTemplate.update("INSERT INTO image_stats (user_id, country_id, year, photo_count) VALUES (?, 'jp', 2001, 1)",
+                user.getId());
+
+        assertEquals(1, imageStatsService.rebuildForUser(user.getId()));
+
+        assertEquals(2, imageStatsService.getPhotoCount(user.getId()));
+        assertEquals(List.of("br"), imageStatsService.getCountriesWithPhotos(user.getId()));
+    }
+
+    private Image upload(String countryId, int year) {
+        Image image = new Image(null, countryId, countryId + year + ".jpg", user, "path/" + countryId + year, year);
+        transactionTemplate.executeWithoutResult(status -> {
+            imageRepository.save(image);
+            imageStatsService.recordUpload(image);
+        });
+        return image;
+    }
+}
@@ -0,0 +1,104 @@
+package com.personalphotomap.photo_map;
+
+import com.personalphotomap.model.AppUser;
+import com.personalphotomap.model.Image;
+import com.personalphotomap.repository.AlbumRepository;
+import com.personalphotomap.repository.ImageRepository;
+import com.personalphotomap.repository.UserRepository;
+import com.personalphotomap.security.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks the streamed image listing in both output formats.
+ * More images than one cursor fetch are seeded, so several fetches are exercised.
+ */
+public class ImageStreamTest extends PostgresIntegrationTest {
+
+    private static final int IMAGE_COUNT = ImageRepository.STREAM_FETCH_SIZE + 20;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ImageRepository imageRepository;
+    @Autowired
+    private AlbumRepository albumRepository;
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        albumRepository.deleteAll();
+        imageRepository.deleteAll();
+        userRepository.deleteAll();
+
+        AppUser user = new AppUser();
+        user.setFullname("Stream");
+        user.setEmail("stream@email.com");
+        user.setPassword("not-used");
+        user.setRole("ROLE_USER");
+        user = userRepository.save(user);
+
+        for (int i = 0; i < IMAGE_COUNT; i++) {
+            imageRepository.save(new Image(null, "br", "photo" + i + ".jpg", user, "path" + i + ".jpg", 2000 + i % 2));
+        }
+
+        token = "Bearer " + jwtUtil.generateToken(user);
+    }
+
+    @Test
+    void streamsJsonArray() throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/images/allPictures/stream").header("Authorization", token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()").value(IMAGE_COUNT))
+                .andExpect(jsonPath("$[0].fileName").exists());
+    }
+
+    @Test
+    void streamsNdjsonFilteredByYear() throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/images/allPictures/stream?year=2001")
+                        .header("Authorization", token)
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(IMAGE_COUNT / 2, lines.length);
+        for (String line : lines) {
+            assertTrue(line.startsWith("{") && line.contains("\"year\":2001"), line);
+        }
+    }
+
+    @Test
+    void invalidTokenIsRejectedBeforeStreaming() throws Exception {
+        mockMvc.perform(get("/api/images/allPictures/stream").header("Authorization", "Bearer nope"))
+                .andExpect(status().is4xxClientError());
+    }
+}
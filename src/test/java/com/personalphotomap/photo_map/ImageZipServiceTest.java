@@ -0,0 +1,80 @@
+package com.personalphotomap.photo_map;
+
+import com.personalphotomap.dto.ImageDTO;
+import com.personalphotomap.service.ImageZipService;
+import com.personalphotomap.service.S3Service;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ImageZipServiceTest {
+
+    @Mock
+    private S3Service s3Service;
+
+    private ImageZipService imageZipService;
+
+    @BeforeEach
+    void setUp() {
+        imageZipService = new ImageZipService(s3Service, 2, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        imageZipService.shutdown();
+    }
+
+    @Test
+    void shouldWriteEveryImageAsAnEntryInOrderAndSkipMissingObjects() throws Exception {
+        List<ImageDTO> images = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            images.add(new ImageDTO((long) i, "br", "photo" + i + ".jpg", "https://bucket/key" + i, 2023,
+                    LocalDateTime.now()));
+        }
+        when(s3Service.openFile(anyString())).thenAnswer(invocation -> {
+            String url = invocation.getArgument(0);
+            if (url.endsWith("key3")) {
+                throw new IllegalStateException("NoSuchKey");
+            }
+            return new ByteArrayInputStream(("jpeg bytes of " + url).getBytes(StandardCharsets.UTF_8));
+        });
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int written = imageZipService.writeZip(images, out);
+
+        assertEquals(4, written);
+        Map<String, String> entries = readZip(out.toByteArray());
+        assertEquals(List.of("photo0.jpg", "photo1.jpg", "photo2.jpg", "photo4.jpg"), List.copyOf(entries.keySet()));
+        assertEquals("jpeg bytes of https://bucket/key4", entries.get("photo4.jpg"));
+    }
+
+    private Map<String, String> readZip(byte[] archive) throws Exception {
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+}
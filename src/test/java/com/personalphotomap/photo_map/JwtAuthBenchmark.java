@@ -0,0 +1,96 @@
+package com.personalphotomap.photo_map;
+
+import com.personalphotomap.model.AppUser;
+import com.personalphotomap.security.JwtUtil;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.security.Key;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authentication overhead per request.
+ *
+ * - before: what a request used to cost, four full verifications, each with a newly built parser
+ *   (filter: extract username, then validate username and expiration; service: resolve the user).
+ * - firstUse: one verification with the prebuilt parser, paid once per token.
+ * - after: the claims cache hit every later request takes, plus building the principal.
+ *
+ * Run from the IDE, or after mvn test-compile with the test classpath:
+ * java -cp target/test-classes:target/classes:... com.personalphotomap.photo_map.JwtAuthBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret";
+
+    private Key key;
+    private JwtUtil jwtUtil;
+    private String token;
+
+    /**
+     * A JwtUtil with an empty cache for every invocation.
+     */
+    @State(Scope.Thread)
+    public static class ColdCache {
+
+        JwtUtil jwtUtil;
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            jwtUtil = new JwtUtil(SECRET, new SimpleMeterRegistry(), 10_000, Duration.ofMinutes(15));
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        key = Keys.hmacShaKeyFor(SECRET.getBytes());
+        jwtUtil = new JwtUtil(SECRET, new SimpleMeterRegistry(), 10_000, Duration.ofMinutes(15));
+
+        AppUser user = new AppUser();
+        user.setId(42L);
+        user.setEmail("benchmark@email.com");
+        user.setRole("ROLE_USER");
+        token = jwtUtil.generateToken(user);
+        jwtUtil.extractAllClaims(token);
+    }
+
+    @Benchmark
+    public void before(Blackhole blackhole) {
+        for (int i = 0; i < 4; i++) {
+            blackhole.consume(Jwts.parserBuilder()
+                    .setSigningKey(key)
+                    .build()
+                    .parseClaimsJws(token)
+                    .getBody());
+        }
+    }
+
+    @Benchmark
+    public Object firstUse(ColdCache cold) {
+        return cold.jwtUtil.toPrincipal(cold.jwtUtil.extractAllClaims(token));
+    }
+
+    @Benchmark
+    public Object after() {
+        return jwtUtil.toPrincipal(jwtUtil.extractAllClaims(token));
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(JwtAuthBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,69 @@
+package com.personalphotomap.photo_map;
+
+import com.personalphotomap.model.AppUser;
+import com.personalphotomap.security.AuthenticatedUser;
+import com.personalphotomap.security.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtUtilTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret-test-secret";
+
+    private JwtUtil jwtUtil;
+    private AppUser user;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil(SECRET, new SimpleMeterRegistry(), 100, Duration.ofMinutes(15));
+
+        user = new AppUser();
+        user.setId(7L);
+        user.setEmail("leandro@email.com");
+        user.setRole("ROLE_USER");
+        user.setPremium(true);
+    }
+
+    @Test
+    void shouldVerifyTokenOnceAndServeCachedClaims() {
+        String token = jwtUtil.generateToken(user);
+
+        Claims first = jwtUtil.extractAllClaims(token);
+        Claims second = jwtUtil.extractAllClaims(token);
+
+        assertSame(first, second);
+        AuthenticatedUser principal = jwtUtil.toPrincipal(second);
+        assertEquals(7L, principal.getId());
+        assertEquals("leandro@email.com", principal.getUsername());
+        assertTrue(principal.isPremium());
+        assertTrue(jwtUtil.validateToken(token, "leandro@email.com"));
+    }
+
+    @Test
+    void shouldNeverCacheTamperedOrExpiredTokens() {
+        String token = jwtUtil.generateToken(user);
+        jwtUtil.extractAllClaims(token);
+
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+        assertThrows(JwtException.class, () -> jwtUtil.extractAllClaims(tampered));
+
+        String expired = Jwts.builder()
+                .setSubject(user.getEmail())
+                .setExpiration(new Date(System.currentTimeMillis() - 1000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .compact();
+        assertThrows(ExpiredJwtException.class, () -> jwtUtil.extractAllClaims(expired));
+        assertThrows(ExpiredJwtException.class, () -> jwtUtil.extractAllClaims(expired));
+    }
+}
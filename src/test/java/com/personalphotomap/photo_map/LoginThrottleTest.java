@@ -0,0 +1,70 @@
+package com.personalphotomap.photo_map;
+
+import com.personalphotomap.security.LoginThrottle;
+import com.personalphotomap.security.TooManyRequestsException;
+import com.personalphotomap.service.PasswordHashingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class LoginThrottleTest {
+
+    @Test
+    void shouldLimitAttemptsPerIpAndFailuresPerAccount() {
+        LoginThrottle throttle = new LoginThrottle(3, Duration.ofHours(1), 2, Duration.ofHours(1));
+
+        throttle.checkAttempt("10.0.0.1", "leandro@email.com");
+        throttle.recordFailure("leandro@email.com");
+        throttle.checkAttempt("10.0.0.1", "leandro@email.com");
+        throttle.recordFailure("Leandro@Email.com");
+
+        // Account locked for every address, other accounts unaffected
+        TooManyRequestsException locked = assertThrows(TooManyRequestsException.class,
+                () -> throttle.checkAttempt("10.0.0.2", "leandro@email.com"));
+        assertTrue(locked.getRetryAfter().compareTo(Duration.ZERO) > 0);
+        throttle.checkAttempt("10.0.0.1", "other@email.com");
+
+        // Fourth attempt from the same address
+        assertThrows(TooManyRequestsException.class, () -> throttle.checkAttempt("10.0.0.1", "other@email.com"));
+
+        throttle.recordSuccess("leandro@email.com");
+        throttle.checkAttempt("10.0.0.3", "leandro@email.com");
+    }
+
+    @Test
+    void shouldRejectHashingWhenPoolAndQueueAreFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder encoder = mock(PasswordEncoder.class);
+        when(encoder.encode(anyString())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return "hash";
+        });
+        PasswordHashingService hashing = new PasswordHashingService(encoder, new SimpleMeterRegistry(), 1, 1);
+
+        try {
+            CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> hashing.encode("one"));
+            verify(encoder, timeout(1000)).encode("one");
+            CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> hashing.encode("two"));
+            Thread.sleep(100);
+
+            assertThrows(TooManyRequestsException.class, () -> hashing.encode("three"));
+            verify(encoder, never()).encode("three");
+
+            release.countDown();
+            assertEquals("hash", running.get(5, TimeUnit.SECONDS));
+            assertEquals("hash", queued.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            hashing.shutdown();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.personalphotomap.photo_map;
+
+import com.personalphotomap.model.AppUser;
+import com.personalphotomap.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import software.amazon.awssdk.services.s3.S3Client;
+
+/**
+ * Base class for integration tests that need a real PostgreSQL database.
+ *
+ * A single container is started on first use and shared by every subclass,
+ * so the cached Spring context always points to a live database.
+ * Tests are skipped when Docker is not available.
+ * Also provides the user fixture shared by the subclasses.
+ * The properties are in @TestPropertySource, so a subclass declaring its own @SpringBootTest
+ * (for a real server, say) still gets them.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "jwt.secret=integration-test-secret-integration-test-secret",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // Keep background jobs from running statements inside another test's counting window
+        "photomap.previews.refresh-delay=PT1H",
+        "photomap.albums.rebalance-delay=PT1H"
+})
+@AutoConfigureMockMvc
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class PostgresIntegrationTest {
+
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @MockBean
+    protected S3Client s3Client;
+
+    @Autowired
+    private UserRepository fixtureUserRepository;
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        POSTGRES.start();
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    /**
+     * Saves a regular user with the given email. The password is never checked.
+     */
+    protected AppUser saveUser(String email) {
+        return saveUser(email, "ROLE_USER");
+    }
+
+    protected AppUser saveUser(String email, String role) {
+        AppUser user = new AppUser();
+        user.setFullname("Test User");
+        user.setEmail(email);
+        user.setPassword("not-used");
+        user.setRole(role);
+        return fixtureUserRepository.save(user);
+    }
+}
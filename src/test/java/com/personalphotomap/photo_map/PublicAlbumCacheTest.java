@@ -0,0 +1,146 @@
+package com.personalphotomap.photo_map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.personalphotomap.model.AppUser;
+import com.personalphotomap.model.Image;
+import com.personalphotomap.repository.AlbumRepository;
+import com.personalphotomap.repository.ImageRepository;
+import com.personalphotomap.repository.UserRepository;
+import com.personalphotomap.security.JwtUtil;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that repeated public album listings are served from the response cache without any statement,
+ * that pages walk every album once, and that creating or deleting an album is visible right away.
+ */
+public class PublicAlbumCacheTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ImageRepository imageRepository;
+    @Autowired
+    private AlbumRepository albumRepository;
+    @Autowired
+    private JwtUtil jwtUtil;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private String token;
+    private Long imageId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        albumRepository.deleteAll();
+        imageRepository.deleteAll();
+        userRepository.deleteAll();
+
+        AppUser user = new AppUser();
+        user.setFullname("Public Albums");
+        user.setEmail("public-albums@email.com");
+        user.setPassword("not-used");
+        user.setRole("ROLE_USER");
+        user = userRepository.save(user);
+        token = "Bearer " + jwtUtil.generateToken(user);
+        imageId = imageRepository.save(new Image(null, "br", "photo.jpg", user, "path.jpg", 2023)).getId();
+
+        for (int i = 0; i < 3; i++) {
+            createAlbum("Album " + i);
+        }
+    }
+
+    @Test
+    void repeatedListingsAreServedFromTheCache() throws Exception {
+        for (String url : List.of("/api/albums/br", "/api/albums/all")) {
+            assertListing(url, 3);
+
+            Statistics statistics = statistics();
+            statistics.clear();
+            assertListing(url, 3);
+            assertEquals(0, statistics.getPrepareStatementCount(), url);
+        }
+    }
+
+    @Test
+    void pagesWalkEveryAlbumOnce() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            var request = get("/api/albums/br").param("limit", "2").header("Authorization", token);
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            JsonNode page = objectMapper.readTree(mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            page.get("items").forEach(item -> ids.add(item.get("id").asLong()));
+            cursor = page.get("hasMore").asBoolean() ? page.get("nextCursor").asText() : null;
+        } while (cursor != null);
+
+        assertEquals(3, ids.size());
+        assertEquals(ids.stream().sorted().toList(), ids);
+
+        mockMvc.perform(get("/api/albums/all").param("cursor", "not-a-cursor").header("Authorization", token))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void creatingAndDeletingAnAlbumDropsCachedListings() throws Exception {
+        assertListing("/api/albums/br", 3);
+        assertListing("/api/albums/all", 3);
+
+        Long created = createAlbum("Fresh");
+        assertListing("/api/albums/br", 4);
+        assertListing("/api/albums/all", 4);
+
+        mockMvc.perform(delete("/api/albums/" + created).header("Authorization", token))
+                .andExpect(status().isOk());
+        assertListing("/api/albums/br", 3);
+        assertListing("/api/albums/all", 3);
+    }
+
+    private void assertListing(String url, int albums) throws Exception {
+        mockMvc.perform(get(url).header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()").value(albums));
+    }
+
+    private Long createAlbum(String name) throws Exception {
+        String body = objectMapper.writeValueAsString(
+                Map.of("albumName", name, "countryId", "br", "imageIds", List.of(imageId)));
+        String response = mockMvc.perform(post("/api/albums").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("id").asLong();
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
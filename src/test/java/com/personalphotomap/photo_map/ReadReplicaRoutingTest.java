@@ -0,0 +1,114 @@
+package com.personalphotomap.photo_map;
+
+import com.personalphotomap.model.AppUser;
+import com.personalphotomap.repository.UserRepository;
+import com.personalphotomap.security.AuthenticatedUser;
+import com.personalphotomap.service.ImageLibraryChangedEvent;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Checks read/write routing against two PostgreSQL instances.
+ *
+ * The "replica" is a second, independently migrated database with no replication,
+ * so a row written through the application is only visible when the read went to the primary.
+ */
+public class ReadReplicaRoutingTest extends PostgresIntegrationTest {
+
+    static final PostgreSQLContainer<?> REPLICA = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void replicaProperties(DynamicPropertyRegistry registry) {
+        REPLICA.start();
+        Flyway.configure()
+                .dataSource(REPLICA.getJdbcUrl(), REPLICA.getUsername(), REPLICA.getPassword())
+                .load()
+                .migrate();
+        registry.add("photomap.datasource.replica-urls", REPLICA::getJdbcUrl);
+        registry.add("photomap.datasource.replica-username", REPLICA::getUsername);
+        registry.add("photomap.datasource.replica-password", REPLICA::getPassword);
+        registry.add("photomap.datasource.read-your-writes-window", () -> "PT1S");
+    }
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private AppUser user;
+
+    @BeforeEach
+    void setUp() {
+        user = new AppUser();
+        user.setFullname("Replica");
+        user.setEmail(UUID.randomUUID() + "@email.com");
+        user.setPassword("not-used");
+        user.setRole("ROLE_USER");
+        user = userRepository.save(user);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplicaAndWritesToThePrimary() {
+        assertEquals(0, countUser(true), "read-only transaction reads the replica");
+        assertEquals(1, countUser(false), "read-write transaction reads the primary");
+        assertFalse(userRepository.existsById(user.getId()),
+                "plain repository queries use Spring Data's read-only default and go to the replica");
+    }
+
+    @Test
+    void aUsersReadsStayOnThePrimaryDuringTheirWriteWindow() throws Exception {
+        authenticateAs(user.getId());
+        assertEquals(0, countUser(true));
+
+        eventPublisher.publishEvent(new ImageLibraryChangedEvent(user.getId(), ImageLibraryChangedEvent.Type.UPLOAD));
+        assertEquals(1, countUser(true), "the writer reads its own write");
+
+        authenticateAs(user.getId() + 1000);
+        assertEquals(0, countUser(true), "other users keep reading the replica");
+
+        authenticateAs(user.getId());
+        Thread.sleep(1500);
+        assertEquals(0, countUser(true), "the window closes");
+    }
+
+    private int countUser(boolean readOnly) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(readOnly);
+        return template.execute(status -> jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM users WHERE id = ?", Integer.class, user.getId()));
+    }
+
+    private static void authenticateAs(Long userId) {
+        AuthenticatedUser principal = new AuthenticatedUser(userId, "user" + userId, "",
+                AuthorityUtils.createAuthorityList("ROLE_USER"));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+}
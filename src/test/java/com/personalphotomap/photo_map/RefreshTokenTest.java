@@ -0,0 +1,162 @@
+package com.personalphotomap.photo_map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.personalphotomap.model.AppUser;
+import com.personalphotomap.repository.AlbumRepository;
+import com.personalphotomap.repository.ImageRepository;
+import com.personalphotomap.repository.UserRepository;
+import com.personalphotomap.security.AuthenticatedUser;
+import com.personalphotomap.security.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks the login / refresh / logout cycle, including rotation and reuse detection.
+ */
+public class RefreshTokenTest extends PostgresIntegrationTest {
+
+    private static final String EMAIL = "refresh@email.com";
+    private static final String PASSWORD = "secret-password";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ImageRepository imageRepository;
+    @Autowired
+    private AlbumRepository albumRepository;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private JwtUtil jwtUtil;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        albumRepository.deleteAll();
+        imageRepository.deleteAll();
+        userRepository.deleteAll();
+
+        AppUser user = new AppUser();
+        user.setFullname("Refresh");
+        user.setEmail(EMAIL);
+        user.setPassword(passwordEncoder.encode(PASSWORD));
+        user.setRole("ROLE_USER");
+        userRepository.save(user);
+    }
+
+    @Test
+    void refreshRotatesTheTokenAndReuseRevokesTheFamily() throws Exception {
+        JsonNode login = postJson("/api/auth/login",
+                "{\"email\":\"" + EMAIL + "\",\"password\":\"" + PASSWORD + "\"}", 200);
+        String firstRefresh = login.get("refreshToken").asText();
+
+        JsonNode refreshed = postJson("/api/auth/refresh", refreshBody(firstRefresh), 200);
+        String secondRefresh = refreshed.get("refreshToken").asText();
+        assertNotEquals(firstRefresh, secondRefresh);
+
+        mockMvc.perform(get("/api/images/allPictures")
+                        .header("Authorization", "Bearer " + refreshed.get("token").asText()))
+                .andExpect(status().isOk());
+
+        // The first token was already exchanged: replaying it revokes the whole family
+        postJson("/api/auth/refresh", refreshBody(firstRefresh), 401);
+        postJson("/api/auth/refresh", refreshBody(secondRefresh), 401);
+    }
+
+    @Test
+    void logoutRevokesTheRefreshToken() throws Exception {
+        JsonNode login = postJson("/api/auth/login",
+                "{\"email\":\"" + EMAIL + "\",\"password\":\"" + PASSWORD + "\"}", 200);
+        String refreshToken = login.get("refreshToken").asText();
+
+        mockMvc.perform(post("/api/auth/logout")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(refreshBody(refreshToken)))
+                .andExpect(status().isNoContent());
+
+        postJson("/api/auth/refresh", refreshBody(refreshToken), 401);
+        postJson("/api/auth/refresh", refreshBody("unknown"), 401);
+    }
+
+    @Test
+    void refreshSeesChangesMadeBehindTheEntityCache() throws Exception {
+        JsonNode login = postJson("/api/auth/login", loginBody(), 200);
+        assertFalse(principal(login).isPremium());
+
+        // The login left the user in the entity cache; this update does not evict it
+        jdbcTemplate.update("UPDATE users SET premium = true, role = 'ROLE_ADMIN' WHERE email = ?", EMAIL);
+
+        JsonNode refreshed = postJson("/api/auth/refresh", refreshBody(login.get("refreshToken").asText()), 200);
+        AuthenticatedUser principal = principal(refreshed);
+        assertTrue(principal.isPremium());
+        assertEquals("ROLE_ADMIN", principal.getAuthorities().iterator().next().getAuthority());
+    }
+
+    @Test
+    void logoutEverywhereRevokesEverySession() throws Exception {
+        JsonNode laptop = postJson("/api/auth/login", loginBody(), 200);
+        JsonNode phone = postJson("/api/auth/login", loginBody(), 200);
+
+        mockMvc.perform(post("/api/auth/logout-all"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/api/auth/logout-all")
+                        .header("Authorization", "Bearer " + phone.get("token").asText()))
+                .andExpect(status().isNoContent());
+
+        postJson("/api/auth/refresh", refreshBody(laptop.get("refreshToken").asText()), 401);
+        postJson("/api/auth/refresh", refreshBody(phone.get("refreshToken").asText()), 401);
+    }
+
+    @Test
+    void premiumUpgradeNeedsAToken() throws Exception {
+        mockMvc.perform(put("/api/auth/users/make-premium"))
+                .andExpect(status().isUnauthorized());
+
+        JsonNode login = postJson("/api/auth/login",
+                "{\"email\":\"" + EMAIL + "\",\"password\":\"" + PASSWORD + "\"}", 200);
+        mockMvc.perform(put("/api/auth/users/make-premium")
+                        .header("Authorization", "Bearer " + login.get("token").asText()))
+                .andExpect(status().isOk());
+    }
+
+    private JsonNode postJson(String url, String body, int expectedStatus) throws Exception {
+        String response = mockMvc.perform(post(url)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().is(expectedStatus))
+                .andReturn().getResponse().getContentAsString();
+        return expectedStatus == 200 ? objectMapper.readTree(response) : null;
+    }
+
+    private AuthenticatedUser principal(JsonNode tokens) {
+        return jwtUtil.toPrincipal(jwtUtil.extractAllClaims(tokens.get("token").asText()));
+    }
+
+    private static String loginBody() {
+        return "{\"email\":\"" + EMAIL + "\",\"password\":\"" + PASSWORD + "\"}";
+    }
+
+    private static String refreshBody(String refreshToken) {
+        return "{\"refreshToken\":\"" + refreshToken + "\"}";
+    }
+}